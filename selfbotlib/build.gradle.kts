@@ -5,6 +5,10 @@ plugins {
 group = "com.github.imagineforgee.selfbotlib"
 version = "0.0.1"
 var opusVersions = "1.1.1"
+var jmhVersion = "1.37"
+var junitVersion = "5.10.2"
+// Lets the UDP transport read socket descriptors for sendmmsg batching
+val nioExports = "--add-exports=java.base/sun.nio.ch=ALL-UNNAMED"
 
 repositories {
     mavenLocal()
@@ -15,6 +19,17 @@ repositories {
     maven { url = uri("https://maven.lavalink.dev/releases") }
 }
 
+sourceSets {
+    create("jmh") {
+        compileClasspath += sourceSets.main.get().output
+        runtimeClasspath += sourceSets.main.get().output
+    }
+}
+
+val jmhImplementation by configurations.getting {
+    extendsFrom(configurations.implementation.get())
+}
+
 dependencies {
     implementation("org.java-websocket:Java-WebSocket:1.5.3")
     implementation("com.google.code.gson:gson:2.10.1")
@@ -30,8 +45,33 @@ dependencies {
     implementation("club.minnced:opus-java-api:${opusVersions}")
     implementation("club.minnced:opus-java-natives:${opusVersions}")
     implementation("club.minnced:opus-java:${opusVersions}")
+
+    testImplementation(platform("org.junit:junit-bom:${junitVersion}"))
+    testImplementation("org.junit.jupiter:junit-jupiter")
+    testRuntimeOnly("org.junit.platform:junit-platform-launcher")
+
+    jmhImplementation("org.openjdk.jmh:jmh-core:${jmhVersion}")
+    "jmhAnnotationProcessor"("org.openjdk.jmh:jmh-generator-annprocess:${jmhVersion}")
+}
+
+tasks.register<JavaExec>("jmh") {
+    group = "benchmark"
+    description = "Runs the media hot path benchmarks with the GC profiler. Filter with -Pjmh.include=<regex>."
+    classpath = sourceSets["jmh"].runtimeClasspath
+    mainClass.set("org.openjdk.jmh.Main")
+    val results = layout.buildDirectory.file("reports/jmh/results.json").get().asFile
+    doFirst { results.parentFile.mkdirs() }
+    jvmArgs(nioExports)
+    args("-prof", "gc", "-rf", "json", "-rff", results.absolutePath, "-jvmArgsAppend", nioExports)
+    project.findProperty("jmh.include")?.let { args(it.toString()) }
 }
 
 tasks.test {
     useJUnitPlatform()
+    jvmArgs(nioExports)
+}
+
+tasks.jar {
+    // Honoured when the application is started with java -jar
+    manifest.attributes("Add-Exports" to "java.base/sun.nio.ch")
 }
\ No newline at end of file
@@ -0,0 +1,46 @@
+package com.github.imagineforgee.selfbotlib.video;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Splitting ffmpeg's Annex-B output into access units, fed in 4 KB reads like a process pipe.
+ * One invocation parses a GOP of one IDR and 29 P frames.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AnnexBScanBenchmark {
+    private static final int READ_SIZE = 4096;
+
+    private byte[] stream;
+
+    @Setup
+    public void setup() {
+        stream = H264Samples.annexBGop(29, new Random(42));
+    }
+
+    @Benchmark
+    public void annexBReader(Blackhole bh) throws IOException {
+        InputStream in = new ByteArrayInputStream(stream) {
+            @Override
+            public synchronized int read(byte[] b, int off, int len) {
+                return super.read(b, off, Math.min(len, READ_SIZE));
+            }
+        };
+        AnnexBReader reader = new AnnexBReader();
+        AccessUnit unit;
+        while ((unit = reader.next(in)) != null) {
+            bh.consume(unit);
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package com.github.imagineforgee.selfbotlib.video;
+
+import java.io.ByteArrayOutputStream;
+import java.util.Random;
+
+/**
+ * Synthetic 1080p H.264 elementary stream data sized like x264 ultrafast/zerolatency output.
+ */
+final class H264Samples {
+    static final int IDR_SIZE = 150_000;
+    static final int P_SLICE_SIZE = 18_000;
+
+    private H264Samples() {}
+
+    /** A NAL unit with the given header byte and no start-code emulation in its payload. */
+    static byte[] nal(int header, int size, Random random) {
+        byte[] nal = new byte[size];
+        random.nextBytes(nal);
+        nal[0] = (byte) header;
+        for (int i = 1; i < size; i++) {
+            if (nal[i] == 0) nal[i] = 1;
+        }
+        return nal;
+    }
+
+    /** One GOP in Annex-B form: SPS, PPS, IDR slice, then {@code pFrames} P slices, each behind an AUD. */
+    static byte[] annexBGop(int pFrames, Random random) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        writeNal(out, new byte[]{0x09, (byte) 0xF0});
+        writeNal(out, nal(0x67, 24, random));
+        writeNal(out, nal(0x68, 6, random));
+        writeNal(out, nal(0x65, IDR_SIZE, random));
+        for (int i = 0; i < pFrames; i++) {
+            writeNal(out, new byte[]{0x09, (byte) 0xF0});
+            writeNal(out, nal(0x41, P_SLICE_SIZE, random));
+        }
+        return out.toByteArray();
+    }
+
+    private static void writeNal(ByteArrayOutputStream out, byte[] nal) {
+        out.write(0);
+        out.write(0);
+        out.write(0);
+        out.write(1);
+        out.write(nal, 0, nal.length);
+    }
+}
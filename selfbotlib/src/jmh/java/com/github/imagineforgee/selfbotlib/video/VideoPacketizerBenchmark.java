@@ -0,0 +1,56 @@
+package com.github.imagineforgee.selfbotlib.video;
+
+import com.github.imagineforgee.selfbotlib.media.transport.DirectBufferPool;
+import org.openjdk.jmh.annotations.*;
+
+import java.nio.ByteBuffer;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * RTP packetization of 1080p access units in VideoStreamer. Packets go back to the pool after
+ * each invocation, as they would once sent.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class VideoPacketizerBenchmark {
+    @Param({"IDR", "P"})
+    public String frameType;
+
+    private final DirectBufferPool pool = new DirectBufferPool(1500, 256);
+    private final ByteBuffer[] out = new ByteBuffer[256];
+    private H264Packetizer packetizer;
+    private byte[] sps;
+    private byte[] pps;
+    private byte[] nal;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(42);
+        sps = H264Samples.nal(0x67, 24, random);
+        pps = H264Samples.nal(0x68, 6, random);
+        nal = "IDR".equals(frameType)
+                ? H264Samples.nal(0x65, H264Samples.IDR_SIZE, random)
+                : H264Samples.nal(0x41, H264Samples.P_SLICE_SIZE, random);
+        packetizer = new H264Packetizer(0x4321, pool, H264Packetizer.DEFAULT_MAX_PAYLOAD);
+    }
+
+    @Benchmark
+    public int packetizeAccessUnit() {
+        int count = 0;
+        if ("IDR".equals(frameType)) {
+            count = packetizer.packetize(sps, 0, sps.length, 0, out, count);
+            count = packetizer.packetize(pps, 0, pps.length, 0, out, count);
+        }
+        count = packetizer.packetize(nal, 0, nal.length, 0, out, count);
+        count = packetizer.flush(out, count);
+        for (int i = 0; i < count; i++) {
+            pool.release(out[i]);
+        }
+        return count;
+    }
+}
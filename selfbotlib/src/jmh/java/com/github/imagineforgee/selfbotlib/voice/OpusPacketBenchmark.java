@@ -0,0 +1,53 @@
+package com.github.imagineforgee.selfbotlib.voice;
+
+import com.github.imagineforgee.selfbotlib.media.transport.DatagramChannelTransport;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * RTP packet assembly in OpusUdpStreamer (header, encryption, nonce suffix) without the socket send.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class OpusPacketBenchmark {
+    @Param({"160", "320"})
+    public int frameLength;
+
+    private DatagramChannelTransport transport;
+    private OpusUdpStreamer streamer;
+    private byte[] frame;
+    private int sequence;
+
+    @Setup
+    public void setup() throws IOException {
+        Random random = new Random(42);
+        byte[] key = new byte[32];
+        random.nextBytes(key);
+        frame = new byte[frameLength];
+        random.nextBytes(frame);
+
+        transport = new DatagramChannelTransport(new InetSocketAddress(InetAddress.getLoopbackAddress(), 9));
+        streamer = new OpusUdpStreamer(transport, 0x1234, new VoiceCipher(key), new AtomicBoolean(true));
+    }
+
+    @TearDown
+    public void tearDown() {
+        transport.close();
+    }
+
+    @Benchmark
+    public int writePacket() {
+        int seq = sequence++;
+        return streamer.writePacket(seq & 0xFFFF, seq * 960, frame, 0, frame.length);
+    }
+}
@@ -0,0 +1,63 @@
+package com.github.imagineforgee.selfbotlib.voice;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.nio.ByteBuffer;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-packet encryption cost: the original static SodiumEncryption path against the
+ * session-scoped VoiceCipher.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class VoiceCipherBenchmark {
+    // 20 ms Opus frames at 64 and 128 kbps
+    @Param({"160", "320"})
+    public int frameLength;
+
+    private byte[] key;
+    private byte[] frame;
+    private byte[] header;
+    private byte[] nonce;
+    private VoiceCipher cipher;
+    private ByteBuffer src;
+    private ByteBuffer dst;
+    private int counter;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(42);
+        key = new byte[32];
+        random.nextBytes(key);
+        frame = new byte[frameLength];
+        random.nextBytes(frame);
+        header = new byte[OpusUdpStreamer.RTP_HEADER_LENGTH];
+        random.nextBytes(header);
+        nonce = new byte[24];
+
+        cipher = new VoiceCipher(key);
+        src = ByteBuffer.wrap(frame);
+        dst = ByteBuffer.allocate(OpusUdpStreamer.RTP_HEADER_LENGTH + frameLength + VoiceCipher.OVERHEAD);
+        dst.put(header);
+    }
+
+    @Benchmark
+    public byte[] staticEncrypt() {
+        nonce[3] = (byte) counter++;
+        return SodiumEncryption.encrypt(frame, header, nonce, key);
+    }
+
+    @Benchmark
+    public ByteBuffer voiceCipher() {
+        src.clear();
+        dst.position(OpusUdpStreamer.RTP_HEADER_LENGTH);
+        cipher.encryptInto(src, dst, counter++);
+        return dst;
+    }
+}
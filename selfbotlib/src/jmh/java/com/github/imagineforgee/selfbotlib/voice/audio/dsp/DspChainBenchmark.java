@@ -0,0 +1,55 @@
+package com.github.imagineforgee.selfbotlib.voice.audio.dsp;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One 20 ms stereo frame through the DSP chain: flat settings, which should cost nothing, and
+ * a full chain with every EQ band, volume and the limiter active. Run with {@code -prof gc} to
+ * confirm neither allocates.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DspChainBenchmark {
+    private static final int FRAME_SAMPLES = 960;
+
+    private float[][] frame;
+    private DspChain flat;
+    private DspChain full;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(42);
+        frame = new float[2][FRAME_SAMPLES];
+        for (float[] channel : frame) {
+            for (int i = 0; i < FRAME_SAMPLES; i++) {
+                channel[i] = random.nextFloat() * 0.5f - 0.25f;
+            }
+        }
+
+        flat = new DspChain(new DspSettings(), 2, 48000);
+
+        DspSettings settings = new DspSettings();
+        for (int b = 0; b < settings.getBandCount(); b++) {
+            settings.setBandGain(b, b % 2 == 0 ? 3 : -3);
+        }
+        settings.setVolume(1.5f);
+        full = new DspChain(settings, 2, 48000);
+    }
+
+    @Benchmark
+    public boolean flatChain() {
+        return flat.process(frame, 0, FRAME_SAMPLES);
+    }
+
+    @Benchmark
+    public boolean eqVolumeLimiter() {
+        return full.process(frame, 0, FRAME_SAMPLES);
+    }
+}
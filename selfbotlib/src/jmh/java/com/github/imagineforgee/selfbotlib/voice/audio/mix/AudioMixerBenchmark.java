@@ -0,0 +1,53 @@
+package com.github.imagineforgee.selfbotlib.voice.audio.mix;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.ShortBuffer;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One 20 ms tick of the mixer with a growing number of loud sources: gain ramps, one ducker
+ * turning the rest down, and the limiter catching the sum. Run with {@code -prof gc} to
+ * confirm a tick doesn't allocate.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AudioMixerBenchmark {
+    @Param({"1", "4", "16"})
+    public int sources;
+
+    private AudioMixer mixer;
+    private ShortBuffer pcm;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(42);
+        mixer = new AudioMixer();
+        for (int s = 0; s < sources; s++) {
+            float[] samples = new float[AudioMixer.FRAME_SAMPLES];
+            for (int i = 0; i < samples.length; i++) {
+                samples[i] = random.nextFloat() * 1.2f - 0.6f;
+            }
+            MixerChannel channel = mixer.addSource((left, right, frames) -> {
+                System.arraycopy(samples, 0, left, 0, frames);
+                System.arraycopy(samples, 0, right, 0, frames);
+                return true;
+            });
+            channel.setDucker(s == 0);
+            channel.setDuckable(s != 0);
+        }
+        pcm = ByteBuffer.allocateDirect(AudioMixer.FRAME_SAMPLES * 4).order(ByteOrder.nativeOrder()).asShortBuffer();
+    }
+
+    @Benchmark
+    public boolean mix() {
+        return mixer.mix(pcm);
+    }
+}
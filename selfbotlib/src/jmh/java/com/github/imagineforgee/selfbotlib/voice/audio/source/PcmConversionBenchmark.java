@@ -0,0 +1,59 @@
+package com.github.imagineforgee.selfbotlib.voice.audio.source;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Getting one 20 ms stereo capture frame from the line's byte array to opus_encode's input:
+ * the old per-sample conversion into a short array against the bulk copy into a native-order
+ * direct buffer that DesktopAudioMode now does.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PcmConversionBenchmark {
+    private static final int FRAME_SAMPLES = 960 * 2;
+
+    private byte[] pcm;
+    private short[] out;
+    private ByteBuffer direct;
+
+    @Setup
+    public void setup() {
+        pcm = new byte[FRAME_SAMPLES * 2];
+        new Random(42).nextBytes(pcm);
+        out = new short[FRAME_SAMPLES];
+        direct = ByteBuffer.allocateDirect(FRAME_SAMPLES * 2).order(ByteOrder.nativeOrder());
+    }
+
+    @Benchmark
+    public short[] perSampleAllocated() {
+        short[] shorts = new short[FRAME_SAMPLES];
+        toShorts(pcm, shorts);
+        return shorts;
+    }
+
+    @Benchmark
+    public short[] perSampleReused() {
+        toShorts(pcm, out);
+        return out;
+    }
+
+    @Benchmark
+    public ByteBuffer bulkCopyDirect() {
+        return direct.put(0, pcm, 0, pcm.length);
+    }
+
+    private static void toShorts(byte[] pcm, short[] out) {
+        for (int i = 0; i < out.length; i++) {
+            out[i] = (short) ((pcm[i * 2] & 0xFF) | (pcm[i * 2 + 1] << 8));
+        }
+    }
+}
@@ -29,6 +29,7 @@ public class UserBotClient {
     private final EventDispatcher dispatcher;
     private final MessageSender messageSender;
     private final DmAndChannelService dmService;
+    private final VoiceConnectionManager voiceConnections;
     private final VoiceClient voiceClient;
     private final WebhookClient webhookClient;
     private final CommandManager commandManager = new CommandManager();
@@ -44,7 +45,9 @@ public class UserBotClient {
         this.dispatcher = new EventDispatcher();
         this.messageSender = new MessageSender(token);
         this.dmService = new DmAndChannelService(token);
-        this.voiceClient = new VoiceClient(this);
+        this.voiceConnections = new VoiceConnectionManager(this);
+        // Follows whichever channel it is asked to join; leaves contexts with a managed connection alone
+        this.voiceClient = new VoiceClient(this, voiceConnections, false, null);
         if (webhook_url != null && !webhook_url.isBlank()) {
             this.webhookClient = WebhookClient.fromUrl(webhook_url);
         } else {
@@ -266,6 +269,11 @@ public class UserBotClient {
         return voiceClient;
     }
 
+    /** Independent voice connections, one per guild or DM call, for being in several at once. */
+    public VoiceConnectionManager getVoiceConnections() {
+        return voiceConnections;
+    }
+
     public WebhookClient getWebhookClient() { return webhookClient; }
 
     public String getSelfId() {
@@ -4,18 +4,27 @@ import com.github.imagineforgee.selfbotlib.commands.CommandContext;
 import com.github.imagineforgee.selfbotlib.dispatch.events.VoiceServerUpdateEvent;
 import com.github.imagineforgee.selfbotlib.dispatch.events.VoiceStateUpdateEvent;
 import com.github.imagineforgee.selfbotlib.gateway.GatewayClient;
+import com.github.imagineforgee.selfbotlib.media.rtcp.BitrateController;
+import com.github.imagineforgee.selfbotlib.media.rtcp.RtcpListener;
+import com.github.imagineforgee.selfbotlib.media.rtcp.RtcpReceiver;
+import com.github.imagineforgee.selfbotlib.media.transport.DatagramChannelTransport;
+import com.github.imagineforgee.selfbotlib.media.transport.MediaTransport;
 import com.github.imagineforgee.selfbotlib.util.VoiceStateRegistry;
 import com.github.imagineforgee.selfbotlib.video.VideoMode;
 import com.github.imagineforgee.selfbotlib.voice.OpusUdpStreamer;
 import com.github.imagineforgee.selfbotlib.voice.SpeakingFlag;
+import com.github.imagineforgee.selfbotlib.voice.VoiceCipher;
 import com.github.imagineforgee.selfbotlib.voice.VoiceConnectionState;
 import com.github.imagineforgee.selfbotlib.voice.VoiceMode;
+import com.github.imagineforgee.selfbotlib.voice.audio.OpusEncoderConfig;
 import com.google.gson.JsonArray;
 import com.google.gson.JsonObject;
 import com.google.gson.JsonParser;
 import com.google.gson.JsonPrimitive;
 import org.java_websocket.client.WebSocketClient;
 import org.java_websocket.handshake.ServerHandshake;
+import reactor.core.Disposable;
+import reactor.core.Disposables;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 import reactor.core.publisher.Sinks;
@@ -23,21 +32,37 @@ import reactor.core.scheduler.Schedulers;
 
 import java.io.File;
 import java.io.FileOutputStream;
+import java.io.IOException;
 import java.io.InputStream;
-import java.net.DatagramPacket;
-import java.net.DatagramSocket;
-import java.net.InetAddress;
+import java.net.InetSocketAddress;
 import java.net.URI;
+import java.nio.ByteBuffer;
 import java.time.Duration;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicReference;
 
 public class VoiceClient {
+    // Opus stays intelligible for speech down here
+    private static final int AUDIO_MIN_BITRATE = 16000;
+    // FEC beyond this costs more bitrate than it recovers
+    private static final int AUDIO_MAX_FEC_LOSS = 30;
+    // Close codes after which the voice session is gone and resuming is pointless
+    private static final Set<Integer> NON_RESUMABLE_CLOSE_CODES = Set.of(4004, 4006, 4009, 4011, 4012, 4014, 4016);
+    private static final int MAX_RESUME_ATTEMPTS = 3;
+    private static final Duration RESUME_BACKOFF = Duration.ofMillis(500);
+    private static final Duration RESUME_TIMEOUT = Duration.ofSeconds(5);
+
     private final GatewayClient gateway;
     private final UserBotClient botClient;
+    private final VoiceConnectionManager manager;
+    // Bound clients belong to one guild (or to DM calls, with a null guild) for their lifetime
+    private final boolean bound;
+    private final String boundGuildId;
+    private final Disposable.Composite subscriptions = Disposables.composite();
 
     private final Sinks.Many<VoiceConnectionState> connectionStateSink = Sinks.many().replay().latest();
     private final Sinks.Many<String> heartbeatSink = Sinks.many().multicast().onBackpressureBuffer();
@@ -47,6 +72,15 @@ public class VoiceClient {
     private final AtomicBoolean isConnecting = new AtomicBoolean(false);
     private final AtomicBoolean isConnected = new AtomicBoolean(false);
     private final AtomicBoolean initialized = new AtomicBoolean(false);
+    // The UDP session (socket, SSRC, key, streamer) is up; survives websocket resumes
+    private final AtomicBoolean mediaActive = new AtomicBoolean(false);
+    private final AtomicInteger resumeAttempts = new AtomicInteger(0);
+    private volatile boolean resuming;
+    private volatile long recoveryStartedNanos;
+    private volatile Duration lastRecoveryTime;
+    private volatile boolean lastRecoveryResumed;
+    private final AtomicInteger resumeCount = new AtomicInteger(0);
+    private final AtomicInteger failedResumeCount = new AtomicInteger(0);
     private final AtomicInteger heartbeatSequence = new AtomicInteger(0);
 
     private final Map<String, VoiceMode> voiceModes = new ConcurrentHashMap<>();
@@ -55,14 +89,58 @@ public class VoiceClient {
     private final AtomicReference<String> activeVideoModeId = new AtomicReference<>();
 
     private volatile WebSocketClient voiceSocket;
-    private volatile DatagramSocket udp;
+    private volatile MediaTransport transport;
     private OpusUdpStreamer udpStreamer;
+    private volatile VoiceCipher voiceCipher;
+
+    private volatile OpusEncoderConfig encoderConfig = OpusEncoderConfig.DEFAULT;
+    private volatile BitrateController audioRate = newAudioRateController(OpusEncoderConfig.DEFAULT);
+    private volatile int audioBitrateLimit = OpusEncoderConfig.BITRATE_AUTO;
+    private volatile int audioLossHint;
+    private volatile RtcpReceiver rtcpReceiver;
+    private final List<RtcpListener> rtcpListeners = new CopyOnWriteArrayList<>();
+    private final RtcpListener rtcpDispatcher = new RtcpListener() {
+        @Override
+        public void onReceiverReport(int ssrc, int fractionLost, int cumulativeLost, long highestSequence, long jitter) {
+            if (ssrc == currentState.get().ssrc) {
+                onAudioReport(fractionLost);
+            }
+            for (RtcpListener listener : rtcpListeners) {
+                listener.onReceiverReport(ssrc, fractionLost, cumulativeLost, highestSequence, jitter);
+            }
+        }
+
+        @Override
+        public void onNack(int ssrc, int sequence) {
+            for (RtcpListener listener : rtcpListeners) {
+                listener.onNack(ssrc, sequence);
+            }
+        }
+
+        @Override
+        public void onPictureLoss(int ssrc) {
+            for (RtcpListener listener : rtcpListeners) {
+                listener.onPictureLoss(ssrc);
+            }
+        }
+    };
 
     private volatile String encryptionMode = "aead_xchacha20_poly1305_rtpsize";
 
     public VoiceClient(UserBotClient botClient) {
+        this(botClient, null, false, null);
+    }
+
+    /**
+     * @param manager shared resources, and contexts this client leaves alone when unbound; may be null
+     * @param bound   whether this client only ever serves {@code guildId} (null meaning DM calls)
+     */
+    VoiceClient(UserBotClient botClient, VoiceConnectionManager manager, boolean bound, String guildId) {
         this.botClient = botClient;
         this.gateway = botClient.getGatewayClient();
+        this.manager = manager;
+        this.bound = bound;
+        this.boundGuildId = guildId;
         setupReactiveEventHandling();
         setupHeartbeatHandling();
         setupVoiceMessageHandling();
@@ -77,6 +155,9 @@ public class VoiceClient {
     }
 
     public void registerVoiceMode(String modeId, VoiceMode voiceMode) {
+        voiceMode.setEncoderConfig(encoderConfig);
+        voiceMode.setBitrateLimit(audioBitrateLimit);
+        voiceMode.setLossHint(audioLossHint);
         VoiceMode existing = voiceModes.put(modeId, voiceMode);
         if (existing != null) {
             System.out.println("[Voice] Replaced existing voice mode: " + modeId);
@@ -84,6 +165,73 @@ public class VoiceClient {
         System.out.println("[Voice] Registered voice mode: " + modeId + " (" + voiceMode.getClass().getSimpleName() + ")");
     }
 
+    /**
+     * Opus encoder settings for every registered voice mode, including one that is streaming.
+     * A mode can still be given its own settings afterwards through
+     * {@link VoiceMode#setEncoderConfig(OpusEncoderConfig)}. While connected, receiver reports
+     * cap every mode's bitrate at or below the one given here and turn on FEC when the path
+     * loses packets.
+     */
+    public void setEncoderConfig(OpusEncoderConfig config) {
+        this.encoderConfig = config;
+        this.audioRate = newAudioRateController(config);
+        for (VoiceMode mode : voiceModes.values()) {
+            mode.setEncoderConfig(config);
+        }
+        setAudioLimits(OpusEncoderConfig.BITRATE_AUTO, 0);
+        System.out.println("[Voice] Encoder config: " + config);
+    }
+
+    /**
+     * Receives RTCP feedback (receiver reports, NACKs, picture loss) for every stream on this
+     * connection, e.g. a {@link com.github.imagineforgee.selfbotlib.video.VideoStreamer}.
+     */
+    public void addRtcpListener(RtcpListener listener) {
+        if (!rtcpListeners.contains(listener)) {
+            rtcpListeners.add(listener);
+        }
+    }
+
+    public void removeRtcpListener(RtcpListener listener) {
+        rtcpListeners.remove(listener);
+    }
+
+    public RtcpReceiver getRtcpReceiver() {
+        return rtcpReceiver;
+    }
+
+    private static BitrateController newAudioRateController(OpusEncoderConfig config) {
+        int max = config.getBitrate() == OpusEncoderConfig.BITRATE_AUTO
+                ? OpusEncoderConfig.DEFAULT.getBitrate() : config.getBitrate();
+        return new BitrateController(Math.min(AUDIO_MIN_BITRATE, max), max, max);
+    }
+
+    /** Passes the loss-adapted bitrate cap and loss hint to the voice modes, which keep their own configs. */
+    private void onAudioReport(int fractionLost) {
+        BitrateController rate = audioRate;
+        if (!rate.onReport(fractionLost)) return;
+
+        int target = rate.getTargetBitrate();
+        int lossPercent = (int) Math.round(rate.getSmoothedLoss() * 100);
+        // Back at the configured rate nothing is capped, so a mode configured higher gets its own
+        setAudioLimits(target >= rate.getMaxBitrate() ? OpusEncoderConfig.BITRATE_AUTO : target,
+                Math.min(AUDIO_MAX_FEC_LOSS, lossPercent));
+        System.out.println("[Voice] Audio adapted to " + target / 1000 + " kbps, loss " + lossPercent + "%");
+    }
+
+    private void setAudioLimits(int bitrateLimit, int lossHint) {
+        audioBitrateLimit = bitrateLimit;
+        audioLossHint = lossHint;
+        for (VoiceMode mode : voiceModes.values()) {
+            mode.setBitrateLimit(bitrateLimit);
+            mode.setLossHint(lossHint);
+        }
+    }
+
+    public OpusEncoderConfig getEncoderConfig() {
+        return encoderConfig;
+    }
+
     public void registerVideoMode(String modeId, VideoMode videoMode) {
         VideoMode existing = videoModes.put(modeId, videoMode);
         if (existing != null) {
@@ -261,23 +409,23 @@ public class VoiceClient {
                 .map(this::updateStateFromStateEvent)
                 .doOnNext(state -> System.out.println("[Voice] State update: " + state));
 
-        Flux.merge(serverUpdates, stateUpdates)
+        subscriptions.add(Flux.merge(serverUpdates, stateUpdates)
                 .distinctUntilChanged()
                 .filter(VoiceConnectionState::isReadyToConnect)
                 .delayElements(Duration.ofMillis(500))
                 .subscribe(this::handleConnectionStateChange,
-                        error -> System.err.println("[Voice] Error in event handling: " + error.getMessage()));
+                        error -> System.err.println("[Voice] Error in event handling: " + error.getMessage())));
 
-        stateUpdates
+        subscriptions.add(stateUpdates
                 .filter(state -> state.channelId == null)
                 .subscribe(state -> {
                     System.out.println("[Voice] Bot left voice channel, disconnecting");
                     disconnect().subscribe();
-                });
+                }));
     }
 
     private void setupHeartbeatHandling() {
-        heartbeatSink.asFlux()
+        subscriptions.add(heartbeatSink.asFlux()
                 .map(Integer::parseInt)
                 .flatMap(interval ->
                         Flux.interval(Duration.ofMillis(interval))
@@ -286,16 +434,22 @@ public class VoiceClient {
                 )
                 .filter(payload -> isConnected.get() && voiceSocket != null && voiceSocket.isOpen())
                 .subscribe(this::sendHeartbeat,
-                        error -> System.err.println("[Voice] Heartbeat error: " + error.getMessage()));
+                        error -> System.err.println("[Voice] Heartbeat error: " + error.getMessage())));
     }
 
     private void setupVoiceMessageHandling() {
-        voiceMessageSink.asFlux()
+        subscriptions.add(voiceMessageSink.asFlux()
                 .subscribe(this::processVoiceMessage,
-                        error -> System.err.println("[Voice] Message processing error: " + error.getMessage()));
+                        error -> System.err.println("[Voice] Message processing error: " + error.getMessage())));
     }
 
     private boolean shouldProcessEvent(String guildId) {
+        if (bound) {
+            return isDmOrGroupChannel(boundGuildId) ? isDmOrGroupChannel(guildId) : boundGuildId.equals(guildId);
+        }
+        if (manager != null && manager.isClaimed(guildId)) {
+            return false;
+        }
         VoiceConnectionState state = currentState.get();
         String currentContext = getContextId(state.guildId, state.channelId);
         String eventContext = getContextId(guildId, null);
@@ -358,61 +512,109 @@ public class VoiceClient {
 
             try {
                 cleanup();
-                URI uri = new URI("wss://" + state.endpoint + "/?v=4");
-                String channelType = isDmOrGroupChannel(state.guildId) ? "DM/Group" : "Guild";
-                System.out.println("[Voice] Connecting to " + channelType + " voice: " + uri);
-
-                voiceSocket = new WebSocketClient(uri) {
-                    @Override
-                    public void onOpen(ServerHandshake handshake) {
-                        System.out.println("[Voice] WebSocket connected (" + channelType + ")");
-                        isConnecting.set(false);
-                        isConnected.set(true);
-                        sendVoiceIdentify(state);
-                    }
+                openVoiceSocket(state, false);
+            } catch (Exception e) {
+                isConnecting.set(false);
+                throw new RuntimeException("Failed to connect to voice WebSocket", e);
+            }
+        });
+    }
 
-                    @Override
-                    public void onMessage(String message) {
-                        try {
-                            JsonObject json = JsonParser.parseString(message).getAsJsonObject();
-                            voiceMessageSink.tryEmitNext(json);
-                        } catch (Exception e) {
-                            System.err.println("[Voice] Error parsing message: " + e.getMessage());
-                        }
-                    }
+    /**
+     * Opens the voice websocket and, once connected, identifies as a new session or, with
+     * {@code resume}, asks to continue the current one.
+     */
+    private void openVoiceSocket(VoiceConnectionState state, boolean resume) throws Exception {
+        URI uri = new URI("wss://" + state.endpoint + "/?v=4");
+        String channelType = isDmOrGroupChannel(state.guildId) ? "DM/Group" : "Guild";
+        System.out.println("[Voice] " + (resume ? "Resuming" : "Connecting to") + " " + channelType + " voice: " + uri);
 
-                    @Override
-                    public void onClose(int code, String reason, boolean remote) {
-                        System.out.println("[Voice] Disconnected (" + channelType + "): " + code + " - " + reason);
-                        isConnected.set(false);
-                        isConnecting.set(false);
-                        initialized.set(false);
+        voiceSocket = new WebSocketClient(uri) {
+            @Override
+            public void onOpen(ServerHandshake handshake) {
+                System.out.println("[Voice] WebSocket connected (" + channelType + ")");
+                isConnecting.set(false);
+                isConnected.set(true);
+                if (resume) {
+                    sendVoiceResume(state);
+                    WebSocketClient socket = this;
+                    Mono.delay(RESUME_TIMEOUT).subscribe(t -> {
+                        if (resuming && voiceSocket == socket && socket.isOpen()) {
+                            System.err.println("[Voice] No RESUMED within " + RESUME_TIMEOUT.toSeconds() + "s");
+                            socket.close();
+                        }
+                    });
+                } else {
+                    sendVoiceIdentify(state);
+                }
+            }
 
-                        handleDisconnection(code, reason, state)
-                                .subscribeOn(Schedulers.boundedElastic())
-                                .subscribe();
-                    }
+            @Override
+            public void onMessage(String message) {
+                try {
+                    JsonObject json = JsonParser.parseString(message).getAsJsonObject();
+                    voiceMessageSink.tryEmitNext(json);
+                } catch (Exception e) {
+                    System.err.println("[Voice] Error parsing message: " + e.getMessage());
+                }
+            }
 
-                    @Override
-                    public void onError(Exception ex) {
-                        System.err.println("[Voice] WebSocket error (" + channelType + "): " + ex.getMessage());
-                        isConnected.set(false);
-                        isConnecting.set(false);
-                    }
-                };
+            @Override
+            public void onClose(int code, String reason, boolean remote) {
+                System.out.println("[Voice] Disconnected (" + channelType + "): " + code + " - " + reason);
+                // A socket we already replaced; its successor owns the connection
+                if (voiceSocket != this) return;
+                isConnected.set(false);
+                isConnecting.set(false);
 
-                voiceSocket.setConnectionLostTimeout(30);
-                voiceSocket.connect();
+                handleDisconnection(code, reason, remote, state)
+                        .subscribeOn(Schedulers.boundedElastic())
+                        .subscribe();
+            }
 
-            } catch (Exception e) {
+            @Override
+            public void onError(Exception ex) {
+                System.err.println("[Voice] WebSocket error (" + channelType + "): " + ex.getMessage());
+                isConnected.set(false);
                 isConnecting.set(false);
-                throw new RuntimeException("Failed to connect to voice WebSocket", e);
             }
-        });
+        };
+
+        voiceSocket.setConnectionLostTimeout(30);
+        voiceSocket.connect();
     }
 
-    private Mono<Void> handleDisconnection(int code, String reason, VoiceConnectionState state) {
+    private Mono<Void> handleDisconnection(int code, String reason, boolean remote, VoiceConnectionState state) {
+        boolean sessionGone = NON_RESUMABLE_CLOSE_CODES.contains(code);
+        if (resuming) {
+            if (!sessionGone && resumeAttempts.get() < MAX_RESUME_ATTEMPTS) {
+                return resume(state);
+            }
+            failedResumeCount.incrementAndGet();
+            System.out.println("[Voice] Resume failed after " + resumeAttempts.get() + " attempt(s), reconnecting from scratch");
+            isConnecting.set(false);
+            initialized.set(false);
+            cleanup();
+            if (code == 4014) {
+                recoveryStartedNanos = 0;
+                System.out.println("[Voice] Disconnected from voice channel");
+                return Mono.empty();
+            }
+            return Mono.delay(Duration.ofSeconds(1))
+                    .then(joinAndConnect(state.guildId, state.channelId))
+                    .then();
+        }
+        // Closes we initiate (cleanup, disconnect) come through here as local 1000s
+        if ((remote || code == 1006) && !sessionGone && canResume(state)) {
+            recoveryStartedNanos = System.nanoTime();
+            return resume(state);
+        }
+
+        initialized.set(false);
         cleanup();
+        if (code == 1006 || code == 4015) {
+            recoveryStartedNanos = System.nanoTime();
+        }
         return switch (code) {
             case 1006 -> {
                 System.out.println("[Voice] Abnormal closure (1006) — reconnecting...");
@@ -437,6 +639,86 @@ public class VoiceClient {
         };
     }
 
+    /** Only the websocket is lost; everything on the UDP side is still usable. */
+    private boolean canResume(VoiceConnectionState state) {
+        MediaTransport current = transport;
+        return mediaActive.get() && current != null && current.isOpen() && voiceCipher != null
+                && state.sessionId != null && state.token != null;
+    }
+
+    /**
+     * Reopens only the websocket, leaving the UDP socket, SSRC, key and streamer running so
+     * audio keeps flowing; the server only needs to hear the session id again.
+     */
+    private Mono<Void> resume(VoiceConnectionState state) {
+        int attempt = resumeAttempts.incrementAndGet();
+        resuming = true;
+        // Keep the voice state handler from starting a fresh connection meanwhile
+        isConnecting.set(true);
+        Duration delay = attempt == 1 ? Duration.ZERO : RESUME_BACKOFF.multipliedBy(1L << (attempt - 2));
+        System.out.println("[Voice] Resuming voice session (attempt " + attempt + "/" + MAX_RESUME_ATTEMPTS + ")");
+        return Mono.delay(delay)
+                .then(Mono.<Void>fromRunnable(() -> {
+                    try {
+                        openVoiceSocket(state, true);
+                    } catch (Exception e) {
+                        throw new RuntimeException("Failed to reopen voice WebSocket", e);
+                    }
+                }))
+                .onErrorResume(error -> {
+                    System.err.println("[Voice] " + error.getMessage());
+                    return handleDisconnection(-1, error.getMessage(), false, state);
+                });
+    }
+
+    private void handleResumed() {
+        resuming = false;
+        int attempts = resumeAttempts.getAndSet(0);
+        resumeCount.incrementAndGet();
+        Duration took = finishRecovery(true);
+        System.out.println("[Voice] Session resumed after " + attempts + " attempt(s)"
+                + (took != null ? " in " + took.toMillis() + " ms" : ""));
+
+        // Speaking updates sent while the socket was down were dropped
+        OpusUdpStreamer streamer = udpStreamer;
+        if (streamer != null) {
+            if (streamer.isSpeaking()) setSpeaking(SpeakingFlag.MICROPHONE);
+            else setSpeaking();
+        }
+    }
+
+    private Duration finishRecovery(boolean resumed) {
+        long started = recoveryStartedNanos;
+        if (started == 0) return null;
+        recoveryStartedNanos = 0;
+        Duration took = Duration.ofNanos(System.nanoTime() - started);
+        lastRecoveryTime = took;
+        lastRecoveryResumed = resumed;
+        return took;
+    }
+
+    /**
+     * How long the last recovery from a dropped voice websocket took, from the close to
+     * RESUMED, or to the new session's key after a full reconnect. Null if none happened yet.
+     * During a resume audio keeps flowing over UDP; after a full reconnect it stopped for this long.
+     */
+    public Duration getLastRecoveryTime() {
+        return lastRecoveryTime;
+    }
+
+    /** Whether {@link #getLastRecoveryTime()} was a resume rather than a full reconnect. */
+    public boolean wasLastRecoveryResumed() {
+        return lastRecoveryResumed;
+    }
+
+    public int getResumeCount() {
+        return resumeCount.get();
+    }
+
+    public int getFailedResumeCount() {
+        return failedResumeCount.get();
+    }
+
     private void processVoiceMessage(JsonObject json) {
         int op = json.get("op").getAsInt();
         JsonObject d = json.has("d") && !json.get("d").isJsonNull() && json.get("d").isJsonObject()
@@ -467,6 +749,10 @@ public class VoiceClient {
                 System.out.println("[Voice] Heartbeat ACK");
                 break;
 
+            case 9: // RESUMED
+                handleResumed();
+                break;
+
             default:
                 System.out.println("[Voice] Unknown opcode: " + op);
         }
@@ -514,33 +800,40 @@ public class VoiceClient {
         return Mono.fromCallable(() -> {
                     System.out.println("[Voice] Starting UDP discovery");
 
-                    if (udp != null && !udp.isClosed()) {
-                        udp.close();
+                    if (transport != null && transport.isOpen()) {
+                        transport.close();
                     }
 
-                    udp = new DatagramSocket();
-                    InetAddress address = InetAddress.getByName(ip);
-
-                    byte[] packet = new byte[70];
-                    packet[0] = (byte) ((ssrc >>> 24) & 0xFF);
-                    packet[1] = (byte) ((ssrc >>> 16) & 0xFF);
-                    packet[2] = (byte) ((ssrc >>> 8) & 0xFF);
-                    packet[3] = (byte) (ssrc & 0xFF);
-
-                    DatagramPacket sendPacket = new DatagramPacket(packet, packet.length, address, port);
-                    udp.send(sendPacket);
-                    udp.setSoTimeout(10000);
-
-                    byte[] response = new byte[70];
-                    DatagramPacket received = new DatagramPacket(response, response.length);
-                    udp.receive(received);
-                    StringBuilder ipBuilder = new StringBuilder();
-                    for (int i = 4; i < 68 && response[i] != 0; i++) {
-                        ipBuilder.append((char) (response[i] & 0xFF));
-                    }
+                    transport = newTransport(new InetSocketAddress(ip, port));
+
+                    String discoveredIp;
+                    int discoveredPort;
+                    ByteBuffer packet = transport.bufferPool().acquire();
+                    try {
+                        packet.putInt(ssrc);
+                        while (packet.position() < 70) {
+                            packet.put((byte) 0);
+                        }
+                        packet.flip();
+                        transport.send(packet);
+
+                        packet.clear();
+                        if (!transport.receive(packet, Duration.ofSeconds(10))) {
+                            throw new RuntimeException("Timed out waiting for IP discovery response");
+                        }
+                        if (packet.position() < 70) {
+                            throw new RuntimeException("Short IP discovery response: " + packet.position() + " bytes");
+                        }
 
-                    String discoveredIp = ipBuilder.toString();
-                    int discoveredPort = ((response[68] & 0xFF) << 8) | (response[69] & 0xFF);
+                        StringBuilder ipBuilder = new StringBuilder();
+                        for (int i = 4; i < 68 && packet.get(i) != 0; i++) {
+                            ipBuilder.append((char) (packet.get(i) & 0xFF));
+                        }
+                        discoveredIp = ipBuilder.toString();
+                        discoveredPort = packet.getShort(68) & 0xFFFF;
+                    } finally {
+                        transport.bufferPool().release(packet);
+                    }
 
                     if (discoveredIp.isEmpty()) {
                         throw new RuntimeException("Empty IP discovered");
@@ -583,6 +876,10 @@ public class VoiceClient {
     }
 
     public Mono<Void> joinAndConnect(String guildId, String channelId) {
+        if (bound && !Objects.equals(boundGuildId, guildId)) {
+            return Mono.error(new IllegalArgumentException("This connection serves "
+                    + (boundGuildId != null ? "guild " + boundGuildId : "DM calls") + ", not " + guildId));
+        }
         String channelType = isDmOrGroupChannel(guildId) ? "DM/Group" : "Guild";
         System.out.println("[Voice] Joining " + channelType + " voice channel: " + channelId);
 
@@ -690,6 +987,7 @@ public class VoiceClient {
             activeVoiceModeId.set(null);
             activeVideoModeId.set(null);
             initialized.set(false);
+            recoveryStartedNanos = 0;
             currentState.set(new VoiceConnectionState());
             cleanup();
         });
@@ -720,12 +1018,15 @@ public class VoiceClient {
             System.out.println("[Voice] Connecting: " + isConnecting.get());
             System.out.println("[Voice] State: " + state);
             System.out.println("[Voice] WebSocket open: " + (voiceSocket != null && voiceSocket.isOpen()));
-            System.out.println("[Voice] UDP closed: " + (udp == null || udp.isClosed()));
+            System.out.println("[Voice] UDP closed: " + (transport == null || !transport.isOpen()));
             System.out.println("[Voice] Active VoiceMode: " + activeVoiceModeId.get());
             System.out.println("[Voice] Active VideoMode: " + activeVideoModeId.get());
             System.out.println("[Voice] Registered VoiceModes: " + voiceModes.keySet());
             System.out.println("[Voice] Registered VideoModes: " + videoModes.keySet());
             System.out.println("[Voice] UDP Streamer ready: " + (udpStreamer != null));
+            System.out.println("[Voice] Resumes: " + resumeCount.get() + " (failed " + failedResumeCount.get()
+                    + "), last recovery: " + (lastRecoveryTime != null
+                    ? lastRecoveryTime.toMillis() + " ms" + (lastRecoveryResumed ? " (resumed)" : " (reconnected)") : "none"));
             System.out.println("[Voice] ========================");
         });
     }
@@ -750,6 +1051,25 @@ public class VoiceClient {
         System.out.println("[Voice] Sent IDENTIFY");
     }
 
+    private void sendVoiceResume(VoiceConnectionState state) {
+        JsonObject resume = new JsonObject();
+        resume.addProperty("op", 7);
+        JsonObject data = new JsonObject();
+
+        if (isDmOrGroupChannel(state.guildId)) {
+            data.addProperty("server_id", state.channelId);
+        } else {
+            data.addProperty("server_id", state.guildId);
+        }
+
+        data.addProperty("session_id", state.sessionId);
+        data.addProperty("token", state.token);
+        resume.add("d", data);
+
+        voiceSocket.send(resume.toString());
+        System.out.println("[Voice] Sent RESUME");
+    }
+
     private JsonObject createHeartbeatPayload() {
         JsonObject heartbeat = new JsonObject();
         heartbeat.addProperty("op", 3);
@@ -808,16 +1128,39 @@ public class VoiceClient {
         System.out.println("[Voice] Received encryption key for " + channelType + " channel, initializing voice");
 
         try {
-            InetAddress address = InetAddress.getByName(state.voiceServerIp);
-            udpStreamer = new OpusUdpStreamer(udp, address, state.voiceServerPort, state.ssrc, secretKey, isConnected);
+            if (transport == null || !transport.isOpen()) {
+                transport = newTransport(new InetSocketAddress(state.voiceServerIp, state.voiceServerPort));
+            }
+            voiceCipher = new VoiceCipher(secretKey);
+            mediaActive.set(true);
+            if (udpStreamer != null) {
+                udpStreamer.close();
+            }
+            udpStreamer = new OpusUdpStreamer(transport, state.ssrc, voiceCipher, mediaActive);
+            udpStreamer.setSpeakingListener(speaking -> {
+                if (speaking) setSpeaking(SpeakingFlag.MICROPHONE);
+                else setSpeaking();
+            });
             System.out.println("[Voice] UDP Streamer initialized for " + channelType + " channel");
 
+            if (rtcpReceiver != null) {
+                rtcpReceiver.stop();
+            }
+            // A new path starts from the configured settings, not what the last one adapted to
+            audioRate = newAudioRateController(encoderConfig);
+            setAudioLimits(OpusEncoderConfig.BITRATE_AUTO, 0);
+            rtcpReceiver = new RtcpReceiver(transport, voiceCipher, rtcpDispatcher,
+                    manager != null ? manager.getRtcpPoller() : null);
+            rtcpReceiver.start();
+
             VoiceMode activeVoice = getActiveVoiceModeModel();
             if (activeVoice != null) {
                 activeVoice.setUdpStreamer(udpStreamer);
             }
             initialized.set(true);
-            System.out.println("[Voice] " + channelType + " voice connection fully established");
+            Duration took = finishRecovery(false);
+            System.out.println("[Voice] " + channelType + " voice connection fully established"
+                    + (took != null ? " (reconnected in " + took.toMillis() + " ms)" : ""));
         } catch (Exception e) {
             System.err.println("[Voice] Failed to initialize voice streamer: " + e.getMessage());
         }
@@ -855,19 +1198,42 @@ public class VoiceClient {
         System.out.println("[Voice] Set speaking for " + channelType + " channel: " + (bitmask != 0 ? bitmask : "off") + " (" + Arrays.toString(flags) + ")");
     }
 
+    private MediaTransport newTransport(InetSocketAddress remote) throws IOException {
+        return manager != null
+                ? new DatagramChannelTransport(remote, manager.getBufferPool())
+                : new DatagramChannelTransport(remote);
+    }
+
+    /**
+     * Disconnects and stops listening to gateway events for good. Used when a connection is
+     * removed from its {@link VoiceConnectionManager}.
+     */
+    void dispose() {
+        disconnect().block();
+        subscriptions.dispose();
+    }
+
     private void cleanup() {
+        mediaActive.set(false);
+        resuming = false;
+        resumeAttempts.set(0);
         if (voiceSocket != null && voiceSocket.isOpen()) {
             voiceSocket.close();
         }
-        if (udp != null && !udp.isClosed()) {
-            udp.close();
-            udp = null;
+        if (rtcpReceiver != null) {
+            rtcpReceiver.stop();
+            rtcpReceiver = null;
         }
-
+        // Before the transport, so its packet buffer goes back to the pool
         if (udpStreamer != null) {
-            udpStreamer.stop();
+            udpStreamer.close();
             udpStreamer = null;
         }
+        if (transport != null) {
+            transport.close();
+            transport = null;
+        }
+        voiceCipher = null;
 
         if (initialized.getAndSet(false)) {
             VoiceMode activeVoice = getActiveVoiceModeModel();
@@ -906,4 +1272,12 @@ public class VoiceClient {
     public OpusUdpStreamer getUdpStreamer() {
         return udpStreamer;
     }
+
+    public VoiceCipher getVoiceCipher() {
+        return voiceCipher;
+    }
+
+    public MediaTransport getTransport() {
+        return transport;
+    }
 }
\ No newline at end of file
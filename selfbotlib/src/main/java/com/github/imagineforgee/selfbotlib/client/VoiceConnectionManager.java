@@ -0,0 +1,121 @@
+package com.github.imagineforgee.selfbotlib.client;
+
+import com.github.imagineforgee.selfbotlib.media.MediaScheduler;
+import com.github.imagineforgee.selfbotlib.media.transport.DatagramChannelTransport;
+import com.github.imagineforgee.selfbotlib.media.transport.DirectBufferPool;
+import com.github.imagineforgee.selfbotlib.media.transport.TransportPoller;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Keeps one {@link VoiceClient} per voice context, a guild or the DM/group call, each with its
+ * own gateway state machine, heartbeat, UDP transport and voice/video modes, so several can be
+ * connected at once. What does not need to be per connection is shared: packet buffers come
+ * from one pool, inbound RTCP for every connection is read by one poller thread, and all
+ * streamers are paced by {@link MediaScheduler#shared()}. Adding a connection therefore adds
+ * sockets and state but no threads.
+ * <p>
+ * Discord only lets an account be in one voice channel per guild; user accounts may be limited
+ * to a single voice connection overall by the server.
+ */
+public class VoiceConnectionManager {
+    // Enough packets in flight for a few video streams plus audio before the pool allocates
+    private static final int SHARED_POOL_SIZE = 1024;
+    // Key for the DM/group call context; an account is in at most one call at a time
+    private static final String DM_CONTEXT = "@dm";
+
+    private final UserBotClient botClient;
+    private final Map<String, VoiceClient> connections = new ConcurrentHashMap<>();
+    private final DirectBufferPool bufferPool =
+            new DirectBufferPool(DatagramChannelTransport.MAX_PACKET_SIZE, SHARED_POOL_SIZE);
+    private volatile TransportPoller rtcpPoller;
+
+    public VoiceConnectionManager(UserBotClient botClient) {
+        this.botClient = botClient;
+    }
+
+    /**
+     * The connection for the context of {@code guildId} (null for DM/group calls), created on
+     * first use. Register modes on it, then {@link VoiceClient#joinAndConnect(String, String)}.
+     */
+    public VoiceClient getConnection(String guildId) {
+        return connections.computeIfAbsent(contextKey(guildId),
+                key -> new VoiceClient(botClient, this, true, guildId));
+    }
+
+    /** The existing connection for a context, or null. */
+    public VoiceClient findConnection(String guildId) {
+        return connections.get(contextKey(guildId));
+    }
+
+    public Mono<Void> join(String guildId, String channelId) {
+        return getConnection(guildId).joinAndConnect(guildId, channelId);
+    }
+
+    /** Leaves the context's channel and drops its connection, modes included. */
+    public Mono<Void> leave(String guildId) {
+        VoiceClient client = connections.remove(contextKey(guildId));
+        if (client == null) return Mono.empty();
+        return client.leaveVoice(guildId)
+                .then(Mono.fromRunnable(client::dispose).subscribeOn(Schedulers.boundedElastic()))
+                .then();
+    }
+
+    public Mono<Void> leaveAll() {
+        List<String> guildIds = new ArrayList<>();
+        for (String key : connections.keySet()) {
+            guildIds.add(DM_CONTEXT.equals(key) ? null : key);
+        }
+        return Flux.fromIterable(guildIds)
+                .flatMap(this::leave)
+                .then();
+    }
+
+    public Collection<VoiceClient> getConnections() {
+        return List.copyOf(connections.values());
+    }
+
+    public int getConnectionCount() {
+        return connections.size();
+    }
+
+    /** True if a managed connection owns the context of {@code guildId}. */
+    boolean isClaimed(String guildId) {
+        return connections.containsKey(contextKey(guildId));
+    }
+
+    DirectBufferPool getBufferPool() {
+        return bufferPool;
+    }
+
+    /** Started on first use, so a process with no voice connection has no poller thread. */
+    TransportPoller getRtcpPoller() {
+        TransportPoller poller = rtcpPoller;
+        if (poller == null) {
+            synchronized (this) {
+                poller = rtcpPoller;
+                if (poller == null) {
+                    try {
+                        poller = rtcpPoller = new TransportPoller("voice-rtcp");
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                }
+            }
+        }
+        return poller;
+    }
+
+    private static String contextKey(String guildId) {
+        return guildId != null ? guildId : DM_CONTEXT;
+    }
+}
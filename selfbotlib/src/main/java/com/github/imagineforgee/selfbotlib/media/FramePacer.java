@@ -0,0 +1,134 @@
+package com.github.imagineforgee.selfbotlib.media;
+
+import java.time.Duration;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Runs a {@link PacedTask} against absolute {@link System#nanoTime()} deadlines on a
+ * {@link MediaScheduler}. Each deadline is the previous one plus the period, so wake-up jitter
+ * never accumulates into drift, and a stalled producer never banks ticks for a later burst.
+ */
+public class FramePacer {
+    private volatile long periodNanos;
+    private final PacedTask task;
+    private final PacerStats stats;
+    private final MediaScheduler scheduler;
+    private volatile LateFramePolicy policy;
+    private volatile int maxCatchUp;
+    private volatile boolean running;
+    private volatile boolean inTick;
+    // A thread in stop() waiting for the in-flight tick, woken when it ends
+    private volatile Thread stopWaiter;
+    private boolean started;
+
+    // Owned by the scheduler thread
+    long deadline;
+    long wheelTick;
+    FramePacer next;
+    volatile Thread worker;
+
+    public FramePacer(Duration period, PacedTask task, PacerStats stats) {
+        this(period, task, stats, MediaScheduler.shared());
+    }
+
+    public FramePacer(Duration period, PacedTask task, PacerStats stats, MediaScheduler scheduler) {
+        this.periodNanos = period.toNanos();
+        this.task = task;
+        this.stats = stats;
+        this.scheduler = scheduler;
+        this.policy = LateFramePolicy.CATCH_UP;
+        this.maxCatchUp = 5;
+    }
+
+    /**
+     * Changes the period from the next tick on; the current deadline is kept.
+     */
+    public void setPeriod(Duration period) {
+        this.periodNanos = period.toNanos();
+    }
+
+    public void setLateFramePolicy(LateFramePolicy policy) {
+        this.policy = policy;
+    }
+
+    /**
+     * Largest number of missed ticks {@link LateFramePolicy#CATCH_UP} will send back-to-back.
+     */
+    public void setMaxCatchUp(int maxCatchUp) {
+        this.maxCatchUp = Math.max(0, maxCatchUp);
+    }
+
+    /**
+     * Schedules the first tick one period from now. A pacer runs once; create a new one to restart.
+     */
+    public synchronized void start() {
+        if (started) return;
+        started = true;
+        running = true;
+        deadline = System.nanoTime() + periodNanos;
+        scheduler.schedule(this);
+    }
+
+    /**
+     * Stops the pacer and, unless called from a tick, waits briefly for the in-flight tick
+     * so the task's buffers can be reused right away.
+     */
+    public void stop() {
+        running = false;
+        if (worker == Thread.currentThread()) return;
+        long giveUp = System.nanoTime() + periodNanos * 5;
+        stopWaiter = Thread.currentThread();
+        try {
+            long remaining;
+            while (inTick && (remaining = giveUp - System.nanoTime()) > 0) {
+                LockSupport.parkNanos(this, remaining);
+            }
+        } finally {
+            stopWaiter = null;
+        }
+    }
+
+    public boolean isRunning() {
+        return running;
+    }
+
+    /** Runs the tick due at {@link #deadline} and advances it; called by the scheduler thread. */
+    void fire(long now) {
+        inTick = true;
+        try {
+            long period = periodNanos;
+            long lateness = now - deadline;
+            stats.recordTick(lateness);
+
+            if (lateness >= period) {
+                int missed = (int) Math.min(Integer.MAX_VALUE, lateness / period);
+                stats.recordLate();
+                int dropped = policy == LateFramePolicy.DROP ? missed : Math.max(0, missed - maxCatchUp);
+                if (dropped > 0) {
+                    stats.recordDropped(dropped);
+                    deadline += dropped * period;
+                    if (running) runSafely(dropped);
+                }
+            }
+
+            if (running) runSafely(0);
+            deadline += period;
+        } finally {
+            inTick = false;
+            Thread waiter = stopWaiter;
+            if (waiter != null) LockSupport.unpark(waiter);
+        }
+    }
+
+    private void runSafely(int dropped) {
+        try {
+            if (dropped > 0) {
+                task.onDroppedTicks(dropped);
+            } else {
+                task.onTick();
+            }
+        } catch (Exception e) {
+            System.err.println("[Pacer] Tick error: " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,142 @@
+package com.github.imagineforgee.selfbotlib.media;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounded single-producer/single-consumer queue of fixed-size frame slots carved out of one
+ * direct buffer. The producer claims a slot, writes the frame into it and publishes; the
+ * consumer peeks at the oldest frame, uses it in place and releases it. Nothing is
+ * allocated after construction.
+ * <p>
+ * With {@link OverflowPolicy#DROP_OLDEST} the producer may take the consumer's oldest slot
+ * while it is being read; {@link #release()} then returns false and the consumer must
+ * discard whatever it built from that frame.
+ */
+public class FrameRing {
+    private final int capacity;
+    private final int mask;
+    private final int slotSize;
+    private final ByteBuffer[] producerSlots;
+    private final ByteBuffer[] consumerSlots;
+    private final int[] lengths;
+    private volatile OverflowPolicy policy;
+
+    private final AtomicLong head = new AtomicLong();
+    private final AtomicLong tail = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    // Consumer-only: head at the last peek
+    private long peeked = -1;
+
+    /**
+     * @param capacity number of slots, rounded up to a power of two
+     * @param slotSize largest frame in bytes
+     */
+    public FrameRing(int capacity, int slotSize, OverflowPolicy policy) {
+        if (capacity < 1 || slotSize < 1) {
+            throw new IllegalArgumentException("capacity and slotSize must be positive");
+        }
+        int slots = 1;
+        while (slots < capacity) slots <<= 1;
+        this.capacity = slots;
+        this.mask = this.capacity - 1;
+        this.slotSize = slotSize;
+        this.policy = policy;
+        this.producerSlots = new ByteBuffer[this.capacity];
+        this.consumerSlots = new ByteBuffer[this.capacity];
+        this.lengths = new int[this.capacity];
+
+        ByteBuffer storage = ByteBuffer.allocateDirect(this.capacity * slotSize);
+        for (int i = 0; i < this.capacity; i++) {
+            producerSlots[i] = storage.slice(i * slotSize, slotSize);
+            consumerSlots[i] = storage.slice(i * slotSize, slotSize);
+        }
+    }
+
+    public void setOverflowPolicy(OverflowPolicy policy) {
+        this.policy = policy;
+    }
+
+    /**
+     * Producer side: returns the next free slot, cleared, or null if the ring is full and the
+     * policy is {@link OverflowPolicy#DROP_NEWEST}. The slot is the producer's until
+     * {@link #publish(int)}; claiming again without publishing returns the same slot.
+     */
+    public ByteBuffer claim() {
+        long t = tail.get();
+        long h = head.get();
+        if (t - h >= capacity) {
+            if (policy == OverflowPolicy.DROP_NEWEST) {
+                dropped.incrementAndGet();
+                return null;
+            }
+            // A failed CAS means the consumer just made room
+            if (head.compareAndSet(h, h + 1)) {
+                dropped.incrementAndGet();
+            }
+        }
+        return producerSlots[(int) (t & mask)].clear();
+    }
+
+    /** Producer side: makes the claimed slot's first {@code length} bytes visible to the consumer. */
+    public void publish(int length) {
+        long t = tail.get();
+        lengths[(int) (t & mask)] = length;
+        tail.lazySet(t + 1);
+    }
+
+    /**
+     * Consumer side: the oldest frame, positioned at 0 and limited to its length, or null if
+     * the ring is empty.
+     */
+    public ByteBuffer peek() {
+        long h = head.get();
+        if (h >= tail.get()) return null;
+        peeked = h;
+        int slot = (int) (h & mask);
+        return consumerSlots[slot].limit(lengths[slot]).position(0);
+    }
+
+    /**
+     * Consumer side: frees the frame returned by {@link #peek()}.
+     * @return false if the producer dropped that frame while it was being read
+     */
+    public boolean release() {
+        long h = peeked;
+        peeked = -1;
+        // Fails only if the producer dropped the frame, moving head past it
+        return h >= 0 && head.compareAndSet(h, h + 1);
+    }
+
+    /** Frames waiting to be consumed. */
+    public int size() {
+        return (int) Math.max(0, Math.min(capacity, tail.get() - head.get()));
+    }
+
+    /** Fill level between 0 and 1. */
+    public double getFillLevel() {
+        return (double) size() / capacity;
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public int getSlotSize() {
+        return slotSize;
+    }
+
+    /** Frames lost to the overflow policy since creation. */
+    public long getDroppedFrames() {
+        return dropped.get();
+    }
+
+    /** Discards all queued frames. Consumer side, or while the producer is idle. */
+    public void clear() {
+        long t = tail.get();
+        long h;
+        while ((h = head.get()) < t && !head.compareAndSet(h, t)) {
+            Thread.onSpinWait();
+        }
+    }
+}
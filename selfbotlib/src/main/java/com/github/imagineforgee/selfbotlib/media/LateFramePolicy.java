@@ -0,0 +1,11 @@
+package com.github.imagineforgee.selfbotlib.media;
+
+/**
+ * What a pacer does with ticks whose deadline already passed by a full period or more.
+ */
+public enum LateFramePolicy {
+    /** Run the missed ticks back-to-back, up to the pacer's catch-up limit, then drop the rest. */
+    CATCH_UP,
+    /** Skip the missed ticks so the next send lands on the original cadence. */
+    DROP
+}
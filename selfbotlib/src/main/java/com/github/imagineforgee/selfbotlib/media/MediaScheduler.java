@@ -0,0 +1,203 @@
+package com.github.imagineforgee.selfbotlib.media;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Drives every {@link FramePacer} from a fixed set of high-priority threads. Each thread owns a
+ * hashed timing wheel of 1 ms slots; pacers due in the same slot are fired back-to-back as one
+ * batch, so thread count stays constant no matter how many streams are active.
+ */
+public class MediaScheduler {
+    private static final long TICK_NANOS = 1_000_000;
+    private static final int WHEEL_SIZE = 64;
+    private static final int WHEEL_MASK = WHEEL_SIZE - 1;
+    // Park until this close to a deadline, then spin the rest to dodge timer slack
+    private static final long SPIN_NANOS = 100_000;
+
+    private static volatile MediaScheduler shared;
+
+    private final Worker[] workers;
+
+    public MediaScheduler(String name, int threads) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("threads must be >= 1");
+        }
+        workers = new Worker[threads];
+        for (int i = 0; i < threads; i++) {
+            workers[i] = new Worker(name + "-" + i);
+            workers[i].thread.start();
+        }
+    }
+
+    /**
+     * The process-wide scheduler used by the voice and video streamers: one thread per four
+     * cores, between one and four threads.
+     */
+    public static MediaScheduler shared() {
+        MediaScheduler scheduler = shared;
+        if (scheduler == null) {
+            synchronized (MediaScheduler.class) {
+                scheduler = shared;
+                if (scheduler == null) {
+                    int threads = Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors() / 4));
+                    scheduler = shared = new MediaScheduler("media-scheduler", threads);
+                }
+            }
+        }
+        return scheduler;
+    }
+
+    /** Number of pacers currently scheduled across all threads. */
+    public int getActiveCount() {
+        int count = 0;
+        for (Worker worker : workers) {
+            count += worker.active;
+        }
+        return count;
+    }
+
+    public int getThreadCount() {
+        return workers.length;
+    }
+
+    void schedule(FramePacer pacer) {
+        Worker target = workers[0];
+        for (Worker worker : workers) {
+            if (worker.active + worker.pending.size() < target.active + target.pending.size()) {
+                target = worker;
+            }
+        }
+        pacer.worker = target.thread;
+        target.pending.add(pacer);
+        LockSupport.unpark(target.thread);
+    }
+
+    private static final class Worker implements Runnable {
+        final Thread thread;
+        final ConcurrentLinkedQueue<FramePacer> pending = new ConcurrentLinkedQueue<>();
+        final FramePacer[] wheel = new FramePacer[WHEEL_SIZE];
+        volatile int active;
+        long cursor = Math.floorDiv(System.nanoTime(), TICK_NANOS);
+
+        Worker(String name) {
+            thread = new Thread(this, name);
+            thread.setDaemon(true);
+            thread.setPriority(Thread.MAX_PRIORITY);
+        }
+
+        @Override
+        public void run() {
+            while (true) {
+                drainPending();
+                if (active == 0) {
+                    LockSupport.park(this);
+                    cursor = Math.max(cursor, Math.floorDiv(System.nanoTime(), TICK_NANOS));
+                    continue;
+                }
+
+                long tick = nextOccupiedTick();
+                if (tick < 0) {
+                    awaitDeadline((cursor + WHEEL_SIZE) * TICK_NANOS);
+                    if (pending.isEmpty()) cursor += WHEEL_SIZE;
+                    continue;
+                }
+                cursor = tick;
+                if (!awaitDeadline(earliestDeadline(tick))) continue;
+
+                fireDue(tick);
+                if (earliestDeadline(tick) == Long.MAX_VALUE) {
+                    cursor = tick + 1;
+                }
+            }
+        }
+
+        private void drainPending() {
+            FramePacer pacer;
+            while ((pacer = pending.poll()) != null) {
+                if (pacer.isRunning()) {
+                    insert(pacer);
+                    active++;
+                }
+            }
+        }
+
+        private void insert(FramePacer pacer) {
+            long tick = Math.max(Math.floorDiv(pacer.deadline, TICK_NANOS), cursor);
+            int slot = (int) (tick & WHEEL_MASK);
+            pacer.wheelTick = tick;
+            pacer.next = wheel[slot];
+            wheel[slot] = pacer;
+        }
+
+        /** First tick within one rotation whose slot holds a pacer due on that tick, or -1. */
+        private long nextOccupiedTick() {
+            for (long tick = cursor; tick < cursor + WHEEL_SIZE; tick++) {
+                for (FramePacer p = wheel[(int) (tick & WHEEL_MASK)]; p != null; p = p.next) {
+                    if (p.wheelTick == tick) return tick;
+                }
+            }
+            return -1;
+        }
+
+        private long earliestDeadline(long tick) {
+            long earliest = Long.MAX_VALUE;
+            for (FramePacer p = wheel[(int) (tick & WHEEL_MASK)]; p != null; p = p.next) {
+                if (p.wheelTick == tick && p.deadline < earliest) earliest = p.deadline;
+            }
+            return earliest;
+        }
+
+        /** Unlinks every pacer due on {@code tick}, fires them as one batch and reinserts the ones still running. */
+        private void fireDue(long tick) {
+            int slot = (int) (tick & WHEEL_MASK);
+            long now = System.nanoTime();
+            FramePacer due = null;
+            FramePacer prev = null;
+            for (FramePacer p = wheel[slot]; p != null; ) {
+                FramePacer next = p.next;
+                boolean remove = !p.isRunning() || (p.wheelTick == tick && p.deadline - now <= 0);
+                if (remove) {
+                    if (prev == null) wheel[slot] = next; else prev.next = next;
+                    if (p.isRunning()) {
+                        p.next = due;
+                        due = p;
+                    } else {
+                        p.next = null;
+                        active--;
+                    }
+                } else {
+                    prev = p;
+                }
+                p = next;
+            }
+
+            while (due != null) {
+                FramePacer p = due;
+                due = p.next;
+                p.next = null;
+                p.fire(System.nanoTime());
+                if (p.isRunning()) {
+                    insert(p);
+                } else {
+                    active--;
+                }
+            }
+        }
+
+        /**
+         * Waits for {@code deadline}; returns false early if new pacers were scheduled.
+         */
+        private boolean awaitDeadline(long deadline) {
+            long remaining;
+            while ((remaining = deadline - System.nanoTime()) > SPIN_NANOS) {
+                if (!pending.isEmpty()) return false;
+                LockSupport.parkNanos(this, remaining - SPIN_NANOS);
+            }
+            while (deadline - System.nanoTime() > 0) {
+                Thread.onSpinWait();
+            }
+            return true;
+        }
+    }
+}
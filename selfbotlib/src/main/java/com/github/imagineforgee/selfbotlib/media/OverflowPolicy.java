@@ -0,0 +1,11 @@
+package com.github.imagineforgee.selfbotlib.media;
+
+/**
+ * What a full {@link FrameRing} does with a new frame.
+ */
+public enum OverflowPolicy {
+    /** Overwrite the oldest unsent frame, keeping latency at the ring's capacity. */
+    DROP_OLDEST,
+    /** Refuse the new frame and keep what is queued. */
+    DROP_NEWEST
+}
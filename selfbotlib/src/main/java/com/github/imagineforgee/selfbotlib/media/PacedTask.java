@@ -0,0 +1,13 @@
+package com.github.imagineforgee.selfbotlib.media;
+
+public interface PacedTask {
+    /**
+     * Called once for every tick that is sent.
+     */
+    void onTick();
+
+    /**
+     * Called when the pacer gives up on {@code count} ticks instead of running them.
+     */
+    default void onDroppedTicks(int count) {}
+}
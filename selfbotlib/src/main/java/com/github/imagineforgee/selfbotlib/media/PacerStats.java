@@ -0,0 +1,82 @@
+package com.github.imagineforgee.selfbotlib.media;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Wake-up jitter and late-tick counters for a pacer. Written by the pacer thread only,
+ * readable from anywhere.
+ */
+public class PacerStats {
+    /** Upper bounds (exclusive) of the jitter histogram buckets in microseconds; the last bucket is open. */
+    public static final long[] BUCKET_BOUNDS_MICROS = {50, 100, 250, 500, 1_000, 2_000, 5_000, 10_000, 20_000};
+
+    private final AtomicLongArray histogram = new AtomicLongArray(BUCKET_BOUNDS_MICROS.length + 1);
+    private final AtomicLong ticks = new AtomicLong();
+    private final AtomicLong lateTicks = new AtomicLong();
+    private final AtomicLong droppedTicks = new AtomicLong();
+    private final AtomicLong maxJitterNanos = new AtomicLong();
+
+    void recordTick(long latenessNanos) {
+        long micros = latenessNanos / 1_000;
+        int bucket = 0;
+        while (bucket < BUCKET_BOUNDS_MICROS.length && micros >= BUCKET_BOUNDS_MICROS[bucket]) {
+            bucket++;
+        }
+        histogram.lazySet(bucket, histogram.get(bucket) + 1);
+        ticks.lazySet(ticks.get() + 1);
+        if (latenessNanos > maxJitterNanos.get()) {
+            maxJitterNanos.lazySet(latenessNanos);
+        }
+    }
+
+    void recordLate() {
+        lateTicks.lazySet(lateTicks.get() + 1);
+    }
+
+    void recordDropped(int count) {
+        droppedTicks.lazySet(droppedTicks.get() + count);
+    }
+
+    public long[] getJitterHistogram() {
+        long[] snapshot = new long[histogram.length()];
+        for (int i = 0; i < snapshot.length; i++) {
+            snapshot[i] = histogram.get(i);
+        }
+        return snapshot;
+    }
+
+    public long getTicks() {
+        return ticks.get();
+    }
+
+    /** Ticks that ran a full period or more after their deadline. */
+    public long getLateTicks() {
+        return lateTicks.get();
+    }
+
+    /** Ticks skipped instead of sent, either by {@link LateFramePolicy#DROP} or past the catch-up limit. */
+    public long getDroppedTicks() {
+        return droppedTicks.get();
+    }
+
+    public long getMaxJitterNanos() {
+        return maxJitterNanos.get();
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder("PacerStats{ticks=").append(getTicks())
+                .append(", late=").append(getLateTicks())
+                .append(", dropped=").append(getDroppedTicks())
+                .append(", maxJitterUs=").append(getMaxJitterNanos() / 1_000)
+                .append(", jitterUs=[");
+        long[] snapshot = getJitterHistogram();
+        for (int i = 0; i < snapshot.length; i++) {
+            if (i > 0) sb.append(", ");
+            sb.append(i < BUCKET_BOUNDS_MICROS.length ? "<" + BUCKET_BOUNDS_MICROS[i] : ">=" + BUCKET_BOUNDS_MICROS[i - 1])
+                    .append(':').append(snapshot[i]);
+        }
+        return sb.append("]}").toString();
+    }
+}
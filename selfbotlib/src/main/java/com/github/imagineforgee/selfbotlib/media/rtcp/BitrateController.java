@@ -0,0 +1,72 @@
+package com.github.imagineforgee.selfbotlib.media.rtcp;
+
+/**
+ * Loss-based send rate control in the style of GCC's loss controller: under 2% loss the target
+ * creeps up 5% plus 1 kbps per report, between 2% and 10% it holds, and above 10% it is cut in
+ * proportion to the loss. Also keeps a smoothed loss figure for sizing forward error correction.
+ * Thread-safe; fed from the RTCP thread and read from anywhere.
+ */
+public class BitrateController {
+    private static final double INCREASE_BELOW = 0.02;
+    private static final double DECREASE_ABOVE = 0.10;
+    private static final double INCREASE_FACTOR = 1.05;
+    // Added on each increase, as WebRTC does, so a low target recovers in a few reports rather than dozens
+    private static final int INCREASE_STEP = 1000;
+    private static final double LOSS_SMOOTHING = 0.3;
+    // Changes smaller than this are not worth reconfiguring an encoder for
+    private static final double SIGNIFICANT_CHANGE = 0.05;
+
+    private final int minBitrate;
+    private final int maxBitrate;
+    private double target;
+    private int applied;
+    private double smoothedLoss;
+
+    public BitrateController(int minBitrate, int maxBitrate, int startBitrate) {
+        if (minBitrate <= 0 || maxBitrate < minBitrate) {
+            throw new IllegalArgumentException("Invalid bitrate range " + minBitrate + ".." + maxBitrate);
+        }
+        this.minBitrate = minBitrate;
+        this.maxBitrate = maxBitrate;
+        this.target = Math.max(minBitrate, Math.min(maxBitrate, startBitrate));
+        this.applied = (int) target;
+    }
+
+    /**
+     * Feeds one receiver report's fraction lost (in 1/256 units).
+     * @return true if the target moved far enough from the last returned one to be applied
+     */
+    public synchronized boolean onReport(int fractionLost) {
+        double loss = fractionLost / 256.0;
+        smoothedLoss += (loss - smoothedLoss) * LOSS_SMOOTHING;
+
+        if (loss < INCREASE_BELOW) {
+            target = target * INCREASE_FACTOR + INCREASE_STEP;
+        } else if (loss > DECREASE_ABOVE) {
+            target = target * (1 - 0.5 * loss);
+        }
+        target = Math.max(minBitrate, Math.min(maxBitrate, target));
+
+        int next = (int) target;
+        boolean atBound = next != applied && (next == minBitrate || next == maxBitrate);
+        if (atBound || Math.abs(next - applied) >= applied * SIGNIFICANT_CHANGE) {
+            applied = next;
+            return true;
+        }
+        return false;
+    }
+
+    /** The target as of the last time {@link #onReport} returned true. */
+    public synchronized int getTargetBitrate() {
+        return applied;
+    }
+
+    public int getMaxBitrate() {
+        return maxBitrate;
+    }
+
+    /** Exponentially smoothed loss fraction, 0 to 1. */
+    public synchronized double getSmoothedLoss() {
+        return smoothedLoss;
+    }
+}
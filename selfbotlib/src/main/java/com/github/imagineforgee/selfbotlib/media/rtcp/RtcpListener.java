@@ -0,0 +1,24 @@
+package com.github.imagineforgee.selfbotlib.media.rtcp;
+
+/**
+ * Feedback from the voice server about the streams we send. Called on the RTCP receive thread,
+ * once per report block or lost packet, so implementations should return quickly.
+ * SSRCs name the stream the feedback is about.
+ */
+public interface RtcpListener {
+    /**
+     * One reception report block from a sender or receiver report.
+     * @param fractionLost   packets lost since the previous report, in 1/256 units
+     * @param cumulativeLost packets lost since the stream started; may be negative with duplicates
+     * @param highestSequence extended highest RTP sequence number received
+     * @param jitter          interarrival jitter in RTP timestamp units
+     */
+    default void onReceiverReport(int ssrc, int fractionLost, int cumulativeLost,
+                                  long highestSequence, long jitter) {}
+
+    /** The receiver is missing the packet with RTP sequence number {@code sequence}. */
+    default void onNack(int ssrc, int sequence) {}
+
+    /** The receiver lost part of a picture and needs a keyframe to recover. */
+    default void onPictureLoss(int ssrc) {}
+}
@@ -0,0 +1,88 @@
+package com.github.imagineforgee.selfbotlib.media.rtcp;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Walks a compound RTCP packet and reports what it finds to an {@link RtcpListener}: report
+ * blocks from sender (200) and receiver (201) reports, generic NACKs (205, FMT 1) and picture
+ * loss indications (206, FMT 1). Anything else is skipped by its length field. Reads with
+ * absolute indexes and allocates nothing.
+ */
+public final class RtcpParser {
+    public static final int SENDER_REPORT = 200;
+    public static final int RECEIVER_REPORT = 201;
+    public static final int TRANSPORT_FEEDBACK = 205;
+    public static final int PAYLOAD_FEEDBACK = 206;
+
+    private static final int FMT_NACK = 1;
+    private static final int FMT_PLI = 1;
+    private static final int SENDER_INFO_LENGTH = 20;
+    private static final int REPORT_BLOCK_LENGTH = 24;
+
+    private RtcpParser() {}
+
+    /** True if a datagram starting with these two bytes is RTCP rather than RTP. */
+    public static boolean isRtcp(int firstByte, int secondByte) {
+        return (firstByte & 0xC0) == 0x80 && secondByte >= 192 && secondByte <= 223;
+    }
+
+    /**
+     * Parses the packets in {@code buf[offset, offset + length)}.
+     * @return number of RTCP packets walked; stops early at the first malformed header
+     */
+    public static int parse(ByteBuffer buf, int offset, int length, RtcpListener listener) {
+        int end = offset + length;
+        int packets = 0;
+        while (offset + 4 <= end) {
+            int first = buf.get(offset) & 0xFF;
+            if ((first & 0xC0) != 0x80) break;
+            int count = first & 0x1F;
+            int type = buf.get(offset + 1) & 0xFF;
+            int size = ((buf.getShort(offset + 2) & 0xFFFF) + 1) * 4;
+            if (offset + size > end) break;
+
+            switch (type) {
+                case SENDER_REPORT -> reportBlocks(buf, offset + 8 + SENDER_INFO_LENGTH, count, offset + size, listener);
+                case RECEIVER_REPORT -> reportBlocks(buf, offset + 8, count, offset + size, listener);
+                case TRANSPORT_FEEDBACK -> {
+                    if (count == FMT_NACK && size >= 12) nacks(buf, offset, size, listener);
+                }
+                case PAYLOAD_FEEDBACK -> {
+                    if (count == FMT_PLI && size >= 12) listener.onPictureLoss(buf.getInt(offset + 8));
+                }
+                default -> {}
+            }
+            offset += size;
+            packets++;
+        }
+        return packets;
+    }
+
+    private static void reportBlocks(ByteBuffer buf, int at, int count, int end, RtcpListener listener) {
+        for (int i = 0; i < count && at + REPORT_BLOCK_LENGTH <= end; i++, at += REPORT_BLOCK_LENGTH) {
+            int ssrc = buf.getInt(at);
+            int lossWord = buf.getInt(at + 4);
+            int fractionLost = lossWord >>> 24;
+            // 24-bit signed
+            int cumulativeLost = (lossWord << 8) >> 8;
+            long highest = buf.getInt(at + 8) & 0xFFFFFFFFL;
+            long jitter = buf.getInt(at + 12) & 0xFFFFFFFFL;
+            listener.onReceiverReport(ssrc, fractionLost, cumulativeLost, highest, jitter);
+        }
+    }
+
+    /** FCI entries are a packet ID and a bitmask of the 16 packets after it that are also lost. */
+    private static void nacks(ByteBuffer buf, int offset, int size, RtcpListener listener) {
+        int mediaSsrc = buf.getInt(offset + 8);
+        for (int at = offset + 12; at + 4 <= offset + size; at += 4) {
+            int pid = buf.getShort(at) & 0xFFFF;
+            int blp = buf.getShort(at + 2) & 0xFFFF;
+            listener.onNack(mediaSsrc, pid);
+            for (int bit = 0; bit < 16; bit++) {
+                if ((blp & (1 << bit)) != 0) {
+                    listener.onNack(mediaSsrc, (pid + bit + 1) & 0xFFFF);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,114 @@
+package com.github.imagineforgee.selfbotlib.media.rtcp;
+
+import com.github.imagineforgee.selfbotlib.media.transport.DatagramChannelTransport;
+import com.github.imagineforgee.selfbotlib.media.transport.MediaTransport;
+import com.github.imagineforgee.selfbotlib.media.transport.TransportPoller;
+import com.github.imagineforgee.selfbotlib.voice.VoiceCipher;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.time.Duration;
+
+/**
+ * Reads the voice UDP socket, decrypts RTCP packets and hands their feedback to a listener.
+ * RTP from other participants arrives on the same socket and is dropped.
+ * In the rtpsize modes only the first 8 bytes of an RTCP packet (header and sender SSRC) are
+ * in the clear; the rest is encrypted with the connection's cipher.
+ * <p>
+ * Given a {@link TransportPoller}, a {@link DatagramChannelTransport} is read by the poller's
+ * thread, shared with other connections, instead of a thread of its own.
+ */
+public class RtcpReceiver {
+    private static final int HEADER_LENGTH = 8;
+    private static final int BUFFER_SIZE = 2048;
+    private static final Duration POLL_TIMEOUT = Duration.ofMillis(500);
+
+    private final MediaTransport transport;
+    private final VoiceCipher cipher;
+    private final RtcpListener listener;
+    private final TransportPoller poller;
+    private volatile boolean running;
+    private Thread thread;
+    private Closeable registration;
+
+    private volatile long packetsReceived;
+    private volatile long rejected;
+
+    public RtcpReceiver(MediaTransport transport, VoiceCipher cipher, RtcpListener listener) {
+        this(transport, cipher, listener, null);
+    }
+
+    public RtcpReceiver(MediaTransport transport, VoiceCipher cipher, RtcpListener listener, TransportPoller poller) {
+        this.transport = transport;
+        this.cipher = cipher;
+        this.listener = listener;
+        this.poller = poller;
+    }
+
+    public synchronized void start() {
+        if (running) return;
+        running = true;
+        if (poller != null && transport instanceof DatagramChannelTransport channelTransport) {
+            registration = poller.register(channelTransport, this::handle);
+            return;
+        }
+        thread = new Thread(this::receiveLoop, "voice-rtcp");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    public synchronized void stop() {
+        running = false;
+        if (thread != null) {
+            thread.interrupt();
+            thread = null;
+        }
+        if (registration != null) {
+            try {
+                registration.close();
+            } catch (IOException ignored) {
+            }
+            registration = null;
+        }
+    }
+
+    /** RTCP packets that decrypted and were parsed. */
+    public long getPacketsReceived() {
+        return packetsReceived;
+    }
+
+    /** RTCP packets dropped for being truncated or failing authentication. */
+    public long getRejected() {
+        return rejected;
+    }
+
+    private void receiveLoop() {
+        ByteBuffer buf = ByteBuffer.allocateDirect(BUFFER_SIZE);
+        while (running && transport.isOpen()) {
+            try {
+                buf.clear();
+                if (!transport.receive(buf, POLL_TIMEOUT)) continue;
+                buf.flip();
+                handle(buf);
+            } catch (Exception e) {
+                if (!running || !transport.isOpen()) break;
+                System.err.println("[RTCP] Receive error: " + e.getMessage());
+            }
+        }
+    }
+
+    private void handle(ByteBuffer packet) {
+        if (packet.limit() < HEADER_LENGTH
+                || !RtcpParser.isRtcp(packet.get(0) & 0xFF, packet.get(1) & 0xFF)) {
+            return;
+        }
+        int length = cipher.open(packet, HEADER_LENGTH);
+        if (length < 0) {
+            rejected++;
+            return;
+        }
+        packetsReceived++;
+        RtcpParser.parse(packet, 0, HEADER_LENGTH + length, listener);
+    }
+}
@@ -0,0 +1,130 @@
+package com.github.imagineforgee.selfbotlib.media.transport;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.time.Duration;
+
+/**
+ * {@link MediaTransport} over a connected, non-blocking {@link DatagramChannel}. Connecting
+ * lets sends skip the per-packet address lookup, and direct buffers go to the kernel as-is.
+ */
+public class DatagramChannelTransport implements MediaTransport {
+    public static final int MAX_PACKET_SIZE = 1500;
+    private static final int POOL_SIZE = 256;
+
+    private final DatagramChannel channel;
+    private final InetSocketAddress remote;
+    private final DirectBufferPool pool;
+    private final LinuxDatagramBatch batch;
+    private Selector selector;
+
+    public DatagramChannelTransport(InetSocketAddress remote) throws IOException {
+        this(remote, new DirectBufferPool(MAX_PACKET_SIZE, POOL_SIZE));
+    }
+
+    /**
+     * @param pool packet buffers, which may be shared with other transports; they must hold at
+     *             least {@link #MAX_PACKET_SIZE} bytes
+     */
+    public DatagramChannelTransport(InetSocketAddress remote, DirectBufferPool pool) throws IOException {
+        if (pool.getBufferSize() < MAX_PACKET_SIZE) {
+            throw new IllegalArgumentException("Pool buffers too small: " + pool.getBufferSize());
+        }
+        this.remote = remote;
+        this.pool = pool;
+        this.channel = DatagramChannel.open();
+        try {
+            channel.configureBlocking(false);
+            channel.connect(remote);
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+        this.batch = LinuxDatagramBatch.tryCreate(channel);
+    }
+
+    @Override
+    public void send(ByteBuffer packet) throws IOException {
+        channel.write(packet);
+    }
+
+    /**
+     * Uses one {@code sendmmsg} per 64 packets where available, otherwise one write each.
+     * Stops early rather than blocking when the socket send buffer is full.
+     */
+    @Override
+    public synchronized int sendBatch(ByteBuffer[] packets, int offset, int count) throws IOException {
+        int sent = 0;
+        if (batch != null) {
+            while (sent < count) {
+                int n = batch.send(packets, offset + sent, count - sent);
+                if (n == 0) break;
+                sent += n;
+            }
+            return sent;
+        }
+        while (sent < count && channel.write(packets[offset + sent]) > 0) {
+            sent++;
+        }
+        return sent;
+    }
+
+    @Override
+    public boolean receive(ByteBuffer dst) throws IOException {
+        return channel.read(dst) > 0;
+    }
+
+    @Override
+    public synchronized boolean receive(ByteBuffer dst, Duration timeout) throws IOException {
+        if (receive(dst)) return true;
+        if (selector == null) {
+            selector = Selector.open();
+            channel.register(selector, SelectionKey.OP_READ);
+        }
+        long deadline = System.nanoTime() + timeout.toNanos();
+        long remaining;
+        while ((remaining = deadline - System.nanoTime()) > 0) {
+            selector.select(Math.max(1, remaining / 1_000_000));
+            selector.selectedKeys().clear();
+            if (receive(dst)) return true;
+        }
+        return false;
+    }
+
+    @Override
+    public DirectBufferPool bufferPool() {
+        return pool;
+    }
+
+    @Override
+    public InetSocketAddress remoteAddress() {
+        return remote;
+    }
+
+    /** The underlying channel, for native send paths that need its file descriptor. */
+    DatagramChannel channel() {
+        return channel;
+    }
+
+    @Override
+    public boolean isOpen() {
+        return channel.isOpen();
+    }
+
+    @Override
+    public synchronized void close() {
+        try {
+            if (selector != null) {
+                selector.close();
+                selector = null;
+            }
+            channel.close();
+        } catch (IOException e) {
+            System.err.println("[Transport] Close error: " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,121 @@
+package com.github.imagineforgee.selfbotlib.media.transport;
+
+import com.sun.jna.Memory;
+import com.sun.jna.Native;
+import com.sun.jna.Platform;
+import com.sun.jna.Pointer;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Sends many datagrams with one {@code sendmmsg(2)} call on 64-bit Linux. The channel's file
+ * descriptor is read through {@code sun.nio.ch.SelChImpl}, which needs
+ * {@code --add-exports java.base/sun.nio.ch=ALL-UNNAMED}; without it {@link #tryCreate}
+ * returns null and callers fall back to one write per packet. The build passes the flag to
+ * tests and benchmarks and puts it in the jar manifest; applications launched otherwise must
+ * pass it themselves.
+ */
+final class LinuxDatagramBatch {
+    static final int MAX_BATCH = 64;
+
+    // struct mmsghdr { struct msghdr msg_hdr; unsigned int msg_len; } on LP64
+    private static final int MMSGHDR_SIZE = 64;
+    private static final int MSG_IOV_OFFSET = 16;
+    private static final int MSG_IOVLEN_OFFSET = 24;
+    private static final int IOVEC_SIZE = 16;
+    private static final int EAGAIN = 11;
+    private static final int EINTR = 4;
+    private static final AtomicBoolean fallbackLogged = new AtomicBoolean();
+    // Direct-mapped by identity; packets come from a few long-lived buffers, so this almost always hits
+    private static final int ADDRESS_CACHE_SIZE = 256;
+
+    private final int fd;
+    private final Memory messages = new Memory((long) MMSGHDR_SIZE * MAX_BATCH);
+    private final Memory iovecs = new Memory((long) IOVEC_SIZE * MAX_BATCH);
+    private final ByteBuffer[] cachedBuffers = new ByteBuffer[ADDRESS_CACHE_SIZE];
+    private final long[] cachedAddresses = new long[ADDRESS_CACHE_SIZE];
+
+    private LinuxDatagramBatch(int fd) {
+        this.fd = fd;
+        messages.clear();
+        iovecs.clear();
+        long iovBase = Pointer.nativeValue(iovecs);
+        for (int i = 0; i < MAX_BATCH; i++) {
+            long msg = (long) i * MMSGHDR_SIZE;
+            messages.setLong(msg + MSG_IOV_OFFSET, iovBase + (long) i * IOVEC_SIZE);
+            messages.setLong(msg + MSG_IOVLEN_OFFSET, 1);
+        }
+    }
+
+    static LinuxDatagramBatch tryCreate(DatagramChannel channel) {
+        if (!Platform.isLinux() || !Platform.is64Bit()) return null;
+        try {
+            Object fdVal = Class.forName("sun.nio.ch.SelChImpl").getMethod("getFDVal").invoke(channel);
+            Libc.load();
+            return new LinuxDatagramBatch((Integer) fdVal);
+        } catch (Throwable t) {
+            if (fallbackLogged.compareAndSet(false, true)) {
+                System.out.println("[Transport] sendmmsg unavailable, using per-packet sends"
+                        + " (run with --add-exports java.base/sun.nio.ch=ALL-UNNAMED): " + t.getClass().getSimpleName());
+            }
+            return null;
+        }
+    }
+
+    /**
+     * Sends up to {@link #MAX_BATCH} packets starting at {@code offset}; every packet sent has
+     * its position moved to its limit, like a channel write.
+     * @return packets handed to the kernel, 0 if the socket buffer is full
+     */
+    int send(ByteBuffer[] packets, int offset, int count) throws IOException {
+        int n = Math.min(count, MAX_BATCH);
+        for (int i = 0; i < n; i++) {
+            ByteBuffer packet = packets[offset + i];
+            long iov = (long) i * IOVEC_SIZE;
+            iovecs.setLong(iov, address(packet) + packet.position());
+            iovecs.setLong(iov + 8, packet.remaining());
+        }
+
+        int sent;
+        do {
+            sent = Libc.sendmmsg(fd, messages, n, 0);
+        } while (sent < 0 && Native.getLastError() == EINTR);
+
+        if (sent < 0) {
+            int errno = Native.getLastError();
+            if (errno == EAGAIN) return 0;
+            throw new IOException("sendmmsg failed, errno " + errno);
+        }
+        for (int i = 0; i < sent; i++) {
+            ByteBuffer packet = packets[offset + i];
+            packet.position(packet.limit());
+        }
+        return sent;
+    }
+
+    /**
+     * Native address of a direct buffer. Looking it up through JNA allocates a {@link Pointer},
+     * so each buffer's address is looked up once and cached; a direct buffer never moves.
+     */
+    private long address(ByteBuffer buffer) {
+        int slot = System.identityHashCode(buffer) & (ADDRESS_CACHE_SIZE - 1);
+        if (cachedBuffers[slot] == buffer) return cachedAddresses[slot];
+        long address = Pointer.nativeValue(Native.getDirectBufferPointer(buffer));
+        cachedBuffers[slot] = buffer;
+        cachedAddresses[slot] = address;
+        return address;
+    }
+
+    private static final class Libc {
+        static {
+            Native.register(Libc.class, Platform.C_LIBRARY_NAME);
+        }
+
+        static void load() {}
+
+        static native int sendmmsg(int fd, Pointer msgvec, int vlen, int flags);
+    }
+}
@@ -0,0 +1,53 @@
+package com.github.imagineforgee.selfbotlib.media.transport;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.time.Duration;
+
+/**
+ * The UDP path to a voice server, shared by the audio and video streamers of one connection.
+ */
+public interface MediaTransport extends Closeable {
+    /**
+     * Sends the remaining bytes of {@code packet} as one datagram and advances its position.
+     */
+    void send(ByteBuffer packet) throws IOException;
+
+    /**
+     * Sends {@code packets[offset, offset + count)} as individual datagrams, in order.
+     * Implementations may hand the whole run to the kernel in one call.
+     * @return number of packets sent; fewer than {@code count} if the socket buffer filled up
+     */
+    default int sendBatch(ByteBuffer[] packets, int offset, int count) throws IOException {
+        for (int i = 0; i < count; i++) {
+            send(packets[offset + i]);
+        }
+        return count;
+    }
+
+    /**
+     * Reads one waiting datagram into {@code dst} without blocking.
+     * @return false if nothing was waiting
+     */
+    boolean receive(ByteBuffer dst) throws IOException;
+
+    /**
+     * Waits up to {@code timeout} for one datagram.
+     * @return false on timeout
+     */
+    boolean receive(ByteBuffer dst, Duration timeout) throws IOException;
+
+    /**
+     * Pool of direct buffers sized for one packet, for callers building packets to send.
+     */
+    DirectBufferPool bufferPool();
+
+    InetSocketAddress remoteAddress();
+
+    boolean isOpen();
+
+    @Override
+    void close();
+}
@@ -0,0 +1,108 @@
+package com.github.imagineforgee.selfbotlib.media.transport;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.CancelledKeyException;
+import java.nio.channels.DatagramChannel;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.function.Consumer;
+
+/**
+ * One thread and selector reading datagrams for any number of {@link DatagramChannelTransport}s,
+ * so inbound traffic costs no thread per connection. Handlers run on the poller thread and get
+ * a shared buffer, flipped to the datagram, that is only valid for the duration of the call.
+ */
+public class TransportPoller implements Closeable {
+    private static final int BUFFER_SIZE = 2048;
+
+    private final Selector selector;
+    private final Thread thread;
+    private final ConcurrentLinkedQueue<Runnable> pending = new ConcurrentLinkedQueue<>();
+    private volatile boolean running = true;
+
+    public TransportPoller(String name) throws IOException {
+        this.selector = Selector.open();
+        this.thread = new Thread(this::pollLoop, name);
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Starts delivering datagrams arriving on {@code transport} to {@code handler}. Nothing else
+     * should read the transport meanwhile.
+     * @return closing it stops delivery; closing the transport does too
+     */
+    public Closeable register(DatagramChannelTransport transport, Consumer<ByteBuffer> handler) {
+        SelectionKey[] key = new SelectionKey[1];
+        pending.add(() -> {
+            try {
+                key[0] = transport.channel().register(selector, SelectionKey.OP_READ, handler);
+            } catch (IOException e) {
+                System.err.println("[Poller] Cannot register transport: " + e.getMessage());
+            }
+        });
+        selector.wakeup();
+        return () -> {
+            pending.add(() -> {
+                if (key[0] != null) key[0].cancel();
+            });
+            selector.wakeup();
+        };
+    }
+
+    /** Number of transports currently registered. */
+    public int getRegisteredCount() {
+        return selector.keys().size();
+    }
+
+    @Override
+    public void close() {
+        running = false;
+        selector.wakeup();
+    }
+
+    @SuppressWarnings("unchecked")
+    private void pollLoop() {
+        ByteBuffer buf = ByteBuffer.allocateDirect(BUFFER_SIZE);
+        try {
+            while (running) {
+                selector.select();
+                Runnable task;
+                while ((task = pending.poll()) != null) {
+                    task.run();
+                }
+
+                Iterator<SelectionKey> it = selector.selectedKeys().iterator();
+                while (it.hasNext()) {
+                    SelectionKey key = it.next();
+                    it.remove();
+                    Consumer<ByteBuffer> handler = (Consumer<ByteBuffer>) key.attachment();
+                    try {
+                        // Drain everything queued on this socket before moving on
+                        while (key.isValid()) {
+                            buf.clear();
+                            if (((DatagramChannel) key.channel()).read(buf) <= 0) break;
+                            buf.flip();
+                            handler.accept(buf);
+                        }
+                    } catch (CancelledKeyException | IOException e) {
+                        key.cancel();
+                    } catch (Exception e) {
+                        System.err.println("[Poller] Handler error: " + e.getMessage());
+                    }
+                }
+            }
+        } catch (IOException e) {
+            System.err.println("[Poller] Selector failed: " + e.getMessage());
+        } finally {
+            try {
+                selector.close();
+            } catch (IOException ignored) {
+            }
+        }
+    }
+}
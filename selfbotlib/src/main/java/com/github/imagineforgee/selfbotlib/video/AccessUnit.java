@@ -0,0 +1,60 @@
+package com.github.imagineforgee.selfbotlib.video;
+
+/**
+ * The NAL units of one coded picture, as slices of a shared backing array. NAL units are
+ * stored without start codes; the array must not be modified while the unit is in use.
+ */
+public final class AccessUnit {
+    private final byte[] data;
+    private final int[] offsets;
+    private final int[] lengths;
+
+    public AccessUnit(byte[] data, int[] offsets, int[] lengths) {
+        if (offsets.length != lengths.length) {
+            throw new IllegalArgumentException("offsets and lengths differ in size");
+        }
+        this.data = data;
+        this.offsets = offsets;
+        this.lengths = lengths;
+    }
+
+    /** An access unit holding a single NAL unit that fills {@code nal}. */
+    public static AccessUnit of(byte[] nal) {
+        return new AccessUnit(nal, new int[]{0}, new int[]{nal.length});
+    }
+
+    public byte[] data() {
+        return data;
+    }
+
+    public int nalCount() {
+        return offsets.length;
+    }
+
+    public int nalOffset(int index) {
+        return offsets[index];
+    }
+
+    public int nalLength(int index) {
+        return lengths[index];
+    }
+
+    public int nalType(int index) {
+        return data[offsets[index]] & 0x1F;
+    }
+
+    /** True if the unit carries an IDR slice. */
+    public boolean isKeyFrame() {
+        for (int i = 0; i < offsets.length; i++) {
+            if (nalType(i) == 5) return true;
+        }
+        return false;
+    }
+
+    /** Total NAL payload bytes, start codes excluded. */
+    public int size() {
+        int size = 0;
+        for (int length : lengths) size += length;
+        return size;
+    }
+}
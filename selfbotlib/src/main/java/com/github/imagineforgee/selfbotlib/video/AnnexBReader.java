@@ -0,0 +1,148 @@
+package com.github.imagineforgee.selfbotlib.video;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+
+/**
+ * Splits an H.264 Annex-B byte stream into {@link AccessUnit}s. Input is read straight into
+ * append-only chunks and every byte is scanned once; emitted units slice the chunk they were
+ * read into, so NAL data is never copied except for the unfinished tail when a chunk fills.
+ * <p>
+ * A unit ends where the next one begins (an access unit delimiter, SPS, PPS or SEI after a
+ * slice, or a slice with first_mb_in_slice = 0), so each unit is emitted once the first NAL
+ * unit of the following one has arrived. Not thread-safe.
+ */
+public final class AnnexBReader {
+    private static final int CHUNK_SIZE = 256 * 1024;
+    private static final int MAX_NALS = 64;
+
+    private byte[] buf = new byte[CHUNK_SIZE];
+    private int limit;
+    private int scanPos;
+    // Payload start of the NAL unit being scanned, -1 before the first start code
+    private int nalStart = -1;
+
+    private int[] nalOffsets = new int[MAX_NALS];
+    private int[] nalLengths = new int[MAX_NALS];
+    private int nalCount;
+    private boolean hasSlice;
+    private boolean eof;
+
+    /**
+     * Reads from {@code in} until one access unit is complete.
+     * @return the unit, or null once the stream has ended and every unit was returned
+     */
+    public AccessUnit next(InputStream in) throws IOException {
+        while (true) {
+            AccessUnit unit = scan();
+            if (unit != null) return unit;
+            if (eof) return finish();
+
+            if (limit == buf.length) {
+                nextChunk();
+            }
+            int read = in.read(buf, limit, buf.length - limit);
+            if (read < 0) {
+                eof = true;
+            } else {
+                limit += read;
+            }
+        }
+    }
+
+    /** Scans new bytes for start codes; returns a unit when the next one begins. */
+    private AccessUnit scan() {
+        byte[] b = buf;
+        int i = scanPos;
+        // Need the start code, the NAL header and one more byte to place a boundary
+        int end = eof ? limit - 3 : limit - 4;
+        while (i < end) {
+            int third = b[i + 2];
+            if (third > 1 || third < 0) {
+                i += 3;
+            } else if (third == 1 && b[i + 1] == 0 && b[i] == 0) {
+                int header = i + 3;
+                AccessUnit unit = null;
+                if (nalStart >= 0) {
+                    int nalEnd = i;
+                    while (nalEnd > nalStart && b[nalEnd - 1] == 0) nalEnd--;
+                    addNal(nalStart, nalEnd - nalStart);
+                    byte next = header + 1 < limit ? b[header + 1] : 0;
+                    if (startsAccessUnit(b[header] & 0x1F, next)) {
+                        unit = takeUnit();
+                    }
+                }
+                nalStart = header;
+                i = header;
+                if (unit != null) {
+                    scanPos = i;
+                    return unit;
+                }
+            } else {
+                i++;
+            }
+        }
+        scanPos = i;
+        return null;
+    }
+
+    private boolean startsAccessUnit(int type, byte next) {
+        if (nalCount == 0) return false;
+        if (type == 9) return true;
+        if (!hasSlice) return false;
+        boolean slice = type == 1 || type == 5;
+        // first_mb_in_slice is ue(v); its first bit is set only when the value is 0
+        return (slice && (next & 0x80) != 0) || type == 6 || type == 7 || type == 8
+                || (type >= 14 && type <= 18);
+    }
+
+    private void addNal(int offset, int length) {
+        if (length <= 0) return;
+        if (nalCount == nalOffsets.length) {
+            nalOffsets = Arrays.copyOf(nalOffsets, nalCount * 2);
+            nalLengths = Arrays.copyOf(nalLengths, nalCount * 2);
+        }
+        int type = buf[offset] & 0x1F;
+        if (type == 1 || type == 5) hasSlice = true;
+        nalOffsets[nalCount] = offset;
+        nalLengths[nalCount] = length;
+        nalCount++;
+    }
+
+    private AccessUnit takeUnit() {
+        AccessUnit unit = new AccessUnit(buf,
+                Arrays.copyOf(nalOffsets, nalCount), Arrays.copyOf(nalLengths, nalCount));
+        nalCount = 0;
+        hasSlice = false;
+        return unit;
+    }
+
+    private AccessUnit finish() {
+        if (nalStart >= 0) {
+            int nalEnd = limit;
+            while (nalEnd > nalStart && buf[nalEnd - 1] == 0) nalEnd--;
+            addNal(nalStart, nalEnd - nalStart);
+            nalStart = -1;
+        }
+        return nalCount > 0 ? takeUnit() : null;
+    }
+
+    /**
+     * Moves the unfinished access unit into a fresh chunk. Earlier units keep the old chunk,
+     * which is never written again; the new one is at least twice the carried tail, so large
+     * IDR frames cost a linear number of copies and the size falls back once they pass.
+     */
+    private void nextChunk() {
+        int keepFrom = nalCount > 0 ? nalOffsets[0] : nalStart >= 0 ? nalStart : scanPos;
+        int tail = limit - keepFrom;
+        byte[] next = new byte[Math.max(CHUNK_SIZE, tail * 2)];
+        System.arraycopy(buf, keepFrom, next, 0, tail);
+
+        for (int i = 0; i < nalCount; i++) nalOffsets[i] -= keepFrom;
+        if (nalStart >= 0) nalStart -= keepFrom;
+        scanPos -= keepFrom;
+        limit = tail;
+        buf = next;
+    }
+}
@@ -0,0 +1,169 @@
+package com.github.imagineforgee.selfbotlib.video;
+
+import com.github.imagineforgee.selfbotlib.media.transport.DirectBufferPool;
+
+import java.nio.ByteBuffer;
+
+/**
+ * RFC 6184 packetization (non-interleaved mode) straight into pooled send buffers. Large NAL
+ * units are split into FU-A fragments read from the source array in place; small parameter
+ * sets, SEI and delimiters are gathered into one STAP-A packet. Not thread-safe.
+ */
+final class H264Packetizer {
+    static final int RTP_HEADER_LENGTH = 12;
+    static final int DEFAULT_MAX_PAYLOAD = 1200;
+
+    private static final int PAYLOAD_TYPE = 96;
+    private static final int STAP_A = 24;
+    private static final int FU_A = 28;
+
+    private final int ssrc;
+    private final DirectBufferPool pool;
+    private final int maxPayload;
+    private int sequence;
+    private int dropped;
+
+    // STAP-A being filled, emitted once a NAL that can't join it arrives
+    private ByteBuffer stap;
+    private int stapCount;
+    private int stapNri;
+    private int stapTimestamp;
+
+    H264Packetizer(int ssrc, DirectBufferPool pool, int maxPayload) {
+        if (RTP_HEADER_LENGTH + maxPayload > pool.getBufferSize()) {
+            throw new IllegalArgumentException("maxPayload " + maxPayload + " does not fit pool buffers");
+        }
+        this.ssrc = ssrc;
+        this.pool = pool;
+        this.maxPayload = maxPayload;
+    }
+
+    /**
+     * Packetizes {@code src[off, off + len)} and stores finished packets in {@code out} from
+     * index {@code count}. Packets come back flipped, RTP header at position 0.
+     * @return the new packet count of {@code out}
+     */
+    int packetize(byte[] src, int off, int len, int timestamp, ByteBuffer[] out, int count) {
+        if (len <= 0) return count;
+        int type = src[off] & 0x1F;
+
+        if (isAggregatable(type) && len + 3 <= maxPayload) {
+            if (stap != null && (stapTimestamp != timestamp
+                    || stap.position() + 2 + len > RTP_HEADER_LENGTH + maxPayload)) {
+                count = flush(out, count);
+            }
+            if (stap == null) {
+                stap = pool.acquire();
+                writeHeader(stap, timestamp);
+                stap.put((byte) 0);
+                stapCount = 0;
+                stapNri = 0;
+                stapTimestamp = timestamp;
+            }
+            stap.putShort((short) len);
+            stap.put(src, off, len);
+            stapNri = Math.max(stapNri, src[off] & 0x60);
+            stapCount++;
+            return count;
+        }
+
+        count = flush(out, count);
+        if (len <= maxPayload) {
+            ByteBuffer packet = pool.acquire();
+            writeHeader(packet, timestamp);
+            packet.put(src, off, len);
+            return emit(packet, out, count);
+        }
+
+        int fuIndicator = (src[off] & 0x60) | FU_A;
+        int end = off + len;
+        int pos = off + 1;
+        while (pos < end) {
+            int size = Math.min(maxPayload - 2, end - pos);
+            int fuHeader = type;
+            if (pos == off + 1) fuHeader |= 0x80;
+            if (pos + size == end) fuHeader |= 0x40;
+
+            ByteBuffer packet = pool.acquire();
+            writeHeader(packet, timestamp);
+            packet.put((byte) fuIndicator);
+            packet.put((byte) fuHeader);
+            packet.put(src, pos, size);
+            count = emit(packet, out, count);
+            pos += size;
+        }
+        return count;
+    }
+
+    /**
+     * Emits the pending STAP-A, if any. A STAP-A holding a single NAL unit goes out as a plain
+     * single-NAL packet instead.
+     */
+    int flush(ByteBuffer[] out, int count) {
+        ByteBuffer packet = stap;
+        if (packet == null) return count;
+        stap = null;
+
+        if (stapCount == 1) {
+            // Drop the STAP-A byte and the size field: shift the NAL down three bytes
+            int end = packet.position();
+            for (int i = RTP_HEADER_LENGTH + 3; i < end; i++) {
+                packet.put(i - 3, packet.get(i));
+            }
+            packet.position(end - 3);
+        } else {
+            packet.put(RTP_HEADER_LENGTH, (byte) (stapNri | STAP_A));
+        }
+        return emit(packet, out, count);
+    }
+
+    /**
+     * Flushes any pending STAP-A and sets the RTP marker bit on the last packet in
+     * {@code out[first, count)}, closing the access unit those packets belong to.
+     * @return the new packet count of {@code out}
+     */
+    int finishAccessUnit(ByteBuffer[] out, int first, int count) {
+        count = flush(out, count);
+        if (count > first) {
+            ByteBuffer last = out[count - 1];
+            last.put(1, (byte) (last.get(1) | 0x80));
+        }
+        return count;
+    }
+
+    /** Sequence number the next packet will carry. */
+    int getSequence() {
+        return sequence & 0xFFFF;
+    }
+
+    /** Packets dropped because the output array was full. */
+    int getDropped() {
+        return dropped;
+    }
+
+    private static boolean isAggregatable(int type) {
+        // SEI, SPS, PPS, access unit delimiter
+        return type == 6 || type == 7 || type == 8 || type == 9;
+    }
+
+    private void writeHeader(ByteBuffer packet, int timestamp) {
+        packet.clear();
+        packet.put((byte) 0x80);
+        packet.put((byte) PAYLOAD_TYPE);
+        packet.putShort((short) 0); // sequence, assigned on emit so STAP-A keeps stream order
+        packet.putInt(timestamp);
+        packet.putInt(ssrc);
+    }
+
+    private int emit(ByteBuffer packet, ByteBuffer[] out, int count) {
+        if (count == out.length) {
+            pool.release(packet);
+            dropped++;
+            return count;
+        }
+        packet.putShort(2, (short) sequence++);
+        packet.flip();
+        out[count] = packet;
+        return count + 1;
+    }
+}
@@ -0,0 +1,178 @@
+package com.github.imagineforgee.selfbotlib.video;
+
+/**
+ * The parts of an H.264 sequence parameter set the streamer needs: picture size and the VUI
+ * timing that gives the frame rate. Everything else is parsed only to be skipped.
+ */
+final class H264Sps {
+    final int width;
+    final int height;
+    final boolean timingInfoPresent;
+    final long numUnitsInTick;
+    final long timeScale;
+    final boolean fixedFrameRate;
+
+    private H264Sps(int width, int height, boolean timingInfoPresent,
+                    long numUnitsInTick, long timeScale, boolean fixedFrameRate) {
+        this.width = width;
+        this.height = height;
+        this.timingInfoPresent = timingInfoPresent;
+        this.numUnitsInTick = numUnitsInTick;
+        this.timeScale = timeScale;
+        this.fixedFrameRate = fixedFrameRate;
+    }
+
+    /**
+     * Parses the SPS NAL unit at {@code data[off, off + len)}, header byte included.
+     * @return null if the unit is not an SPS or is truncated
+     */
+    static H264Sps parse(byte[] data, int off, int len) {
+        if (len < 4 || (data[off] & 0x1F) != 7) return null;
+        BitReader r = new BitReader(data, off + 1, off + len);
+        try {
+            int profile = r.bits(8);
+            r.bits(16); // constraint flags, level
+            r.ue(); // seq_parameter_set_id
+
+            int chromaFormat = 1;
+            if (profile == 100 || profile == 110 || profile == 122 || profile == 244 || profile == 44
+                    || profile == 83 || profile == 86 || profile == 118 || profile == 128
+                    || profile == 138 || profile == 139 || profile == 134 || profile == 135) {
+                chromaFormat = r.ue();
+                if (chromaFormat == 3) r.bits(1);
+                r.ue(); // bit_depth_luma_minus8
+                r.ue(); // bit_depth_chroma_minus8
+                r.bits(1);
+                if (r.bits(1) == 1) {
+                    int lists = chromaFormat != 3 ? 8 : 12;
+                    for (int i = 0; i < lists; i++) {
+                        if (r.bits(1) == 1) skipScalingList(r, i < 6 ? 16 : 64);
+                    }
+                }
+            }
+
+            r.ue(); // log2_max_frame_num_minus4
+            int pocType = r.ue();
+            if (pocType == 0) {
+                r.ue();
+            } else if (pocType == 1) {
+                r.bits(1);
+                r.se();
+                r.se();
+                int cycle = r.ue();
+                for (int i = 0; i < cycle; i++) r.se();
+            }
+            r.ue(); // max_num_ref_frames
+            r.bits(1);
+            int widthMbs = r.ue() + 1;
+            int heightMapUnits = r.ue() + 1;
+            boolean frameMbsOnly = r.bits(1) == 1;
+            if (!frameMbsOnly) r.bits(1);
+            r.bits(1); // direct_8x8_inference_flag
+
+            int cropLeft = 0, cropRight = 0, cropTop = 0, cropBottom = 0;
+            if (r.bits(1) == 1) {
+                cropLeft = r.ue();
+                cropRight = r.ue();
+                cropTop = r.ue();
+                cropBottom = r.ue();
+            }
+            int cropUnitX = chromaFormat == 1 || chromaFormat == 2 ? 2 : 1;
+            int cropUnitY = (chromaFormat == 1 ? 2 : 1) * (frameMbsOnly ? 1 : 2);
+            int width = widthMbs * 16 - cropUnitX * (cropLeft + cropRight);
+            int height = heightMapUnits * 16 * (frameMbsOnly ? 1 : 2) - cropUnitY * (cropTop + cropBottom);
+
+            boolean timing = false;
+            long unitsInTick = 0, timeScale = 0;
+            boolean fixed = false;
+            if (r.bits(1) == 1) {
+                if (r.bits(1) == 1 && r.bits(8) == 255) r.bits32(); // extended SAR
+                if (r.bits(1) == 1) r.bits(1); // overscan
+                if (r.bits(1) == 1) {
+                    r.bits(4);
+                    if (r.bits(1) == 1) r.bits(24); // colour description
+                }
+                if (r.bits(1) == 1) {
+                    r.ue();
+                    r.ue();
+                }
+                if (r.bits(1) == 1) {
+                    unitsInTick = r.bits32();
+                    timeScale = r.bits32();
+                    fixed = r.bits(1) == 1;
+                    timing = unitsInTick > 0 && timeScale > 0;
+                }
+            }
+            return new H264Sps(width, height, timing, unitsInTick, timeScale, fixed);
+        } catch (IndexOutOfBoundsException e) {
+            return null;
+        }
+    }
+
+    private static void skipScalingList(BitReader r, int size) {
+        int last = 8, next = 8;
+        for (int i = 0; i < size && next != 0; i++) {
+            next = (last + r.se() + 256) % 256;
+            if (next != 0) last = next;
+        }
+    }
+
+    /** Reads RBSP bits, skipping emulation prevention bytes. */
+    private static final class BitReader {
+        private final byte[] data;
+        private final int end;
+        private int pos;
+        private int bit;
+        private int zeros;
+
+        BitReader(byte[] data, int off, int end) {
+            this.data = data;
+            this.end = end;
+            this.pos = off;
+        }
+
+        int bits(int n) {
+            int v = 0;
+            for (int i = 0; i < n; i++) {
+                v = (v << 1) | bit();
+            }
+            return v;
+        }
+
+        long bits32() {
+            return ((long) bits(16) << 16) | bits(16);
+        }
+
+        int ue() {
+            int leadingZeros = 0;
+            while (bit() == 0) {
+                if (++leadingZeros > 31) throw new IndexOutOfBoundsException("bad exp-Golomb code");
+            }
+            return (int) ((1L << leadingZeros) - 1 + (bits(leadingZeros) & 0xFFFFFFFFL));
+        }
+
+        int se() {
+            int v = ue();
+            return (v & 1) == 1 ? (v + 1) / 2 : -(v / 2);
+        }
+
+        private int bit() {
+            if (bit == 0) {
+                if (pos >= end) throw new IndexOutOfBoundsException("SPS truncated");
+                // 0x000003 -> drop the 03
+                if (zeros >= 2 && data[pos] == 3) {
+                    pos++;
+                    zeros = 0;
+                    if (pos >= end) throw new IndexOutOfBoundsException("SPS truncated");
+                }
+                zeros = data[pos] == 0 ? zeros + 1 : 0;
+            }
+            int v = (data[pos] >> (7 - bit)) & 1;
+            if (++bit == 8) {
+                bit = 0;
+                pos++;
+            }
+            return v;
+        }
+    }
+}
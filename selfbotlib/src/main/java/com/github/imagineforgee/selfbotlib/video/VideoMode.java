@@ -10,4 +10,7 @@ public interface VideoMode {
     void joinChannel(String guildId, String channelId);
     void shutdown();
     boolean isActive();
+
+    /** Encoder bitrate to aim for, set by congestion control; modes that can't adapt ignore it. */
+    default void setTargetBitrate(int kbps) {}
 }
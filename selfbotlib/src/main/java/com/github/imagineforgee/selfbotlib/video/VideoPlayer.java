@@ -1,6 +1,8 @@
 package com.github.imagineforgee.selfbotlib.video;
 
 import com.github.imagineforgee.selfbotlib.client.VoiceClient;
+import com.github.imagineforgee.selfbotlib.media.rtcp.BitrateController;
+import com.github.imagineforgee.selfbotlib.media.rtcp.RtcpListener;
 import org.jetbrains.annotations.NotNull;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Sinks;
@@ -10,48 +12,99 @@ import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.URISyntaxException;
+import java.util.Locale;
 import java.util.concurrent.atomic.AtomicBoolean;
 
+/**
+ * Streams a file through ffmpeg's x264. The encoder bitrate follows receiver reports for the
+ * streamer's SSRC; since the ffmpeg CLI can't be reconfigured while running, a large enough
+ * change restarts it at the current position.
+ */
 public class VideoPlayer implements VideoMode {
+    public static final int DEFAULT_BITRATE_KBPS = 2500;
+    private static final int MIN_BITRATE_KBPS = 300;
+    // Short GOP so a receiver that lost packets recovers at the next keyframe
+    private static final int KEYFRAME_INTERVAL_SECONDS = 2;
+    // Restarting costs a keyframe and a moment of startup; only do it for big changes, not too often
+    private static final double RESTART_CHANGE = 0.3;
+    private static final long RESTART_INTERVAL_NANOS = 15_000_000_000L;
+
     private final VideoStreamer streamer;
     private final VoiceClient voiceClient;
     private final AtomicBoolean active = new AtomicBoolean(false);
+    private final RtcpListener reportListener = new RtcpListener() {
+        @Override
+        public void onReceiverReport(int ssrc, int fractionLost, int cumulativeLost, long highestSequence, long jitter) {
+            if (ssrc == streamer.getSsrc() && rateController.onReport(fractionLost)) {
+                int kbps = rateController.getTargetBitrate() / 1000;
+                // Restarting ffmpeg blocks; keep it off the RTCP thread, which serves every connection
+                Schedulers.boundedElastic().schedule(() -> setTargetBitrate(kbps));
+            }
+        }
+    };
+    private final int maxBitrateKbps;
+    private final BitrateController rateController;
     private Process ffmpegProcess;
+    private String source;
+    private volatile int targetBitrateKbps;
+    private int runningBitrateKbps;
+    private double startOffsetSeconds;
+    private long startedAtNanos;
 
     public VideoPlayer(VoiceClient voiceClient, VideoStreamer streamer) {
+        this(voiceClient, streamer, DEFAULT_BITRATE_KBPS);
+    }
+
+    /**
+     * @param maxBitrateKbps the bitrate to start at and never exceed
+     */
+    public VideoPlayer(VoiceClient voiceClient, VideoStreamer streamer, int maxBitrateKbps) {
         this.voiceClient = voiceClient;
         this.streamer = streamer;
+        this.maxBitrateKbps = maxBitrateKbps;
+        this.targetBitrateKbps = maxBitrateKbps;
+        this.rateController = new BitrateController(Math.min(MIN_BITRATE_KBPS, maxBitrateKbps) * 1000,
+                maxBitrateKbps * 1000, maxBitrateKbps * 1000);
     }
 
     @Override
-    public void start(String videoPath) {
+    public synchronized void start(String videoPath) {
         if (active.get()) {
             System.err.println("[VideoPlayer] Video already playing.");
             return;
         }
 
+        if (launch(videoPath, 0, false)) {
+            source = videoPath;
+            voiceClient.addRtcpListener(streamer);
+            voiceClient.addRtcpListener(reportListener);
+            active.set(true);
+            System.out.println("[VideoPlayer] Video streaming started at " + runningBitrateKbps + " kbps.");
+        }
+    }
+
+    /**
+     * @param restart continue the running stream from the new process instead of starting a
+     *                new one, so receivers see no break in sequence numbers or timestamps
+     */
+    private boolean launch(String videoPath, double offsetSeconds, boolean restart) {
         try {
-            ProcessBuilder pb = getProcessBuilder(videoPath);
+            int bitrate = targetBitrateKbps;
+            ProcessBuilder pb = getProcessBuilder(videoPath, offsetSeconds, bitrate);
             ffmpegProcess = pb.start();
+            runningBitrateKbps = bitrate;
+            startOffsetSeconds = offsetSeconds;
+            startedAtNanos = System.nanoTime();
 
             InputStream ffmpegOut = ffmpegProcess.getInputStream();
-            Sinks.Many<byte[]> sink = Sinks.many().unicast().onBackpressureBuffer();
+            Sinks.Many<AccessUnit> sink = Sinks.many().unicast().onBackpressureBuffer();
 
-            Flux.<byte[]>create(emitter -> {
+            Flux.<AccessUnit>create(emitter -> {
                         try {
-                            byte[] buffer = new byte[4096];
-                            ByteArrayBuffer nalBuffer = new ByteArrayBuffer();
-                            int bytesRead;
-                            while ((bytesRead = ffmpegOut.read(buffer)) != -1) {
-                                nalBuffer.append(buffer, 0, bytesRead);
-
-                                int startIndex;
-                                while ((startIndex = nalBuffer.indexOfStartCode()) != -1) {
-                                    byte[] nal = nalBuffer.extractNal(startIndex);
-                                    if (nal != null && nal.length > 0) {
-                                        emitter.next(nal);
-                                    }
-                                }
+                            AnnexBReader reader = new AnnexBReader();
+                            AccessUnit unit;
+                            while ((unit = reader.next(ffmpegOut)) != null) {
+                                emitter.next(unit);
                             }
                             emitter.complete();
                         } catch (IOException e) {
@@ -61,19 +114,23 @@ public class VideoPlayer implements VideoMode {
                     .subscribeOn(Schedulers.boundedElastic())
                     .subscribe(sink::tryEmitNext);
 
-            streamer.start(sink.asFlux());
-
-            active.set(true);
-            System.out.println("[VideoPlayer] Video streaming started.");
+            if (restart) {
+                streamer.switchSource(sink.asFlux());
+            } else {
+                streamer.start(sink.asFlux());
+            }
+            return true;
         } catch (IOException e) {
             System.err.println("[VideoPlayer] Failed to start FFmpeg: " + e.getMessage());
+            return false;
         } catch (URISyntaxException e) {
             throw new RuntimeException(e);
         }
     }
 
     @NotNull
-    private static ProcessBuilder getProcessBuilder(String videoPath) throws URISyntaxException {
+    private static ProcessBuilder getProcessBuilder(String videoPath, double offsetSeconds, int bitrateKbps)
+            throws URISyntaxException {
         String jarDir = new File(VideoPlayer.class.getProtectionDomain()
                 .getCodeSource()
                 .getLocation()
@@ -82,6 +139,7 @@ public class VideoPlayer implements VideoMode {
 
         ProcessBuilder pb = new ProcessBuilder(
                 ffmpegPath, "-re",
+                "-ss", String.format(Locale.ROOT, "%.3f", offsetSeconds),
                 "-i", videoPath,
                 "-c:v", "libx264",
                 "-preset", "ultrafast",
@@ -89,14 +147,48 @@ public class VideoPlayer implements VideoMode {
                 "-profile:v", "baseline",
                 "-level", "4.2",
                 "-pix_fmt", "yuv420p",
+                "-b:v", bitrateKbps + "k",
+                "-maxrate", bitrateKbps + "k",
+                // Half a second of VBV keeps frame sizes, and so bursts, close to the average
+                "-bufsize", (bitrateKbps / 2) + "k",
+                "-force_key_frames", "expr:gte(t,n_forced*" + KEYFRAME_INTERVAL_SECONDS + ")",
                 "-f", "h264", "-"
         );
         pb.redirectErrorStream(true);
         return pb;
     }
 
+    /**
+     * Takes effect immediately if it differs from the running bitrate by enough and the last
+     * restart was long enough ago; otherwise at the next start or restart.
+     */
     @Override
-    public void stop() {
+    public synchronized void setTargetBitrate(int kbps) {
+        targetBitrateKbps = Math.max(MIN_BITRATE_KBPS, Math.min(maxBitrateKbps, kbps));
+        if (!active.get() || ffmpegProcess == null) return;
+        if (Math.abs(targetBitrateKbps - runningBitrateKbps) < runningBitrateKbps * RESTART_CHANGE) return;
+        long now = System.nanoTime();
+        if (now - startedAtNanos < RESTART_INTERVAL_NANOS) return;
+
+        double position = startOffsetSeconds + (now - startedAtNanos) / 1e9;
+        int previous = runningBitrateKbps;
+        ffmpegProcess.destroy();
+        if (launch(source, position, true)) {
+            System.out.printf("[VideoPlayer] Bitrate %d -> %d kbps at %.1fs%n", previous, runningBitrateKbps, position);
+        } else {
+            ffmpegProcess = null;
+            stop();
+        }
+    }
+
+    public int getTargetBitrate() {
+        return targetBitrateKbps;
+    }
+
+    @Override
+    public synchronized void stop() {
+        voiceClient.removeRtcpListener(streamer);
+        voiceClient.removeRtcpListener(reportListener);
         streamer.stop();
         if (ffmpegProcess != null) {
             ffmpegProcess.destroy();
@@ -125,53 +217,4 @@ public class VideoPlayer implements VideoMode {
     public boolean isActive() {
         return active.get();
     }
-
-    private static class ByteArrayBuffer {
-        private byte[] buf = new byte[8192];
-        private int len = 0;
-
-        void append(byte[] data, int off, int length) {
-            if (len + length > buf.length) {
-                byte[] newBuf = new byte[(len + length) * 2];
-                System.arraycopy(buf, 0, newBuf, 0, len);
-                buf = newBuf;
-            }
-            System.arraycopy(data, off, buf, len, length);
-            len += length;
-        }
-
-        int indexOfStartCode() {
-            for (int i = 0; i < len - 3; i++) {
-                if (buf[i] == 0x00 && buf[i+1] == 0x00) {
-                    if (buf[i+2] == 0x01) return i;
-                    if (i < len - 4 && buf[i+2] == 0x00 && buf[i+3] == 0x01) return i;
-                }
-            }
-            return -1;
-        }
-
-        byte[] extractNal(int startIndex) {
-            int scSize = (buf[startIndex+2] == 0x01) ? 3 : 4;
-            int nextStart = -1;
-            for (int i = startIndex + scSize; i < len - 3; i++) {
-                if (buf[i] == 0x00 && buf[i+1] == 0x00 &&
-                        (buf[i+2] == 0x01 || (buf[i+2] == 0x00 && buf[i+3] == 0x01))) {
-                    nextStart = i;
-                    break;
-                }
-            }
-
-            int nalLength = (nextStart == -1 ? len : nextStart) - (startIndex + scSize);
-            byte[] nal = new byte[nalLength];
-            System.arraycopy(buf, startIndex + scSize, nal, 0, nalLength);
-
-            if (nextStart != -1) {
-                System.arraycopy(buf, nextStart, buf, 0, len - nextStart);
-                len -= nextStart;
-            } else {
-                len = 0;
-            }
-            return nal;
-        }
-    }
 }
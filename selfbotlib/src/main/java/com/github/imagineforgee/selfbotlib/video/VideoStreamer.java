@@ -1,120 +1,348 @@
 package com.github.imagineforgee.selfbotlib.video;
 
-import reactor.core.Disposable;
+import com.github.imagineforgee.selfbotlib.media.FramePacer;
+import com.github.imagineforgee.selfbotlib.media.PacedTask;
+import com.github.imagineforgee.selfbotlib.media.PacerStats;
+import com.github.imagineforgee.selfbotlib.media.rtcp.RtcpListener;
+import com.github.imagineforgee.selfbotlib.media.transport.DirectBufferPool;
+import com.github.imagineforgee.selfbotlib.media.transport.MediaTransport;
+import com.github.imagineforgee.selfbotlib.voice.VoiceCipher;
+import org.reactivestreams.Subscription;
+import reactor.core.publisher.BaseSubscriber;
 import reactor.core.publisher.Flux;
-import reactor.core.scheduler.Scheduler;
 import reactor.core.scheduler.Schedulers;
 
-import java.net.DatagramPacket;
-import java.net.DatagramSocket;
-import java.net.InetAddress;
-import java.util.ArrayList;
+import java.nio.ByteBuffer;
+import java.time.Duration;
 import java.util.Arrays;
-import java.util.List;
-import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadLocalRandom;
 
-public class VideoStreamer {
-    private final DatagramSocket udp;
-    private final InetAddress address;
-    private final int port;
+/**
+ * Packetizes and paces an H.264 stream. As an {@link RtcpListener} for its own SSRC it resends
+ * packets the receiver NACKs from a short history of what was sent, and counts picture loss
+ * indications.
+ */
+public class VideoStreamer implements RtcpListener {
+    // Used until an SPS with VUI timing says otherwise
+    private static final int DEFAULT_FRAME_RATE = 30;
+    private static final int CLOCK_RATE = 90000;
+    // A frame's packets are spread over this many evenly spaced batches instead of one burst
+    private static final int SEND_SLICES = 4;
+    // Access units requested ahead of the pacer
+    private static final int QUEUE_CAPACITY = 16;
+    // Packets waiting for their slice; a keyframe at high bitrate is a few hundred
+    private static final int OUTGOING_CAPACITY = 1024;
+    // Sent packets kept for retransmission, indexed by sequence number; about a second at 4 Mbps
+    private static final int HISTORY_SIZE = 512;
+    private static final int HISTORY_PACKET_SIZE = 1500;
+
+    private final MediaTransport transport;
+    private final DirectBufferPool bufferPool;
     private final int ssrc;
-    private final byte[] secretKey;
-    private Disposable stream;
+    private final VoiceCipher cipher;
+    private final PacerStats pacerStats = new PacerStats();
+    private AccessUnitTask task;
+    private FramePacer pacer;
+
+    private final ByteBuffer history = ByteBuffer.allocateDirect(HISTORY_SIZE * HISTORY_PACKET_SIZE);
+    private final int[] historySequence = new int[HISTORY_SIZE];
+    private final int[] historyLength = new int[HISTORY_SIZE];
+    private volatile long retransmitted;
+    private volatile long nacksMissed;
+    private volatile long pictureLossCount;
 
-    public VideoStreamer(DatagramSocket udp, InetAddress address, int port, int ssrc, byte[] secretKey) {
-        this.udp = udp;
-        this.address = address;
-        this.port = port;
+    /**
+     * @param cipher the connection's cipher, shared with the audio streamer so both draw
+     *               nonces from the same counter
+     */
+    public VideoStreamer(MediaTransport transport, int ssrc, VoiceCipher cipher) {
+        this.transport = transport;
+        this.bufferPool = transport.bufferPool();
         this.ssrc = ssrc;
-        this.secretKey = secretKey;
+        this.cipher = cipher;
     }
 
-    public void start(Flux<byte[]> nalUnits) {
+    public synchronized void start(Flux<AccessUnit> accessUnits) {
         stop();
 
-        AtomicInteger seq = new AtomicInteger(0);
-        AtomicInteger ts = new AtomicInteger(0);
-        final int clockRate = 90000;
-
-        this.stream = nalUnits
-                .subscribeOn(Schedulers.boundedElastic())
-                .subscribe(nal -> {
-                    List<byte[]> rtpPackets = packetizeNal(nal, seq, ts, clockRate);
-                    for (byte[] packet : rtpPackets) {
-                        sendEncrypted(packet);
-                    }
-                    ts.addAndGet(clockRate / 30);
-                });
+        AccessUnitTask unitTask = new AccessUnitTask();
+        FramePacer framePacer = new FramePacer(sliceInterval(1, DEFAULT_FRAME_RATE), unitTask, pacerStats);
+        unitTask.pacer = framePacer;
+
+        unitTask.subscribe(accessUnits);
+        framePacer.start();
+
+        this.task = unitTask;
+        this.pacer = framePacer;
+    }
+
+    /**
+     * Continues the running stream from a new encoder, e.g. one restarted at another bitrate.
+     * Sequence numbers, timestamps and the retransmission history carry on, so receivers see
+     * one unbroken stream; access units still queued from the old source are dropped. Starts
+     * the stream if it isn't running.
+     */
+    public synchronized void switchSource(Flux<AccessUnit> accessUnits) {
+        if (task == null || pacer == null || !pacer.isRunning()) {
+            start(accessUnits);
+            return;
+        }
+        task.subscribe(accessUnits);
+    }
+
+    public PacerStats getPacerStats() {
+        return pacerStats;
     }
 
-    private List<byte[]> packetizeNal(byte[] nal, AtomicInteger seq, AtomicInteger ts, int clockRate) {
-        List<byte[]> packets = new ArrayList<>();
-        int mtu = 1200;
-
-        if (nal.length <= mtu) {
-            packets.add(createRtpPacket(nal, seq.getAndIncrement(), ts.get()));
-        } else {
-            int nalType = nal[0] & 0x1F;
-            int nri = nal[0] & 0x60;
-            int offset = 1;
-            boolean start = true;
-            while (offset < nal.length) {
-                int size = Math.min(mtu - 2, nal.length - offset);
-                byte fuIndicator = (byte)(nri | 28);
-                byte fuHeader = (byte)(nalType & 0x1F);
-                if (start) fuHeader |= 0x80;
-                if (offset + size >= nal.length) fuHeader |= 0x40;
-
-                byte[] fragment = new byte[size + 2];
-                fragment[0] = fuIndicator;
-                fragment[1] = fuHeader;
-                System.arraycopy(nal, offset, fragment, 2, size);
-                packets.add(createRtpPacket(fragment, seq.getAndIncrement(), ts.get()));
-                offset += size;
-                start = false;
+    public int getSsrc() {
+        return ssrc;
+    }
+
+    @Override
+    public void onNack(int mediaSsrc, int sequence) {
+        if (mediaSsrc != ssrc) return;
+        int slot = sequence & (HISTORY_SIZE - 1);
+        synchronized (history) {
+            int length = historyLength[slot];
+            if (length == 0 || historySequence[slot] != sequence) {
+                // Too old, or never sent
+                nacksMissed++;
+                return;
+            }
+            int at = slot * HISTORY_PACKET_SIZE;
+            history.limit(at + length).position(at);
+            try {
+                transport.send(history);
+                retransmitted++;
+            } catch (Exception e) {
+                System.err.println("[VideoStreamer] Retransmit error: " + e.getMessage());
             }
         }
-        return packets;
     }
 
-    private byte[] createRtpPacket(byte[] payload, int sequence, int timestamp) {
-        byte[] rtp = new byte[12 + payload.length];
-        rtp[0] = (byte)0x80;
-        rtp[1] = (byte)0x60; // PT=96
-        rtp[2] = (byte)(sequence >> 8);
-        rtp[3] = (byte)sequence;
-        rtp[4] = (byte)(timestamp >> 24);
-        rtp[5] = (byte)(timestamp >> 16);
-        rtp[6] = (byte)(timestamp >> 8);
-        rtp[7] = (byte)timestamp;
-        rtp[8] = (byte)(ssrc >> 24);
-        rtp[9] = (byte)(ssrc >> 16);
-        rtp[10] = (byte)(ssrc >> 8);
-        rtp[11] = (byte)ssrc;
-        System.arraycopy(payload, 0, rtp, 12, payload.length);
-        return rtp;
+    @Override
+    public void onPictureLoss(int mediaSsrc) {
+        // x264 behind the ffmpeg CLI can't be asked for an IDR; the encoder's keyframe interval bounds recovery
+        if (mediaSsrc == ssrc) pictureLossCount++;
+    }
+
+    /** Packets resent in answer to NACKs. */
+    public long getRetransmittedCount() {
+        return retransmitted;
+    }
+
+    /** NACKed packets that had already left the history. */
+    public long getUnrecoverableNackCount() {
+        return nacksMissed;
     }
 
-    private void sendEncrypted(byte[] rtp) {
-        try {
-            byte[] nonce = new byte[24];
-            System.arraycopy(rtp, 0, nonce, 0, 12);
-            byte[] encrypted = new byte[rtp.length - 12 + 16];
-            byte[] packet = new byte[12 + encrypted.length];
-            System.arraycopy(rtp, 0, packet, 0, 12);
-            System.arraycopy(encrypted, 0, packet, 12, encrypted.length);
+    public long getPictureLossCount() {
+        return pictureLossCount;
+    }
 
-            udp.send(new DatagramPacket(packet, packet.length, address, port));
-        } catch (Exception e) {
-            System.err.println("[VideoStreamer] Send error: " + e.getMessage());
+    /** Keeps a copy of a sealed packet so a NACK can be answered with the identical bytes. */
+    private void remember(ByteBuffer packet) {
+        int length = packet.limit();
+        if (length > HISTORY_PACKET_SIZE) return;
+        int sequence = packet.getShort(2) & 0xFFFF;
+        int slot = sequence & (HISTORY_SIZE - 1);
+        synchronized (history) {
+            history.put(slot * HISTORY_PACKET_SIZE, packet, 0, length);
+            historySequence[slot] = sequence;
+            historyLength[slot] = length;
         }
     }
 
-    public void stop() {
-        if (stream != null && !stream.isDisposed()) {
-            stream.dispose();
-            stream = null;
+    /** Pacer period for one send slice of a frame lasting {@code num / den} seconds. */
+    private static Duration sliceInterval(long num, long den) {
+        return Duration.ofNanos(num * 1_000_000_000L / (den * SEND_SLICES));
+    }
+
+    public synchronized void stop() {
+        if (pacer != null) {
+            pacer.stop();
+            pacer = null;
+        }
+        if (task != null) {
+            task.disposeSource();
+            task.releaseOutgoing();
+            task = null;
         }
     }
-}
 
+    /**
+     * Buffers access units from the encoder, packetizes one per frame interval and sends its
+     * packets in {@link #SEND_SLICES} batches across that interval. The packetizer and RTP
+     * clock live here, so they outlast any one {@link UnitSource}.
+     */
+    private final class AccessUnitTask implements PacedTask {
+        private final ArrayBlockingQueue<AccessUnit> queue = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+        private final H264Packetizer packetizer =
+                new H264Packetizer(ssrc, bufferPool, H264Packetizer.DEFAULT_MAX_PAYLOAD);
+        // RTP time is tsBase plus frames frame durations of frameNum / frameDen seconds
+        private final int tsBase = ThreadLocalRandom.current().nextInt();
+        private long tsOffset;
+        private long frames;
+        private long frameNum = 1;
+        private long frameDen = DEFAULT_FRAME_RATE;
+        private final ByteBuffer[] outgoing = new ByteBuffer[OUTGOING_CAPACITY];
+        private int outgoingCount;
+        private int slice;
+        private volatile UnitSource source;
+        private FramePacer pacer;
+
+        /** Replaces the current source, if any, with {@code accessUnits}. */
+        void subscribe(Flux<AccessUnit> accessUnits) {
+            UnitSource next = new UnitSource(this);
+            UnitSource previous = source;
+            source = next;
+            if (previous != null) {
+                previous.dispose();
+                queue.clear();
+            }
+            accessUnits
+                    .subscribeOn(Schedulers.boundedElastic())
+                    .subscribe(next);
+        }
+
+        void disposeSource() {
+            UnitSource current = source;
+            if (current != null) current.dispose();
+        }
+
+        @Override
+        public void onTick() {
+            if (slice == 0) {
+                packetizeNext();
+            }
+            sendSlice(SEND_SLICES - slice);
+            slice = (slice + 1) % SEND_SLICES;
+
+            UnitSource current = source;
+            if (current != null && current.completed && outgoingCount == 0 && queue.isEmpty()) {
+                pacer.stop();
+            }
+        }
+
+        @Override
+        public void onDroppedTicks(int count) {
+            slice = (slice + count) % SEND_SLICES;
+        }
+
+        private void packetizeNext() {
+            AccessUnit unit = queue.poll();
+            if (unit == null) return;
+
+            int first = outgoingCount;
+            int dropped = packetizer.getDropped();
+            byte[] data = unit.data();
+            for (int i = 0; i < unit.nalCount(); i++) {
+                if (unit.nalType(i) == 7) {
+                    updateFrameRate(H264Sps.parse(data, unit.nalOffset(i), unit.nalLength(i)));
+                }
+            }
+            int ts = tsBase + (int) (tsOffset + frames * CLOCK_RATE * frameNum / frameDen);
+            frames++;
+            for (int i = 0; i < unit.nalCount(); i++) {
+                outgoingCount = packetizer.packetize(data, unit.nalOffset(i), unit.nalLength(i),
+                        ts, outgoing, outgoingCount);
+            }
+            outgoingCount = packetizer.finishAccessUnit(outgoing, first, outgoingCount);
+            for (int i = first; i < outgoingCount; i++) {
+                cipher.seal(outgoing[i], H264Packetizer.RTP_HEADER_LENGTH);
+            }
+            if (packetizer.getDropped() != dropped) {
+                System.err.println("[VideoStreamer] Send backlog full, dropped "
+                        + (packetizer.getDropped() - dropped) + " packets");
+            }
+            UnitSource current = source;
+            if (current != null) current.request(1);
+        }
+
+        /**
+         * Switches to the SPS's VUI frame rate; timestamps already handed out stay where they
+         * are and later frames continue from the next one.
+         */
+        private void updateFrameRate(H264Sps sps) {
+            if (sps == null || !sps.timingInfoPresent) return;
+            // VUI ticks are fields, two per frame
+            long num = 2 * sps.numUnitsInTick;
+            long den = sps.timeScale;
+            if (num * frameDen == frameNum * den) return;
+            double fps = (double) den / num;
+            if (fps < 1 || fps > 240) return;
+
+            tsOffset += frames * CLOCK_RATE * frameNum / frameDen;
+            frames = 0;
+            frameNum = num;
+            frameDen = den;
+            pacer.setPeriod(sliceInterval(num, den));
+            System.out.printf("[VideoStreamer] %dx%d at %.3f fps%n", sps.width, sps.height, fps);
+        }
+
+        /** Sends an even share of the backlog given {@code slicesLeft} slices remain in this frame. */
+        private void sendSlice(int slicesLeft) {
+            if (outgoingCount == 0) return;
+            int count = (outgoingCount + slicesLeft - 1) / slicesLeft;
+            int sent;
+            try {
+                sent = transport.sendBatch(outgoing, 0, count);
+            } catch (Exception e) {
+                System.err.println("[VideoStreamer] Send error: " + e.getMessage());
+                sent = count;
+            }
+            for (int i = 0; i < sent; i++) {
+                remember(outgoing[i]);
+                bufferPool.release(outgoing[i]);
+            }
+            outgoingCount -= sent;
+            System.arraycopy(outgoing, sent, outgoing, 0, outgoingCount);
+            Arrays.fill(outgoing, outgoingCount, outgoingCount + sent, null);
+        }
+
+        void releaseOutgoing() {
+            for (int i = 0; i < outgoingCount; i++) {
+                bufferPool.release(outgoing[i]);
+                outgoing[i] = null;
+            }
+            outgoingCount = 0;
+        }
+    }
+
+    /** Feeds one encoder's access units into a task; ignored once the task has moved on. */
+    private static final class UnitSource extends BaseSubscriber<AccessUnit> {
+        private final AccessUnitTask task;
+        private volatile boolean completed;
+
+        UnitSource(AccessUnitTask task) {
+            this.task = task;
+        }
+
+        @Override
+        protected void hookOnSubscribe(Subscription subscription) {
+            subscription.request(QUEUE_CAPACITY);
+        }
+
+        @Override
+        protected void hookOnNext(AccessUnit unit) {
+            if (task.source != this) return;
+            if (!task.queue.offer(unit)) {
+                System.err.println("[VideoStreamer] Frame queue full, dropping access unit");
+            }
+        }
+
+        @Override
+        protected void hookOnComplete() {
+            completed = true;
+        }
+
+        @Override
+        protected void hookOnError(Throwable throwable) {
+            if (task.source == this) {
+                System.err.println("[VideoStreamer] Video source error: " + throwable.getMessage());
+            }
+            completed = true;
+        }
+    }
+}
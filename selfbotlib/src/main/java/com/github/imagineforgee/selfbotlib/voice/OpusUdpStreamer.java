@@ -1,95 +1,359 @@
 package com.github.imagineforgee.selfbotlib.voice;
 
-import reactor.core.Disposable;
+import com.github.imagineforgee.selfbotlib.media.FramePacer;
+import com.github.imagineforgee.selfbotlib.media.FrameRing;
+import com.github.imagineforgee.selfbotlib.media.LateFramePolicy;
+import com.github.imagineforgee.selfbotlib.media.OverflowPolicy;
+import com.github.imagineforgee.selfbotlib.media.PacedTask;
+import com.github.imagineforgee.selfbotlib.media.PacerStats;
+import com.github.imagineforgee.selfbotlib.media.transport.MediaTransport;
+import org.reactivestreams.Subscription;
+import reactor.core.publisher.BaseSubscriber;
 import reactor.core.publisher.Flux;
+import reactor.core.scheduler.Scheduler;
 import reactor.core.scheduler.Schedulers;
 
-import java.net.DatagramPacket;
-import java.net.DatagramSocket;
-import java.net.InetAddress;
+import java.nio.ByteBuffer;
 import java.time.Duration;
 import java.util.concurrent.atomic.AtomicBoolean;
-import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
 
 public class OpusUdpStreamer {
-    private final DatagramSocket udp;
-    private final InetAddress address;
-    private final int port;
+    static final int RTP_HEADER_LENGTH = 12;
+    static final int NONCE_SUFFIX_LENGTH = 4;
+    // Largest frame that still fits one MTU-sized packet with header and cipher overhead
+    static final int MAX_FRAME_LENGTH = 1400;
+    static final Duration FRAME_DURATION = Duration.ofMillis(20);
+    static final int FRAME_SAMPLES = 960;
+    // Frames queued ahead of the pacer; bounds latency added when the network side stalls
+    private static final int RING_CAPACITY = 16;
+    // Frames this short carry no audio: zero-length frames from producers that detected
+    // silence themselves, and Opus DTX packets
+    static final int SILENCE_MAX_LENGTH = 3;
+    private static final byte[] SILENCE_FRAME = {(byte) 0xF8, (byte) 0xFF, (byte) 0xFE};
+    // Silence frames sent after audio stops so decoders don't interpolate the last packet
+    static final int SILENCE_TRAILER_FRAMES = 5;
+
+    private final MediaTransport transport;
     private final int ssrc;
-    private final byte[] secretKey;
+    private final VoiceCipher cipher;
     private final AtomicBoolean isConnected;
-    private final AtomicInteger nonceCounter = new AtomicInteger(0);
-    private Disposable stream;
-
-    public OpusUdpStreamer(DatagramSocket udp, InetAddress address, int port,
-                           int ssrc, byte[] secretKey, AtomicBoolean isConnected) {
-        this.udp = udp;
-        this.address = address;
-        this.port = port;
+    private final PacerStats pacerStats = new PacerStats();
+    private volatile LateFramePolicy latePolicy = LateFramePolicy.CATCH_UP;
+    private final FrameRing frameRing = new FrameRing(RING_CAPACITY, MAX_FRAME_LENGTH, OverflowPolicy.DROP_OLDEST);
+    private volatile Consumer<Boolean> speakingListener = speaking -> {};
+    private FrameFeeder feeder;
+    private FrameTask task;
+    private FramePacer pacer;
+    private boolean closed;
+    private volatile boolean speakingWanted;
+    // Guarded by speakingLock
+    private boolean speakingNotified;
+    private final Object speakingLock = new Object();
+    // Resolved here so Reactor's first-use setup never lands on a pacer tick
+    private final Scheduler listenerScheduler = Schedulers.boundedElastic();
+
+    // Reused for every frame; only the sending thread touches these
+    private final ByteBuffer packet;
+    private final ByteBuffer payloadView;
+
+    public OpusUdpStreamer(MediaTransport transport, int ssrc, VoiceCipher cipher, AtomicBoolean isConnected) {
+        this.transport = transport;
         this.ssrc = ssrc;
-        this.secretKey = secretKey;
+        this.cipher = cipher;
         this.isConnected = isConnected;
+        this.packet = transport.bufferPool().acquire();
+        if (packet.capacity() < RTP_HEADER_LENGTH + MAX_FRAME_LENGTH + VoiceCipher.OVERHEAD) {
+            throw new IllegalArgumentException("Transport buffers too small for Opus packets: " + packet.capacity());
+        }
+        this.payloadView = packet.duplicate();
     }
 
-    public void start(Flux<byte[]> opusFrames) {
-        AtomicInteger seq = new AtomicInteger(0);
-        AtomicInteger ts = new AtomicInteger((int) (System.currentTimeMillis() & 0xFFFFFFFF));
-
+    /**
+     * Sends frames from the Flux, feeding them through {@link #getFrameRing()} with demand
+     * limited to the ring's free slots. Pacing stops once the Flux completes and the ring drains.
+     */
+    public synchronized void start(Flux<byte[]> opusFrames) {
+        if (closed) {
+            System.err.println("[Streamer] Ignoring start of a closed streamer");
+            return;
+        }
         stop();
 
-        this.stream = opusFrames
+        FrameFeeder feeder = new FrameFeeder();
+        startPacer(feeder);
+        opusFrames
                 .takeWhile(frame -> isConnected.get())
-                .zipWith(Flux.interval(Duration.ofMillis(20)))
-                .map(tuple -> tuple.getT1())
                 .subscribeOn(Schedulers.boundedElastic())
-                .subscribe(frame -> {
-                    int sequence = seq.getAndUpdate(s -> (s + 1) & 0xFFFF);
-                    int timestamp = ts.getAndUpdate(t -> (t + 960) & 0xFFFFFFFF);
-                    sendFrame(sequence, timestamp, frame);
-                });
+                .subscribe(feeder);
+        this.feeder = feeder;
+    }
+
+    /**
+     * Sends whatever a producer publishes into {@link #getFrameRing()}, one frame per 20 ms,
+     * until {@link #stop()}. Ticks with an empty ring send nothing.
+     */
+    public synchronized void start() {
+        if (closed) {
+            System.err.println("[Streamer] Ignoring start of a closed streamer");
+            return;
+        }
+        stop();
+        startPacer(null);
+    }
+
+    private void startPacer(FrameFeeder feeder) {
+        frameRing.clear();
+        FrameTask frameTask = new FrameTask(feeder);
+        FramePacer framePacer = new FramePacer(FRAME_DURATION, frameTask, pacerStats);
+        framePacer.setLateFramePolicy(latePolicy);
+        frameTask.pacer = framePacer;
+        framePacer.start();
+        this.task = frameTask;
+        this.pacer = framePacer;
+    }
+
+    /**
+     * Called with true before the first packet after silence and with false once the silence
+     * trailer has been sent or the streamer stops, so the speaking state follows the audio.
+     * Runs on Reactor's bounded elastic scheduler, never on the pacing thread; changes that
+     * arrive faster than the listener handles them collapse into the latest state.
+     */
+    public void setSpeakingListener(Consumer<Boolean> listener) {
+        this.speakingListener = listener != null ? listener : speaking -> {};
+    }
+
+    /** Whether the last state reported to the speaking listener was true. */
+    public synchronized boolean isSpeaking() {
+        FrameTask current = task;
+        return current != null && current.speaking;
     }
 
-    private void sendFrame(int sequence, int timestamp, byte[] opusFrame) {
+    /**
+     * The queue between the active voice mode and the sender. It has a single producer: only
+     * one mode, or the Flux passed to {@link #start(Flux)}, may publish at a time.
+     */
+    public FrameRing getFrameRing() {
+        return frameRing;
+    }
+
+    public void setLateFramePolicy(LateFramePolicy policy) {
+        this.latePolicy = policy;
+        FramePacer current = pacer;
+        if (current != null) {
+            current.setLateFramePolicy(policy);
+        }
+    }
+
+    public PacerStats getPacerStats() {
+        return pacerStats;
+    }
+
+    private void sendPacket() {
         try {
-            byte[] rtp = createRtpHeader(sequence, timestamp);
-
-            int counter = nonceCounter.getAndIncrement();
-            byte[] nonce = new byte[24];
-            nonce[0] = (byte) (counter >> 24);
-            nonce[1] = (byte) (counter >> 16);
-            nonce[2] = (byte) (counter >> 8);
-            nonce[3] = (byte) counter;
-            byte[] encrypted = SodiumEncryption.encrypt(opusFrame, rtp, nonce, secretKey);
-
-            byte[] packet = new byte[rtp.length + encrypted.length + 4];
-            System.arraycopy(rtp, 0, packet, 0, rtp.length);
-            System.arraycopy(encrypted, 0, packet, rtp.length, encrypted.length);
-            packet[packet.length - 4] = nonce[0];
-            packet[packet.length - 3] = nonce[1];
-            packet[packet.length - 2] = nonce[2];
-            packet[packet.length - 1] = nonce[3];
-
-            udp.send(new DatagramPacket(packet, packet.length, address, port));
+            transport.send(packet);
         } catch (Exception e) {
             System.err.println("[Streamer] Packet send error: " + e.getMessage());
         }
     }
 
-    private byte[] createRtpHeader(int sequence, int timestamp) {
-        return new byte[]{
-                (byte) 0x80, (byte) 0x78,
-                (byte) (sequence >> 8), (byte) sequence,
-                (byte) (timestamp >> 24), (byte) (timestamp >> 16),
-                (byte) (timestamp >> 8), (byte) timestamp,
-                (byte) (ssrc >> 24), (byte) (ssrc >> 16),
-                (byte) (ssrc >> 8), (byte) ssrc
-        };
+    /**
+     * Assembles header, ciphertext, tag and nonce suffix into the shared packet buffer and
+     * flips it for sending.
+     * @return the packet length
+     */
+    int writePacket(int sequence, int timestamp, byte[] frame, int offset, int length) {
+        if (length > MAX_FRAME_LENGTH) {
+            throw new IllegalArgumentException("Opus frame too large: " + length);
+        }
+        packet.clear();
+        writeRtpHeader(sequence, timestamp);
+        packet.put(RTP_HEADER_LENGTH, frame, offset, length);
+
+        payloadView.limit(RTP_HEADER_LENGTH + length).position(RTP_HEADER_LENGTH);
+        packet.position(RTP_HEADER_LENGTH);
+        cipher.encryptInto(payloadView, packet);
+        packet.flip();
+        return packet.limit();
+    }
+
+    /** Same as {@link #writePacket(int, int, byte[], int, int)}, encrypting straight from {@code frame}. */
+    int writePacket(int sequence, int timestamp, ByteBuffer frame) {
+        if (frame.remaining() > MAX_FRAME_LENGTH) {
+            throw new IllegalArgumentException("Opus frame too large: " + frame.remaining());
+        }
+        packet.clear();
+        writeRtpHeader(sequence, timestamp);
+        packet.position(RTP_HEADER_LENGTH);
+        cipher.encryptInto(frame, packet);
+        packet.flip();
+        return packet.limit();
+    }
+
+    private void writeRtpHeader(int sequence, int timestamp) {
+        packet.put(0, (byte) 0x80);
+        packet.put(1, (byte) 0x78);
+        packet.putShort(2, (short) sequence);
+        packet.putInt(4, timestamp);
+        packet.putInt(8, ssrc);
     }
 
-    public void stop() {
-        if (stream != null && !stream.isDisposed()) {
-            stream.dispose();
-            stream = null;
+    public synchronized void stop() {
+        if (pacer != null) {
+            pacer.stop();
+            pacer = null;
+        }
+        if (task != null) {
+            task.setSpeaking(false);
+            task = null;
+        }
+        if (feeder != null) {
+            feeder.dispose();
+            feeder = null;
+        }
+    }
+
+    /**
+     * Stops sending and hands the packet buffer back to the transport's pool. The streamer
+     * can't be started again afterwards.
+     */
+    public synchronized void close() {
+        stop();
+        if (!closed) {
+            closed = true;
+            transport.bufferPool().release(packet);
+        }
+    }
+
+    /**
+     * Hands a speaking change to the listener off the calling thread, which is usually the
+     * shared pacing thread; the listener does gateway I/O.
+     */
+    private void notifySpeaking(boolean speaking) {
+        speakingWanted = speaking;
+        listenerScheduler.schedule(this::deliverSpeaking);
+    }
+
+    private void deliverSpeaking() {
+        synchronized (speakingLock) {
+            boolean speaking = speakingWanted;
+            if (speaking == speakingNotified) return;
+            speakingNotified = speaking;
+            try {
+                speakingListener.accept(speaking);
+            } catch (Exception e) {
+                System.err.println("[Streamer] Speaking listener error: " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Sends one frame from the ring per pacer tick. The RTP timestamp advances on every tick,
+     * so gaps from a stalled producer or dropped ticks show up as gaps on the receiver instead
+     * of being played early.
+     * <p>
+     * Silent frames and empty ticks are not sent: after audio stops, {@link #SILENCE_TRAILER_FRAMES}
+     * silence frames go out, speaking is turned off, and nothing more is sent until audio returns.
+     */
+    private final class FrameTask implements PacedTask {
+        private final FrameFeeder feeder;
+        private FramePacer pacer;
+        private int sequence;
+        private int timestamp = (int) System.currentTimeMillis();
+        private volatile boolean speaking;
+        private int trailerSent;
+
+        FrameTask(FrameFeeder feeder) {
+            this.feeder = feeder;
+        }
+
+        @Override
+        public void onTick() {
+            boolean voiced = false;
+            ByteBuffer frame;
+            while ((frame = frameRing.peek()) != null) {
+                boolean silent = frame.remaining() <= SILENCE_MAX_LENGTH;
+                if (!silent) writePacket(sequence, timestamp, frame);
+                // Lost to DROP_OLDEST while encrypting; try the next one
+                if (!frameRing.release()) continue;
+                if (feeder != null) feeder.request(1);
+                voiced = !silent;
+                break;
+            }
+
+            if (voiced) {
+                setSpeaking(true);
+                trailerSent = 0;
+                sendPacket();
+                sequence = (sequence + 1) & 0xFFFF;
+            } else if (speaking) {
+                writePacket(sequence, timestamp, SILENCE_FRAME, 0, SILENCE_FRAME.length);
+                sendPacket();
+                sequence = (sequence + 1) & 0xFFFF;
+                if (++trailerSent >= SILENCE_TRAILER_FRAMES) {
+                    setSpeaking(false);
+                }
+            }
+
+            if (frame == null && !speaking && feeder != null && feeder.completed) {
+                pacer.stop();
+            }
+            timestamp += FRAME_SAMPLES;
+        }
+
+        void setSpeaking(boolean speaking) {
+            if (this.speaking == speaking) return;
+            this.speaking = speaking;
+            notifySpeaking(speaking);
+        }
+
+        @Override
+        public void onDroppedTicks(int count) {
+            for (int i = 0; i < count && frameRing.peek() != null; i++) {
+                if (frameRing.release() && feeder != null) {
+                    feeder.request(1);
+                }
+            }
+            timestamp += FRAME_SAMPLES * count;
+        }
+    }
+
+    /**
+     * Copies frames from a Flux into the ring, requesting only as many as there are free slots.
+     */
+    private final class FrameFeeder extends BaseSubscriber<byte[]> {
+        private volatile boolean completed;
+
+        @Override
+        protected void hookOnSubscribe(Subscription subscription) {
+            subscription.request(frameRing.getCapacity());
+        }
+
+        @Override
+        protected void hookOnNext(byte[] frame) {
+            if (frame.length > frameRing.getSlotSize()) {
+                System.err.println("[Streamer] Opus frame too large, dropping: " + frame.length);
+                request(1);
+                return;
+            }
+            ByteBuffer slot = frameRing.claim();
+            if (slot == null) {
+                System.err.println("[Streamer] Frame ring full, dropping frame");
+                return;
+            }
+            slot.put(frame);
+            frameRing.publish(frame.length);
+        }
+
+        @Override
+        protected void hookOnComplete() {
+            completed = true;
+        }
+
+        @Override
+        protected void hookOnError(Throwable throwable) {
+            System.err.println("[Streamer] Frame source error: " + throwable.getMessage());
+            completed = true;
         }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,97 @@
+package com.github.imagineforgee.selfbotlib.voice;
+
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+
+/**
+ * Per-session packet cipher for the aead_xchacha20_poly1305_rtpsize mode.
+ * Created once from the secret key in SESSION_DESCRIPTION and reused for every packet.
+ * Audio and video of a connection share one instance so they draw nonces from one counter;
+ * two counters under the same key would repeat nonces.
+ */
+public final class VoiceCipher {
+    public static final int TAG_LENGTH = XChaCha20Poly1305.TAG_LENGTH;
+    public static final int NONCE_SUFFIX_LENGTH = 4;
+    public static final int OVERHEAD = TAG_LENGTH + NONCE_SUFFIX_LENGTH;
+
+    private final XChaCha20Poly1305 aead;
+    private final byte[] nonce = new byte[XChaCha20Poly1305.NONCE_LENGTH];
+    // Received packets carry the sender's counter; kept apart so it never leaks into ours
+    private final byte[] openNonce = new byte[XChaCha20Poly1305.NONCE_LENGTH];
+    private int nonceCounter;
+
+    public VoiceCipher(byte[] secretKey) {
+        this.aead = new XChaCha20Poly1305(secretKey);
+    }
+
+    /**
+     * Encrypts the remaining bytes of {@code src} into {@code dst} at its position,
+     * authenticating {@code dst[0, position)} (the RTP header) as associated data.
+     * Writes ciphertext, tag and the 4-byte nonce suffix, then advances both buffers.
+     * {@code src} may be a view of {@code dst}'s own payload region for in-place use.
+     */
+    public synchronized void encryptInto(ByteBuffer src, ByteBuffer dst) {
+        encryptInto(src, dst, nonceCounter++);
+    }
+
+    /**
+     * Encrypts {@code packet[headerLength, limit)} in place, authenticating the header, and
+     * appends tag and nonce suffix. Leaves the packet flipped: position 0, limit at the end.
+     */
+    public synchronized void seal(ByteBuffer packet, int headerLength) {
+        int length = packet.limit() - headerLength;
+        int end = headerLength + length + TAG_LENGTH;
+        if (packet.capacity() < end + NONCE_SUFFIX_LENGTH) {
+            throw new BufferOverflowException();
+        }
+
+        setNonce(nonceCounter++);
+        packet.limit(end + NONCE_SUFFIX_LENGTH);
+        aead.seal(nonce, packet, 0, headerLength, packet, headerLength, packet, headerLength, length);
+        packet.put(end, nonce, 0, NONCE_SUFFIX_LENGTH);
+        packet.position(0);
+    }
+
+    /**
+     * Authenticates and decrypts a received packet in {@code packet[0, limit)} in place, taking
+     * the nonce from its trailing suffix and {@code packet[0, headerLength)} as associated data.
+     * On success the limit is moved to the end of the plaintext.
+     * @return the plaintext length, or -1 if the packet is too short or not authentic
+     */
+    public synchronized int open(ByteBuffer packet, int headerLength) {
+        int length = packet.limit() - headerLength - OVERHEAD;
+        if (length < 0) return -1;
+
+        int end = headerLength + length + TAG_LENGTH;
+        packet.get(end, openNonce, 0, NONCE_SUFFIX_LENGTH);
+        if (!aead.open(openNonce, packet, 0, headerLength, packet, headerLength, packet, headerLength, length)) {
+            return -1;
+        }
+        packet.limit(headerLength + length);
+        return length;
+    }
+
+    /** Same as {@link #encryptInto(ByteBuffer, ByteBuffer)} with a caller-chosen nonce counter. */
+    synchronized void encryptInto(ByteBuffer src, ByteBuffer dst, int counter) {
+        int length = src.remaining();
+        int headerLength = dst.position();
+        if (dst.remaining() < length + OVERHEAD) {
+            throw new BufferOverflowException();
+        }
+
+        setNonce(counter);
+        aead.seal(nonce, dst, 0, headerLength, src, src.position(), dst, headerLength, length);
+
+        int end = headerLength + length + TAG_LENGTH;
+        dst.put(end, nonce, 0, NONCE_SUFFIX_LENGTH);
+        dst.position(end + NONCE_SUFFIX_LENGTH);
+        src.position(src.limit());
+    }
+
+    private void setNonce(int counter) {
+        nonce[0] = (byte) (counter >> 24);
+        nonce[1] = (byte) (counter >> 16);
+        nonce[2] = (byte) (counter >> 8);
+        nonce[3] = (byte) counter;
+    }
+}
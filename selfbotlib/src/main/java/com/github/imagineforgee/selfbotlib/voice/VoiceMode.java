@@ -4,6 +4,7 @@ package com.github.imagineforgee.selfbotlib.voice;
 import com.github.imagineforgee.selfbotlib.client.UserBotClient;
 import com.github.imagineforgee.selfbotlib.client.VoiceClient;
 import com.github.imagineforgee.selfbotlib.commands.CommandContext;
+import com.github.imagineforgee.selfbotlib.voice.audio.OpusEncoderConfig;
 import com.sedmelluq.discord.lavaplayer.track.AudioTrack;
 
 import java.util.Queue;
@@ -37,5 +38,24 @@ public interface VoiceMode {
      */
     boolean isActive();
     void setUdpStreamer(OpusUdpStreamer udpStreamer);
+
+    /**
+     * Opus encoder settings for audio this mode encodes. May be called while streaming; modes
+     * that send pre-encoded audio can ignore it.
+     */
+    default void setEncoderConfig(OpusEncoderConfig config) {}
+
+    /**
+     * Highest bitrate the connection currently carries, in bits per second, or
+     * {@link OpusEncoderConfig#BITRATE_AUTO} for no limit. Lowers the mode's own bitrate
+     * without replacing its config; see {@link OpusEncoderConfig#limitedTo(int, int)}.
+     */
+    default void setBitrateLimit(int bitrate) {}
+
+    /**
+     * Packet loss the connection currently shows, 0-100. Above zero the mode turns on FEC
+     * sized for it on top of its own config.
+     */
+    default void setLossHint(int percent) {}
 }
 
@@ -0,0 +1,252 @@
+package com.github.imagineforgee.selfbotlib.voice;
+
+import java.nio.ByteBuffer;
+
+/**
+ * XChaCha20-Poly1305 (IETF) sealing and opening with all working state preallocated,
+ * so handling a packet does not touch the heap. Produces the same output as
+ * {@link SodiumEncryption#encrypt}. Instances are not thread-safe.
+ */
+final class XChaCha20Poly1305 {
+    static final int TAG_LENGTH = 16;
+    static final int NONCE_LENGTH = 24;
+
+    private static final int MASK26 = 0x3ffffff;
+
+    private final int[] key = new int[8];
+    private final int[] subkey = new int[8];
+    private final int[] state = new int[16];
+    private final int[] work = new int[16];
+    private final byte[] keyStream = new byte[64];
+    private final ByteBuffer expectedTag = ByteBuffer.allocate(TAG_LENGTH);
+
+    // Poly1305 accumulator and key, 26-bit limbs
+    private int r0, r1, r2, r3, r4;
+    private int s1, s2, s3, s4;
+    private int h0, h1, h2, h3, h4;
+    private int pad0, pad1, pad2, pad3;
+
+    XChaCha20Poly1305(byte[] secretKey) {
+        if (secretKey.length != 32) {
+            throw new IllegalArgumentException("Key must be 32 bytes, got " + secretKey.length);
+        }
+        for (int i = 0; i < 8; i++) key[i] = leInt(secretKey, i * 4);
+    }
+
+    /**
+     * Encrypts {@code len} bytes of {@code src} at {@code srcOff} into {@code dst} at
+     * {@code dstOff}, authenticating {@code aad[aadOff, aadOff + aadLen)}, and writes the
+     * 16-byte tag directly after the ciphertext. {@code src} and {@code dst} may be the
+     * same buffer at the same offset. Buffer positions and limits are not touched.
+     */
+    void seal(byte[] nonce24, ByteBuffer aad, int aadOff, int aadLen,
+              ByteBuffer src, int srcOff, ByteBuffer dst, int dstOff, int len) {
+        hChaCha20(leInt(nonce24, 0), leInt(nonce24, 4), leInt(nonce24, 8), leInt(nonce24, 12));
+        int n1 = leInt(nonce24, 16);
+        int n2 = leInt(nonce24, 20);
+
+        chachaBlock(0, n1, n2);
+        polyInit();
+
+        for (int done = 0, counter = 1; done < len; counter++) {
+            chachaBlock(counter, n1, n2);
+            int chunk = Math.min(64, len - done);
+            for (int i = 0; i < chunk; i++) {
+                dst.put(dstOff + done + i, (byte) (src.get(srcOff + done + i) ^ keyStream[i]));
+            }
+            done += chunk;
+        }
+
+        polyUpdate(aad, aadOff, aadLen);
+        polyUpdate(dst, dstOff, len);
+        polyBlock(aadLen, 0, len, 0);
+        polyFinish(dst, dstOff + len);
+    }
+
+    /**
+     * Verifies the tag following {@code len} bytes of ciphertext in {@code src} at
+     * {@code srcOff} and, only if it matches, decrypts them into {@code dst} at {@code dstOff}.
+     * Same aliasing rules as {@link #seal}.
+     * @return false if the packet is not authentic; {@code dst} is then left untouched
+     */
+    boolean open(byte[] nonce24, ByteBuffer aad, int aadOff, int aadLen,
+                 ByteBuffer src, int srcOff, ByteBuffer dst, int dstOff, int len) {
+        hChaCha20(leInt(nonce24, 0), leInt(nonce24, 4), leInt(nonce24, 8), leInt(nonce24, 12));
+        int n1 = leInt(nonce24, 16);
+        int n2 = leInt(nonce24, 20);
+
+        chachaBlock(0, n1, n2);
+        polyInit();
+        polyUpdate(aad, aadOff, aadLen);
+        polyUpdate(src, srcOff, len);
+        polyBlock(aadLen, 0, len, 0);
+        polyFinish(expectedTag, 0);
+
+        int diff = 0;
+        for (int i = 0; i < TAG_LENGTH; i++) {
+            diff |= expectedTag.get(i) ^ src.get(srcOff + len + i);
+        }
+        if (diff != 0) return false;
+
+        for (int done = 0, counter = 1; done < len; counter++) {
+            chachaBlock(counter, n1, n2);
+            int chunk = Math.min(64, len - done);
+            for (int i = 0; i < chunk; i++) {
+                dst.put(dstOff + done + i, (byte) (src.get(srcOff + done + i) ^ keyStream[i]));
+            }
+            done += chunk;
+        }
+        return true;
+    }
+
+    private void hChaCha20(int n0, int n1, int n2, int n3) {
+        int[] s = state;
+        s[0] = 0x61707865; s[1] = 0x3320646e; s[2] = 0x79622d32; s[3] = 0x6b206574;
+        System.arraycopy(key, 0, s, 4, 8);
+        s[12] = n0; s[13] = n1; s[14] = n2; s[15] = n3;
+        System.arraycopy(s, 0, work, 0, 16);
+        rounds(work);
+        System.arraycopy(work, 0, subkey, 0, 4);
+        System.arraycopy(work, 12, subkey, 4, 4);
+    }
+
+    private void chachaBlock(int counter, int n1, int n2) {
+        int[] s = state;
+        s[0] = 0x61707865; s[1] = 0x3320646e; s[2] = 0x79622d32; s[3] = 0x6b206574;
+        System.arraycopy(subkey, 0, s, 4, 8);
+        s[12] = counter; s[13] = 0; s[14] = n1; s[15] = n2;
+        System.arraycopy(s, 0, work, 0, 16);
+        rounds(work);
+        for (int i = 0; i < 16; i++) writeLeInt(keyStream, i * 4, work[i] + s[i]);
+    }
+
+    private static void rounds(int[] w) {
+        for (int i = 0; i < 10; i++) {
+            qr(w, 0, 4, 8,  12); qr(w, 1, 5, 9,  13);
+            qr(w, 2, 6, 10, 14); qr(w, 3, 7, 11, 15);
+            qr(w, 0, 5, 10, 15); qr(w, 1, 6, 11, 12);
+            qr(w, 2, 7, 8,  13); qr(w, 3, 4, 9,  14);
+        }
+    }
+
+    private static void qr(int[] s, int a, int b, int c, int d) {
+        s[a] += s[b]; s[d] ^= s[a]; s[d] = Integer.rotateLeft(s[d], 16);
+        s[c] += s[d]; s[b] ^= s[c]; s[b] = Integer.rotateLeft(s[b], 12);
+        s[a] += s[b]; s[d] ^= s[a]; s[d] = Integer.rotateLeft(s[d],  8);
+        s[c] += s[d]; s[b] ^= s[c]; s[b] = Integer.rotateLeft(s[b],  7);
+    }
+
+    private void polyInit() {
+        int t0 = leInt(keyStream, 0), t1 = leInt(keyStream, 4);
+        int t2 = leInt(keyStream, 8), t3 = leInt(keyStream, 12);
+        r0 = t0 & 0x3ffffff;
+        r1 = ((t0 >>> 26) | (t1 << 6)) & 0x3ffff03;
+        r2 = ((t1 >>> 20) | (t2 << 12)) & 0x3ffc0ff;
+        r3 = ((t2 >>> 14) | (t3 << 18)) & 0x3f03fff;
+        r4 = (t3 >>> 8) & 0x00fffff;
+        s1 = r1 * 5; s2 = r2 * 5; s3 = r3 * 5; s4 = r4 * 5;
+        h0 = h1 = h2 = h3 = h4 = 0;
+        pad0 = leInt(keyStream, 16); pad1 = leInt(keyStream, 20);
+        pad2 = leInt(keyStream, 24); pad3 = leInt(keyStream, 28);
+    }
+
+    /** Absorbs {@code len} bytes, zero-padding the final block to 16 bytes as RFC 8439 requires. */
+    private void polyUpdate(ByteBuffer b, int off, int len) {
+        int end = off + len;
+        for (; off + 16 <= end; off += 16) {
+            polyBlock(leInt(b, off), leInt(b, off + 4), leInt(b, off + 8), leInt(b, off + 12));
+        }
+        if (off < end) {
+            int t0 = 0, t1 = 0, t2 = 0, t3 = 0;
+            for (int i = 0; off + i < end; i++) {
+                int v = (b.get(off + i) & 0xFF) << ((i & 3) << 3);
+                switch (i >> 2) {
+                    case 0 -> t0 |= v;
+                    case 1 -> t1 |= v;
+                    case 2 -> t2 |= v;
+                    default -> t3 |= v;
+                }
+            }
+            polyBlock(t0, t1, t2, t3);
+        }
+    }
+
+    private void polyBlock(int t0, int t1, int t2, int t3) {
+        long a0 = h0 + (t0 & MASK26);
+        long a1 = h1 + (((t0 >>> 26) | (t1 << 6)) & MASK26);
+        long a2 = h2 + (((t1 >>> 20) | (t2 << 12)) & MASK26);
+        long a3 = h3 + (((t2 >>> 14) | (t3 << 18)) & MASK26);
+        long a4 = h4 + ((t3 >>> 8) | (1 << 24));
+
+        long d0 = a0 * r0 + a1 * s4 + a2 * s3 + a3 * s2 + a4 * s1;
+        long d1 = a0 * r1 + a1 * r0 + a2 * s4 + a3 * s3 + a4 * s2;
+        long d2 = a0 * r2 + a1 * r1 + a2 * r0 + a3 * s4 + a4 * s3;
+        long d3 = a0 * r3 + a1 * r2 + a2 * r1 + a3 * r0 + a4 * s4;
+        long d4 = a0 * r4 + a1 * r3 + a2 * r2 + a3 * r1 + a4 * r0;
+
+        long c = d0 >>> 26; h0 = (int) d0 & MASK26;
+        d1 += c; c = d1 >>> 26; h1 = (int) d1 & MASK26;
+        d2 += c; c = d2 >>> 26; h2 = (int) d2 & MASK26;
+        d3 += c; c = d3 >>> 26; h3 = (int) d3 & MASK26;
+        d4 += c; c = d4 >>> 26; h4 = (int) d4 & MASK26;
+        h0 += (int) (c * 5);
+        h1 += h0 >>> 26; h0 &= MASK26;
+    }
+
+    private void polyFinish(ByteBuffer out, int off) {
+        int c;
+        c = h1 >>> 26; h1 &= MASK26; h2 += c;
+        c = h2 >>> 26; h2 &= MASK26; h3 += c;
+        c = h3 >>> 26; h3 &= MASK26; h4 += c;
+        c = h4 >>> 26; h4 &= MASK26; h0 += c * 5;
+        c = h0 >>> 26; h0 &= MASK26; h1 += c;
+
+        int g0 = h0 + 5;  c = g0 >>> 26; g0 &= MASK26;
+        int g1 = h1 + c;  c = g1 >>> 26; g1 &= MASK26;
+        int g2 = h2 + c;  c = g2 >>> 26; g2 &= MASK26;
+        int g3 = h3 + c;  c = g3 >>> 26; g3 &= MASK26;
+        int g4 = h4 + c - (1 << 26);
+
+        // Constant-time select: h if h < p, otherwise h - p
+        int mask = (g4 >>> 31) - 1;
+        h0 = (h0 & ~mask) | (g0 & mask);
+        h1 = (h1 & ~mask) | (g1 & mask);
+        h2 = (h2 & ~mask) | (g2 & mask);
+        h3 = (h3 & ~mask) | (g3 & mask);
+        h4 = (h4 & ~mask) | (g4 & mask);
+
+        int w0 = h0 | (h1 << 26);
+        int w1 = (h1 >>> 6) | (h2 << 20);
+        int w2 = (h2 >>> 12) | (h3 << 14);
+        int w3 = (h3 >>> 18) | (h4 << 8);
+
+        long f = (w0 & 0xFFFFFFFFL) + (pad0 & 0xFFFFFFFFL);
+        writeLeInt(out, off, (int) f);
+        f = (w1 & 0xFFFFFFFFL) + (pad1 & 0xFFFFFFFFL) + (f >>> 32);
+        writeLeInt(out, off + 4, (int) f);
+        f = (w2 & 0xFFFFFFFFL) + (pad2 & 0xFFFFFFFFL) + (f >>> 32);
+        writeLeInt(out, off + 8, (int) f);
+        f = (w3 & 0xFFFFFFFFL) + (pad3 & 0xFFFFFFFFL) + (f >>> 32);
+        writeLeInt(out, off + 12, (int) f);
+    }
+
+    private static int leInt(byte[] b, int off) {
+        return (b[off] & 0xFF) | ((b[off+1] & 0xFF) << 8)
+                | ((b[off+2] & 0xFF) << 16) | ((b[off+3] & 0xFF) << 24);
+    }
+
+    private static int leInt(ByteBuffer b, int off) {
+        return (b.get(off) & 0xFF) | ((b.get(off+1) & 0xFF) << 8)
+                | ((b.get(off+2) & 0xFF) << 16) | ((b.get(off+3) & 0xFF) << 24);
+    }
+
+    private static void writeLeInt(byte[] b, int off, int v) {
+        b[off] = (byte)v; b[off+1] = (byte)(v>>>8);
+        b[off+2] = (byte)(v>>>16); b[off+3] = (byte)(v>>>24);
+    }
+
+    private static void writeLeInt(ByteBuffer b, int off, int v) {
+        b.put(off, (byte)v); b.put(off+1, (byte)(v>>>8));
+        b.put(off+2, (byte)(v>>>16)); b.put(off+3, (byte)(v>>>24));
+    }
+}
@@ -0,0 +1,128 @@
+package com.github.imagineforgee.selfbotlib.voice.audio;
+
+import com.sun.jna.Native;
+import com.sun.jna.NativeLibrary;
+import com.sun.jna.Pointer;
+import com.sun.jna.ptr.PointerByReference;
+import tomp2p.opuswrapper.Opus;
+
+import java.io.Closeable;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.ShortBuffer;
+
+/**
+ * A 48 kHz stereo Opus encoder. Encoding goes through a JNA direct mapping of
+ * {@code opus_encode} bound to the library {@link Opus} loaded, so a call passes the direct
+ * buffers' addresses without the argument boxing of the interface mapping; if the direct
+ * mapping can't be bound it falls back to {@link Opus#INSTANCE}. Not thread-safe, except
+ * {@link #setConfig(OpusEncoderConfig)}, which takes effect at the next {@link #encode}.
+ */
+public final class OpusEncoder implements Closeable {
+    public static final int SAMPLE_RATE = 48000;
+    public static final int CHANNELS = 2;
+    public static final int FRAME_SAMPLES = 960;
+
+    private final PointerByReference encoder;
+    private final Pointer state;
+    private boolean closed;
+    private volatile OpusEncoderConfig requestedConfig;
+    private OpusEncoderConfig appliedConfig;
+
+    public OpusEncoder(int application) {
+        this(application, OpusEncoderConfig.DEFAULT);
+    }
+
+    public OpusEncoder(int application, OpusEncoderConfig config) {
+        IntBuffer error = IntBuffer.allocate(1);
+        PointerByReference created = Opus.INSTANCE.opus_encoder_create(SAMPLE_RATE, CHANNELS, application, error);
+        if (error.get(0) != Opus.OPUS_OK || created == null) {
+            throw new IllegalStateException("Failed to create Opus encoder, error code: " + error.get(0));
+        }
+        this.encoder = created;
+        this.state = created.getPointer();
+        this.requestedConfig = config;
+    }
+
+    /**
+     * Replaces the encoder settings. Safe to call from any thread; the encoding thread
+     * applies it before the next frame.
+     */
+    public void setConfig(OpusEncoderConfig config) {
+        this.requestedConfig = config;
+    }
+
+    public OpusEncoderConfig getConfig() {
+        return requestedConfig;
+    }
+
+    /**
+     * Encodes one 20 ms frame of interleaved native-order samples from {@code pcm}'s position
+     * into {@code out} at its position. With direct buffers nothing is copied or allocated.
+     * @return encoded length, or a negative Opus error code
+     */
+    public int encode(ShortBuffer pcm, ByteBuffer out) {
+        if (closed) throw new IllegalStateException("Encoder closed");
+        OpusEncoderConfig requested = requestedConfig;
+        if (requested != appliedConfig) apply(requested);
+        if (Direct.AVAILABLE && pcm.isDirect() && out.isDirect()) {
+            return Direct.opus_encode(state, pcm, FRAME_SAMPLES, out, out.remaining());
+        }
+        return Opus.INSTANCE.opus_encode(encoder, pcm, FRAME_SAMPLES, out, out.remaining());
+    }
+
+    private void apply(OpusEncoderConfig next) {
+        ctl(Opus.OPUS_SET_BITRATE_REQUEST, next.getBitrate() == OpusEncoderConfig.BITRATE_AUTO ? Opus.OPUS_AUTO : next.getBitrate());
+        ctl(Opus.OPUS_SET_VBR_REQUEST, next.isVbr() ? 1 : 0);
+        ctl(Opus.OPUS_SET_COMPLEXITY_REQUEST, next.getComplexity());
+        ctl(Opus.OPUS_SET_INBAND_FEC_REQUEST, next.isFec() ? 1 : 0);
+        ctl(Opus.OPUS_SET_PACKET_LOSS_PERC_REQUEST, next.getPacketLossPercent());
+        ctl(Opus.OPUS_SET_SIGNAL_REQUEST, switch (next.getSignal()) {
+            case VOICE -> Opus.OPUS_SIGNAL_VOICE;
+            case MUSIC -> Opus.OPUS_SIGNAL_MUSIC;
+            case AUTO -> Opus.OPUS_AUTO;
+        });
+        appliedConfig = next;
+    }
+
+    private void ctl(int request, int value) {
+        int result = Opus.INSTANCE.opus_encoder_ctl(encoder, request, value);
+        if (result != Opus.OPUS_OK) {
+            System.err.println("[Opus] encoder_ctl " + request + "=" + value + " failed: " + result);
+        }
+    }
+
+    /** Raw handle for {@code opus_encoder_ctl} calls. */
+    public PointerByReference handle() {
+        return encoder;
+    }
+
+    @Override
+    public void close() {
+        if (closed) return;
+        closed = true;
+        Opus.INSTANCE.opus_encoder_destroy(encoder);
+    }
+
+    private static final class Direct {
+        static final boolean AVAILABLE = register();
+
+        private static boolean register() {
+            try {
+                // Loads the library through the wrapper first so opus.lib is resolved the same way
+                Opus instance = Opus.INSTANCE;
+                String library = System.getProperty("opus.lib");
+                NativeLibrary lib = library != null
+                        ? NativeLibrary.getInstance(library)
+                        : NativeLibrary.getInstance("opus");
+                Native.register(Direct.class, lib);
+                return instance != null;
+            } catch (Throwable t) {
+                System.out.println("[Opus] Direct encode mapping unavailable, using interface mapping: " + t.getMessage());
+                return false;
+            }
+        }
+
+        static native int opus_encode(Pointer st, ShortBuffer pcm, int frameSize, ByteBuffer data, int maxBytes);
+    }
+}
@@ -0,0 +1,122 @@
+package com.github.imagineforgee.selfbotlib.voice.audio;
+
+/**
+ * Opus encoder settings, applied with {@code opus_encoder_ctl}. Instances are immutable; the
+ * {@code with} methods return modified copies, so a config can be shared between modes and
+ * swapped while streaming.
+ * <pre>
+ * OpusEncoderConfig lowCpu = OpusEncoderConfig.DEFAULT.withComplexity(3).withBitrate(48000);
+ * </pre>
+ */
+public final class OpusEncoderConfig {
+    public enum Signal { AUTO, VOICE, MUSIC }
+
+    /** Lets the encoder pick the bitrate from the channel count and sample rate. */
+    public static final int BITRATE_AUTO = -1;
+
+    /** 64 kbps VBR at full complexity, with FEC covering 5% loss. */
+    public static final OpusEncoderConfig DEFAULT = new OpusEncoderConfig(64000, true, 10, true, 5, Signal.AUTO);
+
+    private final int bitrate;
+    private final boolean vbr;
+    private final int complexity;
+    private final boolean fec;
+    private final int packetLossPercent;
+    private final Signal signal;
+
+    private OpusEncoderConfig(int bitrate, boolean vbr, int complexity, boolean fec, int packetLossPercent, Signal signal) {
+        this.bitrate = bitrate;
+        this.vbr = vbr;
+        this.complexity = complexity;
+        this.fec = fec;
+        this.packetLossPercent = packetLossPercent;
+        this.signal = signal;
+    }
+
+    /** Target bitrate in bits per second (6000 to 510000), or {@link #BITRATE_AUTO}. */
+    public OpusEncoderConfig withBitrate(int bitrate) {
+        if (bitrate != BITRATE_AUTO && (bitrate < 6000 || bitrate > 510000)) {
+            throw new IllegalArgumentException("Bitrate out of range: " + bitrate);
+        }
+        return new OpusEncoderConfig(bitrate, vbr, complexity, fec, packetLossPercent, signal);
+    }
+
+    /** Variable bitrate when true, constant when false. */
+    public OpusEncoderConfig withVbr(boolean vbr) {
+        return new OpusEncoderConfig(bitrate, vbr, complexity, fec, packetLossPercent, signal);
+    }
+
+    /** CPU spent per frame, 0 (cheapest) to 10 (best quality). */
+    public OpusEncoderConfig withComplexity(int complexity) {
+        if (complexity < 0 || complexity > 10) {
+            throw new IllegalArgumentException("Complexity must be 0-10: " + complexity);
+        }
+        return new OpusEncoderConfig(bitrate, vbr, complexity, fec, packetLossPercent, signal);
+    }
+
+    /** In-band forward error correction; only used when the expected loss is above zero. */
+    public OpusEncoderConfig withFec(boolean fec) {
+        return new OpusEncoderConfig(bitrate, vbr, complexity, fec, packetLossPercent, signal);
+    }
+
+    /** Expected packet loss, 0-100, which sizes the FEC data. */
+    public OpusEncoderConfig withPacketLossPercent(int packetLossPercent) {
+        if (packetLossPercent < 0 || packetLossPercent > 100) {
+            throw new IllegalArgumentException("Packet loss must be 0-100: " + packetLossPercent);
+        }
+        return new OpusEncoderConfig(bitrate, vbr, complexity, fec, packetLossPercent, signal);
+    }
+
+    /** Hint for the encoder's voice/music mode decision. */
+    public OpusEncoderConfig withSignal(Signal signal) {
+        return new OpusEncoderConfig(bitrate, vbr, complexity, fec, packetLossPercent, signal);
+    }
+
+    /**
+     * This config with the network's limits applied: the bitrate capped at {@code bitrateLimit}
+     * ({@link #BITRATE_AUTO} for no cap), and FEC turned on and sized for at least
+     * {@code lossPercent} when the path loses packets. Settings the network doesn't limit are
+     * kept.
+     */
+    public OpusEncoderConfig limitedTo(int bitrateLimit, int lossPercent) {
+        OpusEncoderConfig limited = this;
+        if (bitrateLimit != BITRATE_AUTO && (bitrate == BITRATE_AUTO || bitrate > bitrateLimit)) {
+            limited = limited.withBitrate(bitrateLimit);
+        }
+        if (lossPercent > 0) {
+            limited = limited.withFec(true).withPacketLossPercent(Math.max(packetLossPercent, lossPercent));
+        }
+        return limited;
+    }
+
+    public int getBitrate() {
+        return bitrate;
+    }
+
+    public boolean isVbr() {
+        return vbr;
+    }
+
+    public int getComplexity() {
+        return complexity;
+    }
+
+    public boolean isFec() {
+        return fec;
+    }
+
+    public int getPacketLossPercent() {
+        return packetLossPercent;
+    }
+
+    public Signal getSignal() {
+        return signal;
+    }
+
+    @Override
+    public String toString() {
+        return "OpusEncoderConfig{bitrate=" + (bitrate == BITRATE_AUTO ? "auto" : bitrate)
+                + ", vbr=" + vbr + ", complexity=" + complexity + ", fec=" + fec
+                + ", packetLoss=" + packetLossPercent + "%, signal=" + signal + "}";
+    }
+}
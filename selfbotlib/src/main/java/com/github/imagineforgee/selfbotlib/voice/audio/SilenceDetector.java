@@ -0,0 +1,71 @@
+package com.github.imagineforgee.selfbotlib.voice.audio;
+
+import java.nio.ShortBuffer;
+
+/**
+ * Energy-based voice activity detection for 16-bit PCM frames. A frame is voiced when its RMS
+ * level is above the threshold; silence is reported only after a hangover of quiet frames, so
+ * word endings and short pauses are still encoded. Digital silence counts as quiet at any
+ * threshold, including {@link Double#NEGATIVE_INFINITY}, and goes through the same hangover.
+ * Not thread-safe.
+ */
+public final class SilenceDetector {
+    public static final double DEFAULT_THRESHOLD_DBFS = -55;
+    public static final int DEFAULT_HANGOVER_FRAMES = 10;
+
+    private volatile double thresholdSquared;
+    private volatile int hangoverFrames;
+    private int quietFrames;
+
+    public SilenceDetector() {
+        this(DEFAULT_THRESHOLD_DBFS, DEFAULT_HANGOVER_FRAMES);
+    }
+
+    public SilenceDetector(double thresholdDbfs, int hangoverFrames) {
+        setThreshold(thresholdDbfs);
+        this.hangoverFrames = hangoverFrames;
+        // Start silent so a quiet source never turns speaking on
+        this.quietFrames = hangoverFrames;
+    }
+
+    /** RMS level, relative to full scale, below which a frame counts as quiet. */
+    public void setThreshold(double thresholdDbfs) {
+        double rms = Math.pow(10, thresholdDbfs / 20) * Short.MAX_VALUE;
+        this.thresholdSquared = rms * rms;
+    }
+
+    /** Quiet frames to keep sending before reporting silence. */
+    public void setHangoverFrames(int frames) {
+        this.hangoverFrames = frames;
+    }
+
+    /**
+     * Classifies {@code samples} interleaved samples from {@code pcm}, read with absolute
+     * gets from index 0.
+     * @return true if the frame should not be sent
+     */
+    public boolean isSilent(ShortBuffer pcm, int samples) {
+        long sum = 0;
+        for (int i = 0; i < samples; i++) {
+            int s = pcm.get(i);
+            sum += s * s;
+        }
+        return update(sum <= thresholdSquared * samples);
+    }
+
+    private boolean update(boolean quiet) {
+        if (!quiet) {
+            quietFrames = 0;
+            return false;
+        }
+        if (quietFrames < hangoverFrames) {
+            quietFrames++;
+            return false;
+        }
+        return true;
+    }
+
+    public void reset() {
+        quietFrames = hangoverFrames;
+    }
+}
@@ -0,0 +1,81 @@
+package com.github.imagineforgee.selfbotlib.voice.audio.dsp;
+
+import java.util.Arrays;
+
+/**
+ * Second-order IIR section in transposed direct form II, with coefficients from the RBJ audio
+ * EQ cookbook. Keeps separate history per channel.
+ */
+final class Biquad {
+    enum Shape { LOW_SHELF, PEAKING, HIGH_SHELF }
+
+    private float b0 = 1, b1, b2, a1, a2;
+    private final float[] z1;
+    private final float[] z2;
+
+    Biquad(int channels) {
+        this.z1 = new float[channels];
+        this.z2 = new float[channels];
+    }
+
+    void configure(Shape shape, float sampleRate, float frequency, float q, float gainDb) {
+        double a = Math.pow(10, gainDb / 40);
+        double w0 = 2 * Math.PI * frequency / sampleRate;
+        double cos = Math.cos(w0);
+        double alpha = Math.sin(w0) / (2 * q);
+
+        double nb0, nb1, nb2, na0, na1, na2;
+        switch (shape) {
+            case PEAKING -> {
+                nb0 = 1 + alpha * a;
+                nb1 = -2 * cos;
+                nb2 = 1 - alpha * a;
+                na0 = 1 + alpha / a;
+                na1 = -2 * cos;
+                na2 = 1 - alpha / a;
+            }
+            case LOW_SHELF -> {
+                double s = 2 * Math.sqrt(a) * alpha;
+                nb0 = a * ((a + 1) - (a - 1) * cos + s);
+                nb1 = 2 * a * ((a - 1) - (a + 1) * cos);
+                nb2 = a * ((a + 1) - (a - 1) * cos - s);
+                na0 = (a + 1) + (a - 1) * cos + s;
+                na1 = -2 * ((a - 1) + (a + 1) * cos);
+                na2 = (a + 1) + (a - 1) * cos - s;
+            }
+            default -> {
+                double s = 2 * Math.sqrt(a) * alpha;
+                nb0 = a * ((a + 1) + (a - 1) * cos + s);
+                nb1 = -2 * a * ((a - 1) + (a + 1) * cos);
+                nb2 = a * ((a + 1) + (a - 1) * cos - s);
+                na0 = (a + 1) - (a - 1) * cos + s;
+                na1 = 2 * ((a - 1) - (a + 1) * cos);
+                na2 = (a + 1) - (a - 1) * cos - s;
+            }
+        }
+        b0 = (float) (nb0 / na0);
+        b1 = (float) (nb1 / na0);
+        b2 = (float) (nb2 / na0);
+        a1 = (float) (na1 / na0);
+        a2 = (float) (na2 / na0);
+    }
+
+    void process(float[] samples, int channel, int offset, int length) {
+        float s1 = z1[channel];
+        float s2 = z2[channel];
+        for (int i = offset, end = offset + length; i < end; i++) {
+            float x = samples[i];
+            float y = b0 * x + s1;
+            s1 = b1 * x - a1 * y + s2;
+            s2 = b2 * x - a2 * y;
+            samples[i] = y;
+        }
+        z1[channel] = s1;
+        z2[channel] = s2;
+    }
+
+    void reset() {
+        Arrays.fill(z1, 0);
+        Arrays.fill(z2, 0);
+    }
+}
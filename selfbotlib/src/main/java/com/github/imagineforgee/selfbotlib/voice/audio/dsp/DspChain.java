@@ -0,0 +1,160 @@
+package com.github.imagineforgee.selfbotlib.voice.audio.dsp;
+
+import java.nio.ShortBuffer;
+
+/**
+ * Processing state for one audio stream: equalizer history, volume ramp and limiter envelope,
+ * driven by a shared {@link DspSettings}. Works in place on float samples in [-1, 1] and
+ * allocates nothing per block once sized. While the settings are flat, {@code process}
+ * returns immediately. Not thread-safe; use one chain per stream.
+ */
+public class DspChain {
+    private static final float BAND_Q = 1.41f;
+    private static final float LIMITER_RELEASE_SECONDS = 0.08f;
+
+    private final DspSettings settings;
+    private final int channels;
+    private final float sampleRate;
+    private final Biquad[] bands;
+    private final boolean[] bandActive;
+    private final float[] bandGains;
+    private final float releaseCoefficient;
+
+    private int seenVersion = -1;
+    private boolean flat = true;
+    private boolean anyBandActive;
+    private float targetVolume = 1;
+    private float volume = 1;
+    private float limiterThreshold = 1;
+    private float limiterGain = 1;
+    private float[][] scratch = new float[0][];
+
+    public DspChain(DspSettings settings, int channels, float sampleRate) {
+        this.settings = settings;
+        this.channels = channels;
+        this.sampleRate = sampleRate;
+        this.bands = new Biquad[settings.getBandCount()];
+        this.bandActive = new boolean[bands.length];
+        this.bandGains = new float[bands.length];
+        for (int i = 0; i < bands.length; i++) {
+            bands[i] = new Biquad(channels);
+        }
+        this.releaseCoefficient = (float) (1 - Math.exp(-1 / (LIMITER_RELEASE_SECONDS * sampleRate)));
+    }
+
+    /** True if the settings were flat at the last refresh, so {@code process} does nothing. */
+    public boolean isFlat() {
+        refresh();
+        return flat;
+    }
+
+    /**
+     * Processes {@code length} samples from {@code offset} in each channel array.
+     * @return false if nothing was changed because the chain is flat
+     */
+    public boolean process(float[][] samples, int offset, int length) {
+        refresh();
+        if (flat) return false;
+
+        if (anyBandActive) {
+            for (int b = 0; b < bands.length; b++) {
+                if (!bandActive[b]) continue;
+                for (int ch = 0; ch < channels; ch++) {
+                    bands[b].process(samples[ch], ch, offset, length);
+                }
+            }
+        }
+
+        // Volume ramps across the block so changes don't click; the limiter follows it
+        float gain = volume;
+        float step = (targetVolume - volume) / length;
+        float limiter = limiterGain;
+        for (int i = offset, end = offset + length; i < end; i++) {
+            gain += step;
+            float peak = 0;
+            for (int ch = 0; ch < channels; ch++) {
+                float s = samples[ch][i] * gain;
+                samples[ch][i] = s;
+                peak = Math.max(peak, Math.abs(s));
+            }
+            limiter += (1 - limiter) * releaseCoefficient;
+            if (peak * limiter > limiterThreshold) {
+                limiter = limiterThreshold / peak;
+            }
+            if (limiter < 1) {
+                for (int ch = 0; ch < channels; ch++) {
+                    samples[ch][i] *= limiter;
+                }
+            }
+        }
+        volume = targetVolume;
+        limiterGain = limiter;
+        return true;
+    }
+
+    /**
+     * Processes {@code frames} interleaved 16-bit frames of {@code pcm}, read and written with
+     * absolute indexes from 0.
+     * @return false if nothing was changed because the chain is flat
+     */
+    public boolean process(ShortBuffer pcm, int frames) {
+        refresh();
+        if (flat) return false;
+
+        if (scratch.length != channels || scratch[0].length < frames) {
+            scratch = new float[channels][frames];
+        }
+        for (int i = 0; i < frames; i++) {
+            for (int ch = 0; ch < channels; ch++) {
+                scratch[ch][i] = pcm.get(i * channels + ch) * (1f / 32768);
+            }
+        }
+        process(scratch, 0, frames);
+        for (int i = 0; i < frames; i++) {
+            for (int ch = 0; ch < channels; ch++) {
+                int s = Math.round(scratch[ch][i] * 32768);
+                pcm.put(i * channels + ch, (short) Math.max(Short.MIN_VALUE, Math.min(Short.MAX_VALUE, s)));
+            }
+        }
+        return true;
+    }
+
+    /** Clears filter history and the limiter, e.g. after a seek. */
+    public void reset() {
+        for (Biquad band : bands) {
+            band.reset();
+        }
+        limiterGain = 1;
+    }
+
+    private void refresh() {
+        int version = settings.getVersion();
+        if (version == seenVersion) return;
+        seenVersion = version;
+
+        boolean wasFlat = flat;
+        flat = settings.isFlat();
+        targetVolume = settings.getVolume();
+        limiterThreshold = (float) Math.pow(10, settings.getLimiterThreshold() / 20);
+
+        settings.copyBandGains(bandGains);
+        anyBandActive = false;
+        for (int b = 0; b < bands.length; b++) {
+            bandActive[b] = bandGains[b] != 0;
+            if (!bandActive[b]) continue;
+            anyBandActive = true;
+            Biquad.Shape shape = b == 0 ? Biquad.Shape.LOW_SHELF
+                    : b == bands.length - 1 ? Biquad.Shape.HIGH_SHELF
+                    : Biquad.Shape.PEAKING;
+            // Keep every band below Nyquist for low sample rates
+            float frequency = Math.min(settings.getBandFrequency(b), sampleRate * 0.45f);
+            bands[b].configure(shape, sampleRate, frequency, BAND_Q, bandGains[b]);
+        }
+
+        if (wasFlat && !flat) {
+            // Start from silence history and unity gain rather than stale state
+            reset();
+            volume = 1;
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package com.github.imagineforgee.selfbotlib.voice.audio.dsp;
+
+import com.sedmelluq.discord.lavaplayer.filter.AudioFilter;
+import com.sedmelluq.discord.lavaplayer.filter.FloatPcmAudioFilter;
+import com.sedmelluq.discord.lavaplayer.filter.PcmFilterFactory;
+import com.sedmelluq.discord.lavaplayer.filter.UniversalPcmAudioFilter;
+import com.sedmelluq.discord.lavaplayer.format.AudioDataFormat;
+import com.sedmelluq.discord.lavaplayer.track.AudioTrack;
+
+import java.util.List;
+
+/**
+ * Runs a {@link DspChain} inside lavaplayer's PCM filter chain, one chain per track. Setting
+ * any filter factory makes lavaplayer decode Opus sources it would otherwise pass through, so
+ * install this only while {@link DspSettings#isFlat()} is false.
+ */
+public class DspFilterFactory implements PcmFilterFactory {
+    private final DspSettings settings;
+
+    public DspFilterFactory(DspSettings settings) {
+        this.settings = settings;
+    }
+
+    @Override
+    public List<AudioFilter> buildChain(AudioTrack track, AudioDataFormat format, UniversalPcmAudioFilter output) {
+        return List.of(new DspAudioFilter(new DspChain(settings, format.channelCount, format.sampleRate), output));
+    }
+
+    private static final class DspAudioFilter implements FloatPcmAudioFilter {
+        private final DspChain chain;
+        private final FloatPcmAudioFilter downstream;
+
+        DspAudioFilter(DspChain chain, FloatPcmAudioFilter downstream) {
+            this.chain = chain;
+            this.downstream = downstream;
+        }
+
+        @Override
+        public void process(float[][] input, int offset, int length) throws InterruptedException {
+            chain.process(input, offset, length);
+            downstream.process(input, offset, length);
+        }
+
+        @Override
+        public void seekPerformed(long requestedTime, long providedTime) {
+            chain.reset();
+        }
+
+        @Override
+        public void flush() {
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
@@ -0,0 +1,118 @@
+package com.github.imagineforgee.selfbotlib.voice.audio.dsp;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Parameters for a {@link DspChain}: a 10-band equalizer, volume and an output limiter. Safe
+ * to change from any thread while audio is playing; each chain picks up changes at its next
+ * block. A chain with no EQ gain and unity volume is flat and leaves audio untouched, which
+ * lets callers skip processing, or decoding, entirely.
+ */
+public class DspSettings {
+    private static final float[] BAND_FREQUENCIES = {31, 62, 125, 250, 500, 1000, 2000, 4000, 8000, 16000};
+    public static final float MAX_BAND_GAIN_DB = 12;
+    public static final float MAX_VOLUME = 4;
+    public static final float DEFAULT_LIMITER_THRESHOLD_DB = -1;
+
+    private final float[] bandGains = new float[BAND_FREQUENCIES.length];
+    private volatile float volume = 1;
+    private volatile float limiterThresholdDb = DEFAULT_LIMITER_THRESHOLD_DB;
+    private volatile int version;
+    private final List<Runnable> listeners = new CopyOnWriteArrayList<>();
+
+    public int getBandCount() {
+        return BAND_FREQUENCIES.length;
+    }
+
+    public float getBandFrequency(int band) {
+        return BAND_FREQUENCIES[band];
+    }
+
+    /** Boost or cut for one band, clamped to +/-{@value #MAX_BAND_GAIN_DB} dB. */
+    public void setBandGain(int band, float gainDb) {
+        synchronized (bandGains) {
+            bandGains[band] = Math.max(-MAX_BAND_GAIN_DB, Math.min(MAX_BAND_GAIN_DB, gainDb));
+        }
+        changed();
+    }
+
+    public float getBandGain(int band) {
+        synchronized (bandGains) {
+            return bandGains[band];
+        }
+    }
+
+    /** Linear gain, 1 for unchanged, clamped to 0-{@value #MAX_VOLUME}. */
+    public void setVolume(float volume) {
+        this.volume = Math.max(0, Math.min(MAX_VOLUME, volume));
+        changed();
+    }
+
+    public float getVolume() {
+        return volume;
+    }
+
+    /** Peak level the limiter holds the output to, in dBFS. */
+    public void setLimiterThreshold(float thresholdDb) {
+        this.limiterThresholdDb = Math.min(0, thresholdDb);
+        changed();
+    }
+
+    public float getLimiterThreshold() {
+        return limiterThresholdDb;
+    }
+
+    /** Flattens the EQ and restores unity volume. */
+    public void reset() {
+        synchronized (bandGains) {
+            Arrays.fill(bandGains, 0);
+        }
+        this.volume = 1;
+        changed();
+    }
+
+    public boolean isFlat() {
+        if (volume != 1) return false;
+        synchronized (bandGains) {
+            for (float gain : bandGains) {
+                if (gain != 0) return false;
+            }
+        }
+        return true;
+    }
+
+    /** Called on the changing thread after every change. */
+    public void addListener(Runnable listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(Runnable listener) {
+        listeners.remove(listener);
+    }
+
+    int getVersion() {
+        return version;
+    }
+
+    /** Copies the band gains into {@code out}, which must have {@link #getBandCount()} entries. */
+    void copyBandGains(float[] out) {
+        synchronized (bandGains) {
+            System.arraycopy(bandGains, 0, out, 0, bandGains.length);
+        }
+    }
+
+    private void changed() {
+        synchronized (bandGains) {
+            version++;
+        }
+        for (Runnable listener : listeners) {
+            try {
+                listener.run();
+            } catch (Exception e) {
+                System.err.println("[DSP] Listener error: " + e.getMessage());
+            }
+        }
+    }
+}
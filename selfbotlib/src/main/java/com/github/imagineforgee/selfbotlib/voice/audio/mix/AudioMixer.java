@@ -0,0 +1,193 @@
+package com.github.imagineforgee.selfbotlib.voice.audio.mix;
+
+import java.nio.ShortBuffer;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Sums any number of {@link MixerSource}s into one 48 kHz stereo stream, one 20 ms tick at a
+ * time, in float. Each source sits in a {@link MixerChannel} with its own gain, fades and
+ * ducking role. The sum goes through a soft limiter: a peak envelope with instant attack keeps
+ * it under full scale, and a tanh knee rounds off what gets close. Once channels are added,
+ * {@link #mix} allocates nothing. Ticks must come from a single thread; channels may be added,
+ * removed and adjusted from any thread.
+ */
+public class AudioMixer {
+    public static final int FRAME_SAMPLES = 960;
+    public static final int TICKS_PER_SECOND = 50;
+
+    // Soft knee: untouched below, tanh-shaped approach to full scale above
+    private static final float KNEE = 0.75f;
+    private static final float LIMITER_RELEASE_SECONDS = 0.1f;
+    // Per-tick smoothing of the duck gain: about 60 ms down, 400 ms back up
+    private static final float DUCK_ATTACK = 0.3f;
+    private static final float DUCK_RELEASE = 0.05f;
+
+    private volatile MixerChannel[] channels = new MixerChannel[0];
+    private final float[] mixLeft = new float[FRAME_SAMPLES];
+    private final float[] mixRight = new float[FRAME_SAMPLES];
+    private final float releaseCoefficient =
+            (float) (1 - Math.exp(-1 / (LIMITER_RELEASE_SECONDS * TICKS_PER_SECOND * FRAME_SAMPLES)));
+
+    private volatile float duckGain = (float) Math.pow(10, -12 / 20.0);
+    private volatile float duckThresholdSquared = square((float) Math.pow(10, -45 / 20.0));
+    private float duckEnvelope = 1;
+    private float limiterGain = 1;
+
+    public MixerChannel addSource(MixerSource source) {
+        MixerChannel channel = new MixerChannel(source);
+        synchronized (this) {
+            MixerChannel[] current = channels;
+            MixerChannel[] next = Arrays.copyOf(current, current.length + 1);
+            next[current.length] = channel;
+            channels = next;
+        }
+        return channel;
+    }
+
+    /** Removes a channel at once; use {@link MixerChannel#fadeOut} to remove it gently. */
+    public synchronized void removeSource(MixerChannel channel) {
+        MixerChannel[] current = channels;
+        int index = Arrays.asList(current).indexOf(channel);
+        if (index < 0) return;
+        MixerChannel[] next = new MixerChannel[current.length - 1];
+        System.arraycopy(current, 0, next, 0, index);
+        System.arraycopy(current, index + 1, next, index, current.length - index - 1);
+        channels = next;
+    }
+
+    /** Fades {@code from} out and removes it while fading {@code to} in from silence. */
+    public void crossfade(MixerChannel from, MixerChannel to, Duration duration) {
+        to.fadeIn(duration);
+        from.fadeOut(duration, true);
+    }
+
+    public List<MixerChannel> getChannels() {
+        return List.of(channels);
+    }
+
+    public int getChannelCount() {
+        return channels.length;
+    }
+
+    /** How far duckable channels are turned down while a ducker is active, in dB (negative). */
+    public void setDuckLevel(double db) {
+        this.duckGain = (float) Math.pow(10, Math.min(0, db) / 20);
+    }
+
+    /** RMS level in dBFS above which a ducker channel counts as active. */
+    public void setDuckThreshold(double dbfs) {
+        this.duckThresholdSquared = square((float) Math.pow(10, dbfs / 20));
+    }
+
+    /**
+     * Mixes one tick into {@code pcm} as interleaved 16-bit stereo, written with absolute
+     * indexes from 0.
+     * @return false if no channel had audio; {@code pcm} then holds silence
+     */
+    public boolean mix(ShortBuffer pcm) {
+        boolean any = mix(mixLeft, mixRight);
+        for (int i = 0; i < FRAME_SAMPLES; i++) {
+            pcm.put(2 * i, toShort(mixLeft[i]));
+            pcm.put(2 * i + 1, toShort(mixRight[i]));
+        }
+        return any;
+    }
+
+    /**
+     * Mixes one tick into {@code left} and {@code right}, {@link #FRAME_SAMPLES} each.
+     * @return false if no channel had audio; the arrays then hold silence
+     */
+    public boolean mix(float[] left, float[] right) {
+        MixerChannel[] current = channels;
+        Arrays.fill(left, 0, FRAME_SAMPLES, 0);
+        Arrays.fill(right, 0, FRAME_SAMPLES, 0);
+
+        boolean duck = false;
+        boolean any = false;
+        float threshold = duckThresholdSquared;
+        for (MixerChannel channel : current) {
+            float meanSquare = channel.read(FRAME_SAMPLES);
+            if (meanSquare >= 0) {
+                any = true;
+                if (channel.isDucker() && meanSquare > threshold) duck = true;
+            }
+        }
+
+        float duckTarget = duck ? duckGain : 1;
+        duckEnvelope += (duckTarget - duckEnvelope) * (duckTarget < duckEnvelope ? DUCK_ATTACK : DUCK_RELEASE);
+
+        boolean anyDone = false;
+        for (MixerChannel channel : current) {
+            // Ramp from last tick's gain to this one's across the frame
+            float end = channel.advance() * (channel.isDuckable() ? duckEnvelope : 1);
+            float start = channel.appliedGain < 0 ? end : channel.appliedGain;
+            channel.appliedGain = end;
+            anyDone |= channel.isDone();
+            if (channel.active) accumulate(channel.left, channel.right, left, right, start, end);
+        }
+
+        limit(left, right);
+        if (anyDone) removeDone();
+        return any;
+    }
+
+    private static void accumulate(float[] srcLeft, float[] srcRight, float[] left, float[] right,
+                                   float start, float end) {
+        if (start == end) {
+            if (end == 0) return;
+            for (int i = 0; i < FRAME_SAMPLES; i++) {
+                left[i] += srcLeft[i] * end;
+                right[i] += srcRight[i] * end;
+            }
+            return;
+        }
+        float gain = start;
+        float step = (end - start) / FRAME_SAMPLES;
+        for (int i = 0; i < FRAME_SAMPLES; i++) {
+            gain += step;
+            left[i] += srcLeft[i] * gain;
+            right[i] += srcRight[i] * gain;
+        }
+    }
+
+    private void limit(float[] left, float[] right) {
+        float g = limiterGain;
+        for (int i = 0; i < FRAME_SAMPLES; i++) {
+            float l = left[i];
+            float r = right[i];
+            float peak = Math.max(Math.abs(l), Math.abs(r));
+            g += (1 - g) * releaseCoefficient;
+            if (peak * g > 1) g = 1 / peak;
+            left[i] = softKnee(l * g);
+            right[i] = softKnee(r * g);
+        }
+        limiterGain = g;
+    }
+
+    private static float softKnee(float x) {
+        float magnitude = Math.abs(x);
+        if (magnitude <= KNEE) return x;
+        float shaped = KNEE + (1 - KNEE) * (float) Math.tanh((magnitude - KNEE) / (1 - KNEE));
+        return x < 0 ? -shaped : shaped;
+    }
+
+    private synchronized void removeDone() {
+        List<MixerChannel> kept = new ArrayList<>(channels.length);
+        for (MixerChannel channel : channels) {
+            if (!channel.isDone()) kept.add(channel);
+        }
+        channels = kept.toArray(new MixerChannel[0]);
+    }
+
+    private static short toShort(float sample) {
+        int s = Math.round(sample * 32767);
+        return (short) Math.max(Short.MIN_VALUE, Math.min(Short.MAX_VALUE, s));
+    }
+
+    private static float square(float x) {
+        return x * x;
+    }
+}
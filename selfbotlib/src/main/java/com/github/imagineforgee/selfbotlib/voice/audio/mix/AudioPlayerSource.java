@@ -0,0 +1,57 @@
+package com.github.imagineforgee.selfbotlib.voice.audio.mix;
+
+import com.sedmelluq.discord.lavaplayer.format.StandardAudioDataFormats;
+import com.sedmelluq.discord.lavaplayer.player.AudioPlayer;
+import com.sedmelluq.discord.lavaplayer.track.playback.MutableAudioFrame;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.function.Supplier;
+
+/**
+ * Pulls decoded frames from a lavaplayer {@link AudioPlayer} into an {@link AudioMixer}. The
+ * player's manager must output {@link StandardAudioDataFormats#DISCORD_PCM_S16_LE}; other
+ * formats are rejected frame by frame. The frame buffer is reused, so reading copies only.
+ */
+public class AudioPlayerSource implements MixerSource {
+    private final Supplier<AudioPlayer> player;
+    private final ByteBuffer buffer = ByteBuffer.allocate(StandardAudioDataFormats.DISCORD_PCM_S16_LE.maximumChunkSize())
+            .order(ByteOrder.LITTLE_ENDIAN);
+    private final MutableAudioFrame frame = new MutableAudioFrame();
+    private Runnable onFrame;
+
+    public AudioPlayerSource(AudioPlayer player) {
+        this(() -> player);
+    }
+
+    /**
+     * @param player looked up every tick, for callers that switch players underneath
+     */
+    public AudioPlayerSource(Supplier<AudioPlayer> player) {
+        this.player = player;
+        frame.setBuffer(buffer);
+    }
+
+    /** Runs on the mixer thread after each frame read, e.g. for preloading the next track. */
+    public void setFrameCallback(Runnable onFrame) {
+        this.onFrame = onFrame;
+    }
+
+    @Override
+    public boolean read(float[] left, float[] right, int frames) {
+        buffer.clear();
+        if (!player.get().provide(frame)) return false;
+        if (!StandardAudioDataFormats.DISCORD_PCM_S16_LE.equals(frame.getFormat())) return false;
+        int available = Math.min(frames, frame.getDataLength() / 4);
+        for (int i = 0; i < available; i++) {
+            left[i] = buffer.getShort(4 * i) * (1f / 32768);
+            right[i] = buffer.getShort(4 * i + 2) * (1f / 32768);
+        }
+        for (int i = available; i < frames; i++) {
+            left[i] = 0;
+            right[i] = 0;
+        }
+        if (onFrame != null) onFrame.run();
+        return true;
+    }
+}
@@ -0,0 +1,138 @@
+package com.github.imagineforgee.selfbotlib.voice.audio.mix;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * A source's slot in an {@link AudioMixer}. Settings may be changed from any thread and take
+ * effect at the next tick, ramped across it so they don't click. Fades are equal-power, so a
+ * crossfade between unrelated material keeps a steady loudness.
+ */
+public final class MixerChannel {
+    private final MixerSource source;
+
+    private volatile float gain = 1;
+    private volatile boolean ducker;
+    private volatile boolean duckable = true;
+    private final AtomicReference<Fade> pendingFade = new AtomicReference<>();
+    private volatile float level;
+
+    // Mixer thread only
+    final float[] left = new float[AudioMixer.FRAME_SAMPLES];
+    final float[] right = new float[AudioMixer.FRAME_SAMPLES];
+    float appliedGain = -1;
+    boolean active;
+    private float fadePosition = 1;
+    private float fadeStep;
+    private boolean removeWhenFaded;
+    boolean removed;
+
+    MixerChannel(MixerSource source) {
+        this.source = source;
+    }
+
+    public MixerSource getSource() {
+        return source;
+    }
+
+    /** Linear gain, 0 to 4. */
+    public void setGain(float gain) {
+        this.gain = Math.max(0, Math.min(4, gain));
+    }
+
+    public float getGain() {
+        return gain;
+    }
+
+    public void setGainDb(double db) {
+        setGain((float) Math.pow(10, db / 20));
+    }
+
+    /** While this channel has signal above the mixer's duck threshold, duckable channels are turned down. */
+    public void setDucker(boolean ducker) {
+        this.ducker = ducker;
+    }
+
+    public boolean isDucker() {
+        return ducker;
+    }
+
+    /** Whether this channel is turned down while a ducker is active; true by default. */
+    public void setDuckable(boolean duckable) {
+        this.duckable = duckable;
+    }
+
+    public boolean isDuckable() {
+        return duckable;
+    }
+
+    /** Fades in from silence. */
+    public void fadeIn(Duration duration) {
+        pendingFade.set(new Fade(true, true, ticks(duration), false));
+    }
+
+    /** Fades out from the current level, then removes the channel from the mixer if {@code remove}. */
+    public void fadeOut(Duration duration, boolean remove) {
+        pendingFade.set(new Fade(false, false, ticks(duration), remove));
+    }
+
+    /** Peak level of the last tick before gain, 0 to 1. */
+    public float getLevel() {
+        return level;
+    }
+
+    private static int ticks(Duration duration) {
+        return (int) Math.max(1, duration.toNanos() / (1_000_000_000L / AudioMixer.TICKS_PER_SECOND));
+    }
+
+    /** Reads this tick's audio and measures it; returns the mean square, or -1 if there is none. */
+    float read(int frames) {
+        active = source.read(left, right, frames);
+        if (!active) {
+            level = 0;
+            return -1;
+        }
+        float peak = 0;
+        float sum = 0;
+        for (int i = 0; i < frames; i++) {
+            float l = left[i];
+            float r = right[i];
+            peak = Math.max(peak, Math.max(Math.abs(l), Math.abs(r)));
+            sum += l * l + r * r;
+        }
+        level = peak;
+        return sum / (2 * frames);
+    }
+
+    /**
+     * Advances fades by one tick and returns the gain to reach by its end, before ducking.
+     */
+    float advance() {
+        // Taken in one step, so a fade set between a read and a clear isn't lost
+        Fade fade = pendingFade.getAndSet(null);
+        if (fade != null) {
+            if (fade.fromSilence) fadePosition = 0;
+            fadeStep = (fade.in ? 1f : -1f) / fade.ticks;
+            removeWhenFaded = fade.remove;
+        }
+        if (fadeStep != 0) {
+            fadePosition += fadeStep;
+            if (fadePosition >= 1) {
+                fadePosition = 1;
+                fadeStep = 0;
+            } else if (fadePosition <= 0) {
+                fadePosition = 0;
+                fadeStep = 0;
+                if (removeWhenFaded) removed = true;
+            }
+        }
+        // Equal-power curve
+        return gain * (float) Math.sin(fadePosition * (Math.PI / 2));
+    }
+
+    boolean isDone() {
+        return removed || source.isFinished();
+    }
+
+    private record Fade(boolean in, boolean fromSilence, int ticks, boolean remove) {}
+}
@@ -0,0 +1,190 @@
+package com.github.imagineforgee.selfbotlib.voice.audio.mix;
+
+import com.github.imagineforgee.selfbotlib.client.VoiceClient;
+import com.github.imagineforgee.selfbotlib.commands.CommandContext;
+import com.github.imagineforgee.selfbotlib.media.FrameRing;
+import com.github.imagineforgee.selfbotlib.voice.OpusUdpStreamer;
+import com.github.imagineforgee.selfbotlib.voice.VoiceMode;
+import com.github.imagineforgee.selfbotlib.voice.audio.OpusEncoder;
+import com.github.imagineforgee.selfbotlib.voice.audio.OpusEncoderConfig;
+import com.github.imagineforgee.selfbotlib.voice.audio.SilenceDetector;
+import tomp2p.opuswrapper.Opus;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.ShortBuffer;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Sends the output of an {@link AudioMixer}, so several sources (music, a capture device,
+ * soundboard clips) share one connection. The mix is encoded once per frame; a few frames are
+ * kept queued ahead of the streamer, and frames where nothing plays are sent as silence.
+ * Sources can be added before or after {@link #startMixing()}.
+ */
+public class MixerMode implements VoiceMode {
+    // Frames mixed ahead of the send clock; each is latency added to every source
+    private static final int MIX_AHEAD_FRAMES = 3;
+    private static final long FRAME_WAIT_NANOS = 5_000_000;
+
+    private final AudioMixer mixer = new AudioMixer();
+    private final SilenceDetector silenceDetector = new SilenceDetector();
+    private final AtomicBoolean mixing = new AtomicBoolean(false);
+    private VoiceClient voiceClient;
+    private OpusUdpStreamer streamer;
+    private volatile Thread mixerThread;
+    private volatile OpusEncoderConfig encoderConfig = OpusEncoderConfig.DEFAULT;
+    private volatile int bitrateLimit = OpusEncoderConfig.BITRATE_AUTO;
+    private volatile int lossHint;
+    private volatile OpusEncoder encoder;
+
+    public AudioMixer getMixer() {
+        return mixer;
+    }
+
+    /**
+     * Mix level below which output counts as silence and is neither encoded nor sent; use
+     * {@link Double#NEGATIVE_INFINITY} to send everything but digital silence.
+     */
+    public void setSilenceThreshold(double dbfs) {
+        silenceDetector.setThreshold(dbfs);
+    }
+
+    @Override
+    public void setEncoderConfig(OpusEncoderConfig config) {
+        this.encoderConfig = config;
+        applyEncoderConfig();
+    }
+
+    @Override
+    public void setBitrateLimit(int bitrate) {
+        this.bitrateLimit = bitrate;
+        applyEncoderConfig();
+    }
+
+    @Override
+    public void setLossHint(int percent) {
+        this.lossHint = percent;
+        applyEncoderConfig();
+    }
+
+    private OpusEncoderConfig effectiveEncoderConfig() {
+        return encoderConfig.limitedTo(bitrateLimit, lossHint);
+    }
+
+    private void applyEncoderConfig() {
+        OpusEncoder current = encoder;
+        if (current != null) current.setConfig(effectiveEncoderConfig());
+    }
+
+    @Override
+    public void setVoiceClient(VoiceClient client) {
+        this.voiceClient = client;
+    }
+
+    @Override
+    public void setUdpStreamer(OpusUdpStreamer udpStreamer) {
+        this.streamer = udpStreamer;
+    }
+
+    @Override
+    public void start(String ignored, CommandContext ctx) {
+        startMixing();
+    }
+
+    public void startMixing() {
+        if (!mixing.compareAndSet(false, true)) {
+            System.out.println("[Mixer] Already mixing");
+            return;
+        }
+
+        OpusUdpStreamer udpStreamer = voiceClient != null ? voiceClient.getUdpStreamer() : streamer;
+        if (udpStreamer == null) {
+            System.err.println("[Mixer] Streamer not ready");
+            mixing.set(false);
+            return;
+        }
+        streamer = udpStreamer;
+
+        OpusEncoder encoder;
+        try {
+            encoder = new OpusEncoder(Opus.OPUS_APPLICATION_AUDIO, effectiveEncoderConfig());
+        } catch (IllegalStateException e) {
+            System.err.println("[Mixer] " + e.getMessage());
+            mixing.set(false);
+            return;
+        }
+        this.encoder = encoder;
+        // Picks up a config set while the encoder was being created
+        encoder.setConfig(effectiveEncoderConfig());
+
+        FrameRing ring = udpStreamer.getFrameRing();
+        Thread thread = new Thread(() -> mixFrames(ring, encoder), "audio-mixer");
+        thread.setDaemon(true);
+        mixerThread = thread;
+        udpStreamer.start();
+        thread.start();
+        System.out.println("[Mixer] Mixing started");
+    }
+
+    private void mixFrames(FrameRing ring, OpusEncoder encoder) {
+        ShortBuffer pcm = ByteBuffer.allocateDirect(AudioMixer.FRAME_SAMPLES * 2 * 2)
+                .order(ByteOrder.nativeOrder()).asShortBuffer();
+        silenceDetector.reset();
+        long frames = 0;
+        long silent = 0;
+        try {
+            while (mixing.get() && mixerThread == Thread.currentThread()) {
+                if (ring.size() >= MIX_AHEAD_FRAMES) {
+                    LockSupport.parkNanos(FRAME_WAIT_NANOS);
+                    continue;
+                }
+                ByteBuffer slot = ring.claim();
+                if (slot == null) {
+                    LockSupport.parkNanos(FRAME_WAIT_NANOS);
+                    continue;
+                }
+                boolean playing = mixer.mix(pcm);
+                frames++;
+                // Silence is queued as an empty frame: not encoded and not sent
+                if (!playing || silenceDetector.isSilent(pcm, AudioMixer.FRAME_SAMPLES * 2)) {
+                    ring.publish(0);
+                    silent++;
+                    continue;
+                }
+                int result = encoder.encode(pcm, slot);
+                if (result > 0) {
+                    ring.publish(result);
+                } else {
+                    ring.publish(0);
+                    System.err.println("[Mixer] Encode error: " + result);
+                }
+            }
+        } catch (Exception e) {
+            System.err.println("[Mixer] Mix error: " + e.getMessage());
+        } finally {
+            if (mixerThread == Thread.currentThread()) {
+                mixing.set(false);
+            }
+            this.encoder = null;
+            encoder.close();
+            System.out.println("[Mixer] Mixing stopped after " + frames + " frames, " + silent + " silent");
+        }
+    }
+
+    @Override
+    public void stop() {
+        mixing.set(false);
+        Thread thread = mixerThread;
+        mixerThread = null;
+        if (thread != null) thread.interrupt();
+        if (streamer != null) streamer.stop();
+    }
+
+    @Override public void joinChannel(String guildId, String channelId) {}
+    @Override public void shutdown() { stop(); }
+    @Override public boolean isActive() { return mixing.get(); }
+    @Override public void skip() {}
+    @Override public void clear() {}
+    @Override public void initialize() { System.out.println("[Mixer] MixerMode ready"); }
+}
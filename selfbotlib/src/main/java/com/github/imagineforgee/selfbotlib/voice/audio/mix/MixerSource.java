@@ -0,0 +1,18 @@
+package com.github.imagineforgee.selfbotlib.voice.audio.mix;
+
+/**
+ * One input of an {@link AudioMixer}: 48 kHz stereo, pulled one 20 ms frame per tick.
+ */
+public interface MixerSource {
+    /**
+     * Writes the next {@code frames} samples per channel into {@code left} and {@code right}
+     * from index 0, as floats in [-1, 1]. Called on the mixer thread; must not block.
+     * @return false if nothing is available this tick, in which case the arrays are ignored
+     */
+    boolean read(float[] left, float[] right, int frames);
+
+    /** True once the source will never produce again; the mixer then drops it. */
+    default boolean isFinished() {
+        return false;
+    }
+}
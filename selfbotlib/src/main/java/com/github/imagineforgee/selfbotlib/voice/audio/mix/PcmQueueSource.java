@@ -0,0 +1,99 @@
+package com.github.imagineforgee.selfbotlib.voice.audio.mix;
+
+import java.nio.ShortBuffer;
+
+/**
+ * A {@link MixerSource} fed by a producer on its own clock, e.g. a capture thread. Interleaved
+ * 16-bit stereo goes into a lock-free single-producer, single-consumer ring; the mixer reads a
+ * frame per tick once {@link #PRIME_FRAMES} are queued, and after running dry waits to refill
+ * that far again rather than stuttering frame by frame.
+ */
+public class PcmQueueSource implements MixerSource {
+    public static final int PRIME_FRAMES = 2;
+
+    private final short[] ring;
+    private final int mask;
+    private final int frameSamples;
+    private volatile long writePos;
+    private volatile long readPos;
+    private volatile boolean finished;
+    private boolean primed;
+    private volatile long overflows;
+    private volatile long underruns;
+
+    /**
+     * @param capacityFrames 20 ms frames the queue holds before writes are dropped
+     */
+    public PcmQueueSource(int capacityFrames) {
+        this.frameSamples = AudioMixer.FRAME_SAMPLES * 2;
+        int size = Integer.highestOneBit(Math.max(capacityFrames, PRIME_FRAMES + 1) * frameSamples - 1) << 1;
+        this.ring = new short[size];
+        this.mask = size - 1;
+    }
+
+    /**
+     * Appends {@code frames} interleaved stereo frames from {@code pcm}, read with absolute
+     * indexes from 0. Producer thread only.
+     * @return false if there was no room; the frames are dropped
+     */
+    public boolean write(ShortBuffer pcm, int frames) {
+        int samples = frames * 2;
+        long w = writePos;
+        if (w + samples - readPos > ring.length) {
+            overflows++;
+            return false;
+        }
+        for (int i = 0; i < samples; i++) {
+            ring[(int) (w + i) & mask] = pcm.get(i);
+        }
+        writePos = w + samples;
+        return true;
+    }
+
+    /** Queued audio in 20 ms frames, rounded down. */
+    public int size() {
+        return (int) ((writePos - readPos) / frameSamples);
+    }
+
+    /** Marks the end of the stream; the mixer drops the source once it has drained. */
+    public void finish() {
+        finished = true;
+    }
+
+    @Override
+    public boolean read(float[] left, float[] right, int frames) {
+        int samples = frames * 2;
+        long r = readPos;
+        long available = writePos - r;
+        if (!primed) {
+            if (available < (long) PRIME_FRAMES * frameSamples && !finished) return false;
+            primed = true;
+        }
+        if (available < samples) {
+            primed = false;
+            if (!finished) underruns++;
+            return false;
+        }
+        for (int i = 0; i < frames; i++) {
+            left[i] = ring[(int) (r + 2 * i) & mask] * (1f / 32768);
+            right[i] = ring[(int) (r + 2 * i + 1) & mask] * (1f / 32768);
+        }
+        readPos = r + samples;
+        return true;
+    }
+
+    @Override
+    public boolean isFinished() {
+        return finished && writePos - readPos < frameSamples;
+    }
+
+    /** Writes dropped because the mixer was not keeping up. */
+    public long getOverflowCount() {
+        return overflows;
+    }
+
+    /** Ticks the producer had nothing ready for. */
+    public long getUnderrunCount() {
+        return underruns;
+    }
+}
@@ -2,8 +2,13 @@ package com.github.imagineforgee.selfbotlib.voice.audio.music;
 
 import com.github.imagineforgee.selfbotlib.client.VoiceClient;
 import com.github.imagineforgee.selfbotlib.commands.CommandContext;
+import com.github.imagineforgee.selfbotlib.media.FrameRing;
 import com.github.imagineforgee.selfbotlib.voice.OpusUdpStreamer;
-import com.github.imagineforgee.selfbotlib.voice.SpeakingFlag;
+import com.github.imagineforgee.selfbotlib.voice.audio.OpusEncoderConfig;
+import com.github.imagineforgee.selfbotlib.voice.audio.dsp.DspFilterFactory;
+import com.github.imagineforgee.selfbotlib.voice.audio.dsp.DspSettings;
+import com.github.imagineforgee.selfbotlib.voice.audio.mix.AudioPlayerSource;
+import com.github.imagineforgee.selfbotlib.voice.audio.music.track.TrackLoadCache;
 import com.github.imagineforgee.selfbotlib.voice.audio.music.track.TrackQueue;
 import com.github.imagineforgee.selfbotlib.voice.audio.music.track.TrackScheduler;
 import com.sedmelluq.discord.lavaplayer.format.StandardAudioDataFormats;
@@ -13,31 +18,118 @@ import com.sedmelluq.discord.lavaplayer.player.DefaultAudioPlayerManager;
 import com.sedmelluq.discord.lavaplayer.tools.FriendlyException;
 import com.sedmelluq.discord.lavaplayer.track.AudioPlaylist;
 import com.sedmelluq.discord.lavaplayer.track.AudioTrack;
-import com.sedmelluq.discord.lavaplayer.track.playback.AudioFrame;
+import com.sedmelluq.discord.lavaplayer.track.playback.MutableAudioFrame;
 import dev.lavalink.youtube.YoutubeAudioSourceManager;
-import reactor.core.publisher.Flux;
 
+import java.nio.file.Path;
+import java.time.Duration;
 import java.util.Queue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.LockSupport;
 
 public class LavaPlayer implements MusicMode {
     private final AudioPlayerManager playerManager;
     private final com.sedmelluq.discord.lavaplayer.player.AudioPlayer lavaPlayer;
+    // Loads the next track ahead of time; the scheduler swaps the two at track boundaries
+    private final com.sedmelluq.discord.lavaplayer.player.AudioPlayer standbyPlayer;
     private OpusUdpStreamer streamer;
     private VoiceClient voiceClient;
     private final TrackQueue queue;
     private final TrackScheduler scheduler;
     private final AtomicBoolean isStreaming = new AtomicBoolean(false);
+    private volatile Thread producerThread;
+    private final DspSettings dsp = new DspSettings();
+    private final DspFilterFactory dspFilterFactory = new DspFilterFactory(dsp);
+    private boolean dspInstalled;
+    private volatile TrackLoadCache loadCache;
+    private AudioPlayerSource mixerSource;
+
+    private static final long PROVIDE_TIMEOUT_MS = 100;
+    private static final long FRAME_WAIT_NANOS = 5_000_000;
+    // Frames lavaplayer decodes ahead; filter switches are heard once these drain
+    private static final int FRAME_BUFFER_MS = 1000;
 
     public LavaPlayer(OpusUdpStreamer streamer) {
         this.playerManager = new DefaultAudioPlayerManager();
         this.playerManager.getConfiguration().setOutputFormat(StandardAudioDataFormats.DISCORD_OPUS);
+        // Lets a playing track move between Opus passthrough and decode/filter/encode when the
+        // filter factory changes, instead of only at the next track
+        this.playerManager.getConfiguration().setFilterHotSwapEnabled(true);
+        this.playerManager.setFrameBufferDuration(FRAME_BUFFER_MS);
         this.playerManager.registerSourceManager(new YoutubeAudioSourceManager(true));
         this.lavaPlayer = playerManager.createPlayer();
+        this.standbyPlayer = playerManager.createPlayer();
         this.streamer = streamer;
         this.queue = new TrackQueue();
-        this.scheduler = new TrackScheduler(lavaPlayer, queue, this);
+        this.scheduler = new TrackScheduler(lavaPlayer, standbyPlayer, queue, this);
         lavaPlayer.addListener(scheduler);
+        standbyPlayer.addListener(scheduler);
+        dsp.addListener(this::updateFilters);
+        this.loadCache = new TrackLoadCache(playerManager);
+    }
+
+    /**
+     * Replaces the cache of resolved URLs and searches.
+     * @param directory where entries are kept across restarts, or null for memory only
+     */
+    public void setTrackCache(int maxEntries, Duration ttl, Path directory) {
+        this.loadCache = new TrackLoadCache(playerManager, maxEntries, ttl, directory);
+    }
+
+    public TrackLoadCache getTrackCache() {
+        return loadCache;
+    }
+
+    /** Equalizer, volume and limiter for playback. While flat, Opus sources aren't decoded at all. */
+    public DspSettings getDsp() {
+        return dsp;
+    }
+
+    /**
+     * True while Opus sources go to the streamer untouched; false while filters are active and
+     * audio is decoded, filtered and re-encoded. Sources in other formats are always encoded.
+     */
+    public synchronized boolean isPassthrough() {
+        return !dspInstalled && mixerSource == null;
+    }
+
+    /**
+     * Switches playback to PCM for an {@link com.github.imagineforgee.selfbotlib.voice.audio.mix.AudioMixer}
+     * and returns the source to add to it. The mixer then drives playback and encodes it;
+     * {@link #startAudioStream()} does nothing from here on. Tracks already decoding keep
+     * their format until the next one starts.
+     */
+    public synchronized AudioPlayerSource asMixerSource() {
+        if (mixerSource == null) {
+            playerManager.getConfiguration().setOutputFormat(StandardAudioDataFormats.DISCORD_PCM_S16_LE);
+            AudioPlayerSource source = new AudioPlayerSource(scheduler::getActivePlayer);
+            long[] frameCount = {0};
+            source.setFrameCallback(() -> {
+                if (++frameCount[0] % 50 == 0) scheduler.preloadIfDue();
+            });
+            mixerSource = source;
+            System.out.println("[LavaPlayer] Playing through the mixer");
+        }
+        return mixerSource;
+    }
+
+    private synchronized boolean isMixing() {
+        return mixerSource != null;
+    }
+
+    /**
+     * Picks the cheapest path for the current settings. Volume lives in the DSP chain rather
+     * than lavaplayer's own volume, which would force decoding even at unity.
+     */
+    private synchronized void updateFilters() {
+        boolean needed = !dsp.isFlat();
+        if (needed == dspInstalled) return;
+        dspInstalled = needed;
+        lavaPlayer.setFilterFactory(needed ? dspFilterFactory : null);
+        standbyPlayer.setFilterFactory(needed ? dspFilterFactory : null);
+        System.out.println("[LavaPlayer] Filters " + (needed ? "enabled" : "disabled, passing Opus through"));
     }
 
     @Override
@@ -51,9 +143,9 @@ public class LavaPlayer implements MusicMode {
     @Override
     public void start(String url, CommandContext ctx) {
         System.out.println("[Voice] Loading track: " + url);
-        lavaPlayer.stopTrack();
+        scheduler.getActivePlayer().stopTrack();
         String key = ctx.getGuildId() != null ? ctx.getGuildId() : "group:" + ctx.getChannelId();
-        playerManager.loadItemOrdered(key, url, new AudioLoadResultHandler() {
+        loadCache.load(key, url, new AudioLoadResultHandler() {
             @Override
             public void trackLoaded(AudioTrack track) {
                 System.out.println("[Voice] Track loaded successfully: " + track.getInfo().title);
@@ -82,6 +174,7 @@ public class LavaPlayer implements MusicMode {
     }
 
     public void startAudioStream() {
+        if (isMixing()) return;
         if (!isStreaming.compareAndSet(false, true)) {
             System.out.println("[LavaPlayer] Already streaming, ignoring duplicate call");
             return;
@@ -95,44 +188,65 @@ public class LavaPlayer implements MusicMode {
         }
 
         streamer = udpStreamer;
-        int[] frameCount = {0};
-
-        Flux<byte[]> opusFrames = Flux.<byte[]>generate(sink -> {
-            try {
-                AudioFrame frame = lavaPlayer.provide(1000, java.util.concurrent.TimeUnit.MILLISECONDS);
-                if (frame != null && !frame.isTerminator()) {
-                    frameCount[0]++;
-                    if (frameCount[0] % 50 == 0) {
-                        System.out.println("[LavaPlayer] Frames sent: " + frameCount[0]);
-                    }
-                    sink.next(frame.getData());
-                } else {
-                    System.out.println("[LavaPlayer] Null/terminator frame, player playing: " + (lavaPlayer.getPlayingTrack() != null));
-                }
-            } catch (InterruptedException e) {
-                Thread.currentThread().interrupt();
-                sink.complete();
-            } catch (Exception e) {
-                System.err.println("[LavaPlayer] Frame error: " + e.getMessage());
-                sink.complete();
-            }
-        }).doFinally(signal -> {
-            System.out.println("[LavaPlayer] Stream ended: " + signal + ", total frames: " + frameCount[0]);
-            isStreaming.set(false);
-        });
+        FrameRing ring = udpStreamer.getFrameRing();
+        // Speaking follows the audio from here: the streamer turns it on with the first
+        // non-silent frame and off after the silence trailer
+        udpStreamer.start();
 
-        voiceClient.setSpeaking(SpeakingFlag.MICROPHONE);
-        udpStreamer.start(opusFrames);
+        Thread producer = new Thread(() -> provideFrames(ring), "lavaplayer-frames");
+        producer.setDaemon(true);
+        producerThread = producer;
+        producer.start();
         System.out.println("[LavaPlayer] Stream started");
     }
 
+    /**
+     * Moves frames from the active player straight into the streamer's ring slots. When the
+     * ring is full it waits instead of dropping, leaving the backlog in the player's own
+     * buffer. Runs across track boundaries; the scheduler swaps players underneath it.
+     */
+    private void provideFrames(FrameRing ring) {
+        MutableAudioFrame frame = new MutableAudioFrame();
+        long frameCount = 0;
+        try {
+            while (isStreaming.get() && producerThread == Thread.currentThread()) {
+                if (ring.size() >= ring.getCapacity()) {
+                    LockSupport.parkNanos(FRAME_WAIT_NANOS);
+                    continue;
+                }
+                frame.setBuffer(ring.claim());
+                try {
+                    if (scheduler.getActivePlayer().provide(frame, PROVIDE_TIMEOUT_MS, TimeUnit.MILLISECONDS)) {
+                        ring.publish(frame.getDataLength());
+                        frameCount++;
+                        if (frameCount % 50 == 0) {
+                            System.out.println("[LavaPlayer] Frames sent: " + frameCount);
+                            scheduler.preloadIfDue();
+                        }
+                    } else {
+                        LockSupport.parkNanos(FRAME_WAIT_NANOS);
+                    }
+                } catch (TimeoutException ignored) {
+                    // Nothing decoded yet
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            System.err.println("[LavaPlayer] Frame error: " + e.getMessage());
+        } finally {
+            System.out.println("[LavaPlayer] Stream ended, total frames: " + frameCount);
+            if (producerThread == Thread.currentThread()) {
+                isStreaming.set(false);
+            }
+        }
+    }
 
     @Override
     public void stop() {
-        lavaPlayer.stopTrack();
+        scheduler.stop();
         stopStreaming();
         isStreaming.set(false);
-        voiceClient.setSpeaking();
     }
 
     @Override
@@ -142,12 +256,12 @@ public class LavaPlayer implements MusicMode {
 
     @Override
     public void clear() {
-		queue.clear();
+        scheduler.clear();
     }
 
     @Override
     public Queue<AudioTrack> getQueue() {
-		return queue.getSnapshot();
+        return scheduler.getQueue();
     }
 
     @Override
@@ -161,7 +275,13 @@ public class LavaPlayer implements MusicMode {
     }
 
     private void stopStreaming() {
-        if (streamer != null) {
+        Thread producer = producerThread;
+        producerThread = null;
+        if (producer != null) {
+            producer.interrupt();
+        }
+        // The mixer owns the streamer while mixing
+        if (streamer != null && !isMixing()) {
             streamer.stop();
         }
     }
@@ -174,7 +294,16 @@ public class LavaPlayer implements MusicMode {
 
     @Override
     public boolean isActive() {
-        return lavaPlayer.getPlayingTrack() != null;
+        return scheduler.getActivePlayer().getPlayingTrack() != null;
+    }
+
+    /**
+     * Opus sources pass through untouched; lavaplayer only encodes when transcoding other
+     * formats and exposes just the complexity for that, so only it is applied.
+     */
+    @Override
+    public void setEncoderConfig(OpusEncoderConfig config) {
+        playerManager.getConfiguration().setOpusEncodingQuality(config.getComplexity());
     }
 
     @Override
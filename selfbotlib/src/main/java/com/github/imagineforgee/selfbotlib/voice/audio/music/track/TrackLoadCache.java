@@ -0,0 +1,396 @@
+package com.github.imagineforgee.selfbotlib.voice.audio.music.track;
+
+import com.sedmelluq.discord.lavaplayer.player.AudioLoadResultHandler;
+import com.sedmelluq.discord.lavaplayer.player.AudioPlayerManager;
+import com.sedmelluq.discord.lavaplayer.tools.FriendlyException;
+import com.sedmelluq.discord.lavaplayer.tools.io.MessageInput;
+import com.sedmelluq.discord.lavaplayer.tools.io.MessageOutput;
+import com.sedmelluq.discord.lavaplayer.track.AudioPlaylist;
+import com.sedmelluq.discord.lavaplayer.track.AudioTrack;
+import com.sedmelluq.discord.lavaplayer.track.BasicAudioPlaylist;
+import com.sedmelluq.discord.lavaplayer.track.DecodedTrackHolder;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * Remembers what identifiers (URLs, search queries) resolved to, so queueing the same thing
+ * again skips the source lookup. Entries hold lavaplayer's binary track encoding, from which
+ * fresh tracks are decoded on every hit, and expire after a TTL; the least recently used are
+ * evicted past the size limit. With a directory, entries are also written to disk and survive
+ * restarts; evicted entries are deleted there too, and on startup expired files are swept and
+ * the directory trimmed to the size limit. Only successful loads are cached.
+ */
+public class TrackLoadCache {
+    public static final int DEFAULT_MAX_ENTRIES = 512;
+    public static final Duration DEFAULT_TTL = Duration.ofHours(6);
+
+    private static final int FILE_VERSION = 1;
+
+    private final AudioPlayerManager manager;
+    private final int maxEntries;
+    private final long ttlMillis;
+    private final Path directory;
+    private final Map<String, Entry> entries;
+    // Per ordering key, the last load still resolving; hits wait for it to keep the order
+    private final Map<Object, CompletableFuture<Void>> inFlight = new HashMap<>();
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    public TrackLoadCache(AudioPlayerManager manager) {
+        this(manager, DEFAULT_MAX_ENTRIES, DEFAULT_TTL, null);
+    }
+
+    /**
+     * @param directory where entries are persisted, or null to keep them in memory only
+     */
+    public TrackLoadCache(AudioPlayerManager manager, int maxEntries, Duration ttl, Path directory) {
+        this.manager = manager;
+        this.maxEntries = maxEntries;
+        this.ttlMillis = ttl.toMillis();
+        this.directory = directory;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                if (size() <= TrackLoadCache.this.maxEntries) return false;
+                if (TrackLoadCache.this.directory != null) deleteFile(eldest.getKey());
+                return true;
+            }
+        };
+        if (directory != null) {
+            try {
+                Files.createDirectories(directory);
+                sweep();
+            } catch (IOException e) {
+                System.err.println("[TrackCache] Cannot prepare " + directory + ": " + e.getMessage());
+            }
+        }
+    }
+
+    /** Deletes expired and leftover temporary files, then the oldest past the size limit. */
+    private void sweep() throws IOException {
+        long expiredBefore = System.currentTimeMillis() - ttlMillis;
+        List<Path> kept = new ArrayList<>();
+        int deleted = 0;
+        List<Path> files;
+        try (Stream<Path> listing = Files.list(directory)) {
+            files = listing.toList();
+        }
+        for (Path file : files) {
+            String name = file.getFileName().toString();
+            if (name.endsWith(".track.tmp")
+                    || (name.endsWith(".track") && Files.getLastModifiedTime(file).toMillis() < expiredBefore)) {
+                Files.deleteIfExists(file);
+                deleted++;
+            } else if (name.endsWith(".track")) {
+                kept.add(file);
+            }
+        }
+        if (kept.size() > maxEntries) {
+            Map<Path, FileTime> modified = new HashMap<>();
+            for (Path file : kept) {
+                modified.put(file, Files.getLastModifiedTime(file));
+            }
+            kept.sort(Comparator.comparing(modified::get));
+            for (Path file : kept.subList(0, kept.size() - maxEntries)) {
+                Files.deleteIfExists(file);
+                deleted++;
+            }
+        }
+        if (deleted > 0) {
+            System.out.println("[TrackCache] Swept " + deleted + " stale entries from " + directory);
+        }
+    }
+
+    /**
+     * Same contract as {@link AudioPlayerManager#loadItemOrdered(Object, String, AudioLoadResultHandler)}.
+     * A cache hit is delivered to {@code handler} before this returns, unless an earlier load
+     * with the same key is still resolving; it is then delivered right after that one.
+     */
+    public Future<Void> load(Object orderingKey, String identifier, AudioLoadResultHandler handler) {
+        Entry entry = lookup(identifier);
+        List<AudioTrack> tracks = entry != null ? decodeAll(identifier, entry) : null;
+
+        CompletableFuture<Void> done = new CompletableFuture<>();
+        CompletableFuture<Void> previous;
+        synchronized (inFlight) {
+            previous = inFlight.get(orderingKey);
+            if (previous != null && previous.isDone()) previous = null;
+            if (previous != null || tracks == null) inFlight.put(orderingKey, done);
+        }
+        done.whenComplete((ignored, error) -> {
+            synchronized (inFlight) {
+                inFlight.remove(orderingKey, done);
+            }
+        });
+
+        if (tracks == null) {
+            misses.incrementAndGet();
+            // The manager's ordered executor keeps misses in order among themselves
+            return manager.loadItemOrdered(orderingKey, identifier, new RecordingHandler(identifier, handler, done));
+        }
+        hits.incrementAndGet();
+        if (previous == null) {
+            deliver(entry, tracks, handler);
+            return CompletableFuture.completedFuture(null);
+        }
+        previous.whenComplete((ignored, error) -> {
+            try {
+                deliver(entry, tracks, handler);
+            } finally {
+                done.complete(null);
+            }
+        });
+        return done;
+    }
+
+    public void invalidate(String identifier) {
+        synchronized (entries) {
+            entries.remove(identifier);
+        }
+        if (directory != null) {
+            deleteFile(identifier);
+        }
+    }
+
+    private void deleteFile(String identifier) {
+        try {
+            Files.deleteIfExists(fileFor(identifier));
+        } catch (IOException e) {
+            System.err.println("[TrackCache] Failed to delete entry: " + e.getMessage());
+        }
+    }
+
+    /** Empties the in-memory cache; the disk store is left alone. */
+    public void clear() {
+        synchronized (entries) {
+            entries.clear();
+        }
+    }
+
+    public long getHitCount() {
+        return hits.get();
+    }
+
+    public long getMissCount() {
+        return misses.get();
+    }
+
+    private Entry lookup(String identifier) {
+        Entry entry;
+        synchronized (entries) {
+            entry = entries.get(identifier);
+        }
+        if (entry == null && directory != null) {
+            entry = readFromDisk(identifier);
+            if (entry != null) {
+                synchronized (entries) {
+                    entries.put(identifier, entry);
+                }
+            }
+        }
+        if (entry != null && System.currentTimeMillis() - entry.createdAt > ttlMillis) {
+            invalidate(identifier);
+            return null;
+        }
+        return entry;
+    }
+
+    /** @return fresh tracks for the entry, or null if it can no longer be decoded */
+    private List<AudioTrack> decodeAll(String identifier, Entry entry) {
+        List<AudioTrack> tracks = new ArrayList<>(entry.tracks.length);
+        for (byte[] encoded : entry.tracks) {
+            AudioTrack track = decode(encoded);
+            if (track == null) {
+                // Source manager gone or encoding changed; resolve it again
+                invalidate(identifier);
+                return null;
+            }
+            tracks.add(track);
+        }
+        return tracks;
+    }
+
+    private void deliver(Entry entry, List<AudioTrack> tracks, AudioLoadResultHandler handler) {
+        if (entry.playlistName == null) {
+            handler.trackLoaded(tracks.get(0));
+        } else {
+            AudioTrack selected = entry.selectedIndex >= 0 ? tracks.get(entry.selectedIndex) : null;
+            handler.playlistLoaded(new BasicAudioPlaylist(entry.playlistName, tracks, selected, entry.searchResult));
+        }
+    }
+
+    private void store(String identifier, Entry entry) {
+        synchronized (entries) {
+            entries.put(identifier, entry);
+        }
+        if (directory != null) {
+            writeToDisk(identifier, entry);
+        }
+    }
+
+    private byte[] encode(AudioTrack track) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(256);
+        manager.encodeTrack(new MessageOutput(out), track);
+        return out.toByteArray();
+    }
+
+    private AudioTrack decode(byte[] encoded) {
+        try {
+            DecodedTrackHolder holder = manager.decodeTrack(new MessageInput(new ByteArrayInputStream(encoded)));
+            return holder != null ? holder.decodedTrack : null;
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    private Path fileFor(String identifier) {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(identifier.getBytes(StandardCharsets.UTF_8));
+            return directory.resolve(HexFormat.of().formatHex(hash) + ".track");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private Entry readFromDisk(String identifier) {
+        Path file = fileFor(identifier);
+        if (!Files.exists(file)) return null;
+        try (InputStream stream = Files.newInputStream(file);
+             DataInputStream in = new DataInputStream(stream)) {
+            if (in.readInt() != FILE_VERSION) return null;
+            long createdAt = in.readLong();
+            // The file name is a hash; make sure it is really this identifier
+            if (!identifier.equals(in.readUTF())) return null;
+            String playlistName = in.readBoolean() ? in.readUTF() : null;
+            boolean searchResult = in.readBoolean();
+            int selectedIndex = in.readInt();
+            byte[][] tracks = new byte[in.readInt()][];
+            for (int i = 0; i < tracks.length; i++) {
+                tracks[i] = new byte[in.readInt()];
+                in.readFully(tracks[i]);
+            }
+            return new Entry(createdAt, playlistName, searchResult, selectedIndex, tracks);
+        } catch (IOException e) {
+            System.err.println("[TrackCache] Unreadable entry " + file.getFileName() + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    private void writeToDisk(String identifier, Entry entry) {
+        Path file = fileFor(identifier);
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        try {
+            try (OutputStream stream = Files.newOutputStream(temp);
+                 DataOutputStream out = new DataOutputStream(stream)) {
+                out.writeInt(FILE_VERSION);
+                out.writeLong(entry.createdAt);
+                out.writeUTF(identifier);
+                out.writeBoolean(entry.playlistName != null);
+                if (entry.playlistName != null) out.writeUTF(entry.playlistName);
+                out.writeBoolean(entry.searchResult);
+                out.writeInt(entry.selectedIndex);
+                out.writeInt(entry.tracks.length);
+                for (byte[] track : entry.tracks) {
+                    out.writeInt(track.length);
+                    out.write(track);
+                }
+            }
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            System.err.println("[TrackCache] Failed to persist entry: " + e.getMessage());
+        }
+    }
+
+    private record Entry(long createdAt, String playlistName, boolean searchResult, int selectedIndex, byte[][] tracks) {}
+
+    /** Records a successful result, then hands it on unchanged and marks the load done. */
+    private final class RecordingHandler implements AudioLoadResultHandler {
+        private final String identifier;
+        private final AudioLoadResultHandler delegate;
+        private final CompletableFuture<Void> done;
+
+        RecordingHandler(String identifier, AudioLoadResultHandler delegate, CompletableFuture<Void> done) {
+            this.identifier = identifier;
+            this.delegate = delegate;
+            this.done = done;
+        }
+
+        @Override
+        public void trackLoaded(AudioTrack track) {
+            try {
+                store(identifier, new Entry(System.currentTimeMillis(), null, false, -1, new byte[][]{encode(track)}));
+            } catch (IOException e) {
+                System.err.println("[TrackCache] Cannot encode track: " + e.getMessage());
+            }
+            try {
+                delegate.trackLoaded(track);
+            } finally {
+                done.complete(null);
+            }
+        }
+
+        @Override
+        public void playlistLoaded(AudioPlaylist playlist) {
+            try {
+                List<AudioTrack> tracks = playlist.getTracks();
+                byte[][] encoded = new byte[tracks.size()][];
+                for (int i = 0; i < encoded.length; i++) {
+                    encoded[i] = encode(tracks.get(i));
+                }
+                int selected = playlist.getSelectedTrack() != null ? tracks.indexOf(playlist.getSelectedTrack()) : -1;
+                String name = playlist.getName() != null ? playlist.getName() : "";
+                store(identifier, new Entry(System.currentTimeMillis(), name, playlist.isSearchResult(), selected, encoded));
+            } catch (IOException e) {
+                System.err.println("[TrackCache] Cannot encode playlist: " + e.getMessage());
+            }
+            try {
+                delegate.playlistLoaded(playlist);
+            } finally {
+                done.complete(null);
+            }
+        }
+
+        @Override
+        public void noMatches() {
+            try {
+                delegate.noMatches();
+            } finally {
+                done.complete(null);
+            }
+        }
+
+        @Override
+        public void loadFailed(FriendlyException exception) {
+            try {
+                delegate.loadFailed(exception);
+            } finally {
+                done.complete(null);
+            }
+        }
+    }
+}
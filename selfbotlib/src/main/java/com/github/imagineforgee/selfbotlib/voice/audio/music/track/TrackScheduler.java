@@ -6,19 +6,38 @@ import com.sedmelluq.discord.lavaplayer.player.event.AudioEventAdapter;
 import com.sedmelluq.discord.lavaplayer.track.AudioTrack;
 import com.sedmelluq.discord.lavaplayer.track.AudioTrackEndReason;
 
+import java.util.LinkedList;
+import java.util.Queue;
+
+/**
+ * Plays the queue on two players. Shortly before the current track ends, the next one is
+ * started paused on the standby player, so lavaplayer connects and decodes its opening frames
+ * in the background; at the end the players swap and playback continues from those buffered
+ * frames without a gap. Frames must be read from {@link #getActivePlayer()}.
+ */
 public class TrackScheduler extends AudioEventAdapter {
-    private final AudioPlayer player;
+    // How long before the end of the current track the next one starts loading
+    private static final long PRELOAD_BEFORE_END_MS = 15_000;
+
     private final TrackQueue queue;
     private final LavaPlayer lavaPlayer;
+    private volatile AudioPlayer active;
+    private AudioPlayer standby;
+    private AudioTrack preloaded;
 
-    public TrackScheduler(AudioPlayer player, TrackQueue queue, LavaPlayer lavaPlayer) {
-        this.player = player;
+    public TrackScheduler(AudioPlayer player, AudioPlayer standby, TrackQueue queue, LavaPlayer lavaPlayer) {
+        this.active = player;
+        this.standby = standby;
         this.queue = queue;
         this.lavaPlayer = lavaPlayer;
     }
 
-    public void queue(AudioTrack track) {
-        if (!player.startTrack(track, true)) {
+    public AudioPlayer getActivePlayer() {
+        return active;
+    }
+
+    public synchronized void queue(AudioTrack track) {
+        if (!active.startTrack(track, true)) {
             queue.add(track);
         } else {
             lavaPlayer.startAudioStream();
@@ -27,26 +46,84 @@ public class TrackScheduler extends AudioEventAdapter {
 
     @Override
     public void onTrackEnd(AudioPlayer player, AudioTrack track, AudioTrackEndReason endReason) {
-		if (endReason.mayStartNext) {
-            AudioTrack next = queue.poll();
-            if (next != null) {
-                player.startTrack(next, false);
-                lavaPlayer.startAudioStream();
-            } else {
-                lavaPlayer.stop();
-            }
+        // The standby player's tracks end when a preload is dropped; only the active one advances
+        if (player == active && endReason.mayStartNext) {
+            advance();
+        }
+    }
+
+    public synchronized void skip() {
+        advance();
+    }
+
+    /**
+     * Starts loading the next queued track if the current one is close to its end. Cheap to
+     * call often; the frame thread calls it while playing.
+     */
+    public synchronized void preloadIfDue() {
+        if (preloaded != null || queue.isEmpty()) return;
+        AudioTrack current = active.getPlayingTrack();
+        if (current == null || current.getInfo().isStream) return;
+        if (current.getDuration() - current.getPosition() > PRELOAD_BEFORE_END_MS) return;
+
+        AudioTrack next = queue.poll();
+        standby.setPaused(true);
+        if (standby.startTrack(next, false)) {
+            preloaded = next;
+            System.out.println("[Scheduler] Preloading next track: " + next.getInfo().title);
         }
     }
 
-    public void skip() {
+    public synchronized void clear() {
+        queue.clear();
+        dropPreload();
+    }
+
+    /** Stops both players and forgets the preloaded track; the queue is kept. */
+    public synchronized void stop() {
+        dropPreload();
+        active.stopTrack();
+    }
+
+    /** Queued tracks, including one already preloading. */
+    public synchronized Queue<AudioTrack> getQueue() {
+        Queue<AudioTrack> snapshot = new LinkedList<>();
+        if (preloaded != null) snapshot.add(preloaded);
+        snapshot.addAll(queue.getSnapshot());
+        return snapshot;
+    }
+
+    private synchronized void advance() {
+        if (preloaded != null && standby.getPlayingTrack() == preloaded) {
+            AudioPlayer previous = active;
+            active = standby;
+            standby = previous;
+            AudioTrack next = preloaded;
+            preloaded = null;
+            active.setPaused(false);
+            // Ends a skipped track; its end event comes from what is now the standby and is ignored
+            previous.stopTrack();
+            System.out.println("[Scheduler] Continuing gaplessly with: " + next.getInfo().title);
+            lavaPlayer.startAudioStream();
+            return;
+        }
+        // Preload failed or was never started
+        dropPreload();
+
         AudioTrack next = queue.poll();
         if (next != null) {
-            player.startTrack(next, false);
+            active.startTrack(next, false);
             lavaPlayer.startAudioStream();
         } else {
-            player.stopTrack();
+            active.stopTrack();
             lavaPlayer.stop();
         }
     }
 
+    private void dropPreload() {
+        if (preloaded != null) {
+            preloaded = null;
+            standby.stopTrack();
+        }
+    }
 }
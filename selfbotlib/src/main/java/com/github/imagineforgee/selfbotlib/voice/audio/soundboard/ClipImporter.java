@@ -0,0 +1,135 @@
+package com.github.imagineforgee.selfbotlib.voice.audio.soundboard;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URISyntaxException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Transcodes audio files to Opus once, through ffmpeg, and adds them to a {@link ClipPack}.
+ * Clips are encoded as 48 kHz stereo in 20 ms packets, the frame the streamer sends per tick,
+ * so they can go out as stored. Importing a name that is already in the pack replaces it.
+ * <p>
+ * From the command line: {@code ClipImporter <pack> <file>...}, naming each clip after its
+ * file without the extension.
+ */
+public class ClipImporter {
+    public static final int DEFAULT_BITRATE_KBPS = 96;
+    private static final int PACKET_SAMPLES = 960;
+    // Largest packet the streamer's frame slots take
+    private static final int MAX_PACKET_LENGTH = 1400;
+
+    private final String ffmpegPath;
+    private final int bitrateKbps;
+
+    public ClipImporter() {
+        this(findFfmpeg(), DEFAULT_BITRATE_KBPS);
+    }
+
+    public ClipImporter(String ffmpegPath, int bitrateKbps) {
+        this.ffmpegPath = ffmpegPath;
+        this.bitrateKbps = bitrateKbps;
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("Usage: ClipImporter <pack> <file>...");
+            System.exit(2);
+        }
+        Map<String, Path> inputs = new LinkedHashMap<>();
+        for (int i = 1; i < args.length; i++) {
+            Path input = Path.of(args[i]);
+            String name = input.getFileName().toString();
+            int dot = name.lastIndexOf('.');
+            inputs.put(dot > 0 ? name.substring(0, dot) : name, input);
+        }
+        new ClipImporter().importClips(Path.of(args[0]), inputs);
+    }
+
+    /**
+     * Transcodes {@code inputs}, clip name to source file, and writes them into {@code pack}
+     * along with the clips already in it. Nothing is written if any input fails. Packs open
+     * for playback keep their old contents until reopened.
+     */
+    public void importClips(Path pack, Map<String, Path> inputs) throws IOException {
+        Map<String, List<byte[]>> clips = Files.exists(pack) ? ClipPack.readAll(pack) : new LinkedHashMap<>();
+        for (Map.Entry<String, Path> input : inputs.entrySet()) {
+            List<byte[]> packets = transcode(input.getValue());
+            clips.put(input.getKey(), packets);
+            System.out.printf("[Soundboard] Imported %s: %d packets (%.2f s)%n",
+                    input.getKey(), packets.size(), packets.size() * 0.02);
+        }
+        ClipPack.write(pack, clips);
+        System.out.println("[Soundboard] Wrote " + clips.size() + " clips to " + pack);
+    }
+
+    /** Runs ffmpeg on {@code input} and returns its Opus packets in order. */
+    public List<byte[]> transcode(Path input) throws IOException {
+        ProcessBuilder pb = new ProcessBuilder(
+                ffmpegPath, "-v", "error",
+                "-i", input.toString(),
+                "-vn",
+                "-ac", "2",
+                "-ar", "48000",
+                "-c:a", "libopus",
+                "-application", "audio",
+                "-b:a", bitrateKbps + "k",
+                "-frame_duration", "20",
+                "-f", "ogg", "-"
+        );
+        pb.redirectError(ProcessBuilder.Redirect.INHERIT);
+        Process process = pb.start();
+
+        List<byte[]> packets;
+        try (InputStream out = process.getInputStream()) {
+            OggOpusReader reader = new OggOpusReader(out);
+            packets = reader.readAll();
+            if (reader.getChannels() != 2) {
+                throw new IOException("Expected stereo Opus from ffmpeg, got " + reader.getChannels() + " channels");
+            }
+        } catch (IOException e) {
+            process.destroy();
+            throw e;
+        }
+
+        try {
+            int exit = process.waitFor();
+            if (exit != 0) throw new IOException("ffmpeg exited with " + exit + " for " + input);
+        } catch (InterruptedException e) {
+            process.destroy();
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted transcoding " + input);
+        }
+
+        for (byte[] packet : packets) {
+            if (OggOpusReader.samplesPerPacket(packet) != PACKET_SAMPLES) {
+                throw new IOException("Packet in " + input + " is not 20 ms");
+            }
+            if (packet.length > MAX_PACKET_LENGTH) {
+                throw new IOException("Packet in " + input + " too large: " + packet.length + " bytes");
+            }
+        }
+        if (packets.isEmpty()) throw new IOException("No audio in " + input);
+        return packets;
+    }
+
+    /** ffmpeg beside the jar, as the video player uses it, or else the one on the PATH. */
+    private static String findFfmpeg() {
+        try {
+            String jarDir = new File(ClipImporter.class.getProtectionDomain()
+                    .getCodeSource()
+                    .getLocation()
+                    .toURI()).getParent();
+            File bundled = new File(jarDir, "ffmpeg.exe");
+            if (bundled.isFile()) return bundled.getPath();
+        } catch (URISyntaxException | RuntimeException ignored) {
+            // Fall back to the PATH
+        }
+        return "ffmpeg";
+    }
+}
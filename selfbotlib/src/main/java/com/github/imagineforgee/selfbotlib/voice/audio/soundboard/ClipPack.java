@@ -0,0 +1,197 @@
+package com.github.imagineforgee.selfbotlib.voice.audio.soundboard;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A file of pre-encoded Opus clips, memory-mapped for playback. Each clip is a run of 20 ms
+ * packets, each stored as a 16-bit big-endian length and the packet bytes; an index at the end
+ * maps clip names to their runs. Packets are handed out as views of the mapping, so playing a
+ * clip reads from the page cache and nothing is decoded.
+ * <p>
+ * Layout: magic, version, clip count and index offset, then the packets, then per clip its
+ * name, offset, length in bytes and packet count. Packs are written with {@link #write}.
+ */
+public class ClipPack implements Closeable {
+    private static final int MAGIC = 0x4F50434B; // "OPCK"
+    private static final int FILE_VERSION = 1;
+    private static final int HEADER_LENGTH = 4 + 4 + 4 + 8;
+
+    private final Path file;
+    private final FileChannel channel;
+    private final MappedByteBuffer mapped;
+    private final Map<String, Clip> clips;
+
+    private ClipPack(Path file, FileChannel channel, MappedByteBuffer mapped, Map<String, Clip> clips) {
+        this.file = file;
+        this.channel = channel;
+        this.mapped = mapped;
+        this.clips = clips;
+    }
+
+    /** Maps {@code file} and reads its index. */
+    public static ClipPack open(Path file) throws IOException {
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+        try {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) throw new IOException("Clip pack too large to map: " + size);
+            MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            Map<String, Clip> clips = readIndex(mapped, file);
+            // Faults the pages in now rather than on a clip's first play
+            mapped.load();
+            return new ClipPack(file, channel, mapped, Collections.unmodifiableMap(clips));
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Reads every clip's packets from {@code file} into memory, without mapping it, e.g. to
+     * carry them into a rewritten pack. A mapped file can't be replaced on Windows.
+     */
+    public static Map<String, List<byte[]>> readAll(Path file) throws IOException {
+        ByteBuffer contents = ByteBuffer.wrap(Files.readAllBytes(file));
+        Map<String, List<byte[]>> result = new LinkedHashMap<>();
+        for (Clip clip : readIndex(contents, file).values()) {
+            ByteBuffer packets = contents.slice(clip.offset(), clip.length());
+            List<byte[]> list = new ArrayList<>(clip.packetCount());
+            while (packets.hasRemaining()) {
+                byte[] packet = new byte[packets.getShort() & 0xFFFF];
+                packets.get(packet);
+                list.add(packet);
+            }
+            result.put(clip.name(), list);
+        }
+        return result;
+    }
+
+    private static Map<String, Clip> readIndex(ByteBuffer contents, Path file) throws IOException {
+        int size = contents.limit();
+        if (size < HEADER_LENGTH || contents.getInt(0) != MAGIC) throw new IOException("Not a clip pack: " + file);
+        if (contents.getInt(4) != FILE_VERSION) throw new IOException("Unsupported clip pack version: " + contents.getInt(4));
+
+        int count = contents.getInt(8);
+        long indexOffset = contents.getLong(12);
+        if (indexOffset < HEADER_LENGTH || indexOffset > size) throw new IOException("Corrupt clip pack index: " + file);
+        ByteBuffer index = contents.duplicate().position((int) indexOffset);
+        Map<String, Clip> clips = new LinkedHashMap<>();
+        try {
+            for (int i = 0; i < count; i++) {
+                byte[] name = new byte[index.getShort() & 0xFFFF];
+                index.get(name);
+                Clip clip = new Clip(new String(name, StandardCharsets.UTF_8), index.getInt(), index.getInt(), index.getInt());
+                if (clip.offset() < HEADER_LENGTH || clip.length() < 0 || (long) clip.offset() + clip.length() > size) {
+                    throw new IOException("Clip outside the pack: " + clip.name());
+                }
+                clips.put(clip.name(), clip);
+            }
+        } catch (BufferUnderflowException e) {
+            throw new IOException("Corrupt clip pack index: " + file);
+        }
+        return clips;
+    }
+
+    public Path getFile() {
+        return file;
+    }
+
+    /** @return the clip, or null if the pack has none by that name */
+    public Clip getClip(String name) {
+        return clips.get(name);
+    }
+
+    public Collection<Clip> getClips() {
+        return clips.values();
+    }
+
+    /**
+     * The clip's packets as a read-only view of the mapping, positioned at the first length
+     * prefix. Each call returns an independent view.
+     */
+    public ByteBuffer packets(Clip clip) {
+        return mapped.slice(clip.offset(), clip.length()).asReadOnlyBuffer();
+    }
+
+    /**
+     * Closes the file. The mapping itself is released once it is no longer reachable, so
+     * views from {@link #packets} stay valid until then.
+     */
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    /**
+     * Writes {@code clips}, name to packets in play order, as a new pack replacing {@code file}.
+     * The file is written beside the target and moved into place, so readers never see it
+     * half-written.
+     */
+    public static void write(Path file, Map<String, List<byte[]>> clips) throws IOException {
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        Map<String, Clip> index = new LinkedHashMap<>();
+        long offset = HEADER_LENGTH;
+        try (OutputStream stream = Files.newOutputStream(temp);
+             DataOutputStream out = new DataOutputStream(new BufferedOutputStream(stream))) {
+            out.writeInt(MAGIC);
+            out.writeInt(FILE_VERSION);
+            out.writeInt(clips.size());
+            out.writeLong(0); // Index offset, filled in below
+
+            for (Map.Entry<String, List<byte[]>> entry : clips.entrySet()) {
+                long start = offset;
+                for (byte[] packet : entry.getValue()) {
+                    if (packet.length > 0xFFFF) throw new IOException("Packet too large in " + entry.getKey());
+                    out.writeShort(packet.length);
+                    out.write(packet);
+                    offset += 2 + packet.length;
+                }
+                if (offset > Integer.MAX_VALUE) throw new IOException("Clip pack too large to map");
+                index.put(entry.getKey(), new Clip(entry.getKey(), (int) start, (int) (offset - start), entry.getValue().size()));
+            }
+
+            for (Clip clip : index.values()) {
+                byte[] name = clip.name().getBytes(StandardCharsets.UTF_8);
+                out.writeShort(name.length);
+                out.write(name);
+                out.writeInt(clip.offset());
+                out.writeInt(clip.length());
+                out.writeInt(clip.packetCount());
+            }
+        }
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.allocate(8).putLong(0, offset), 12);
+        }
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * One clip's run of packets within the pack.
+     * @param offset where the first length prefix starts
+     * @param length bytes of prefixes and packets
+     */
+    public record Clip(String name, int offset, int length, int packetCount) {
+        public Duration getDuration() {
+            return Duration.ofMillis(packetCount * 20L);
+        }
+    }
+}
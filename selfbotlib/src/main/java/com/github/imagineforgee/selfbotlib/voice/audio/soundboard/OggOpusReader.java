@@ -0,0 +1,121 @@
+package com.github.imagineforgee.selfbotlib.voice.audio.soundboard;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Splits a single-stream Ogg Opus file into its Opus packets, dropping the OpusHead and
+ * OpusTags headers. Page checksums are not verified; input is expected straight from ffmpeg.
+ */
+public class OggOpusReader {
+    private static final int CAPTURE_PATTERN = 0x4F676753; // "OggS"
+
+    private final DataInputStream in;
+    private final ByteArrayOutputStream partial = new ByteArrayOutputStream();
+    private final List<byte[]> ready = new ArrayList<>();
+    private int headersSeen;
+    private int channels;
+
+    public OggOpusReader(InputStream in) {
+        this.in = new DataInputStream(in);
+    }
+
+    /** Channel count from OpusHead, once the first packet has been read. */
+    public int getChannels() {
+        return channels;
+    }
+
+    /**
+     * @return the next audio packet, or null at the end of the stream
+     */
+    public byte[] next() throws IOException {
+        while (ready.isEmpty()) {
+            if (!readPage()) return null;
+        }
+        return ready.remove(0);
+    }
+
+    public List<byte[]> readAll() throws IOException {
+        List<byte[]> packets = new ArrayList<>();
+        byte[] packet;
+        while ((packet = next()) != null) {
+            packets.add(packet);
+        }
+        return packets;
+    }
+
+    private boolean readPage() throws IOException {
+        int pattern;
+        try {
+            pattern = in.readInt();
+        } catch (EOFException e) {
+            return false;
+        }
+        if (pattern != CAPTURE_PATTERN) throw new IOException("Not an Ogg page");
+        // Version, header type, granule position, serial, sequence number and checksum
+        in.skipNBytes(1 + 1 + 8 + 4 + 4 + 4);
+        int segments = in.readUnsignedByte();
+        byte[] lacing = new byte[segments];
+        in.readFully(lacing);
+
+        for (byte l : lacing) {
+            int length = l & 0xFF;
+            byte[] segment = in.readNBytes(length);
+            if (segment.length < length) throw new EOFException("Truncated Ogg page");
+            partial.write(segment, 0, length);
+            // A lacing value under 255 ends the packet; 255 continues it, possibly onto the next page
+            if (length < 255) {
+                accept(partial.toByteArray());
+                partial.reset();
+            }
+        }
+        return true;
+    }
+
+    private void accept(byte[] packet) throws IOException {
+        if (headersSeen == 0) {
+            if (packet.length < 19 || !new String(packet, 0, 8, StandardCharsets.US_ASCII).equals("OpusHead")) {
+                throw new IOException("Not an Opus stream");
+            }
+            channels = packet[9] & 0xFF;
+            headersSeen++;
+            return;
+        }
+        if (headersSeen == 1) {
+            // OpusTags
+            headersSeen++;
+            return;
+        }
+        ready.add(packet);
+    }
+
+    /**
+     * Samples per channel at 48 kHz in an Opus packet, from its TOC byte (RFC 6716, section 3.1).
+     * @return the duration, or -1 if the packet is malformed
+     */
+    public static int samplesPerPacket(byte[] packet) {
+        if (packet.length == 0) return -1;
+        int toc = packet[0] & 0xFF;
+        int config = toc >> 3;
+        int frameSamples;
+        if (config < 12) {
+            frameSamples = new int[]{480, 960, 1920, 2880}[config & 3];
+        } else if (config < 16) {
+            frameSamples = (config & 1) == 0 ? 480 : 960;
+        } else {
+            frameSamples = 120 << (config & 3);
+        }
+        int frames = switch (toc & 3) {
+            case 0 -> 1;
+            case 1, 2 -> 2;
+            default -> packet.length < 2 ? -1 : packet[1] & 0x3F;
+        };
+        return frames < 0 ? -1 : frameSamples * frames;
+    }
+}
@@ -0,0 +1,211 @@
+package com.github.imagineforgee.selfbotlib.voice.audio.soundboard;
+
+import com.github.imagineforgee.selfbotlib.client.VoiceClient;
+import com.github.imagineforgee.selfbotlib.commands.CommandContext;
+import com.github.imagineforgee.selfbotlib.media.FrameRing;
+import com.github.imagineforgee.selfbotlib.voice.OpusUdpStreamer;
+import com.github.imagineforgee.selfbotlib.voice.VoiceMode;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Plays clips from a {@link ClipPack}. Packets are copied from the mapping straight into the
+ * streamer's frame slots, so nothing is decoded or encoded. The streamer runs for as long as
+ * the mode is the client's active voice mode and sends nothing while idle: it starts when the
+ * client switches to the mode and hands it the streamer, so a clip goes out on the next tick.
+ * Clips only play in the active mode, since the frame ring takes one producer and another
+ * mode's would be running. Starting a clip while another plays replaces it.
+ */
+public class SoundboardMode implements VoiceMode {
+    // Frames queued ahead of the send clock; also how long a replaced clip keeps playing
+    private static final int FEED_AHEAD_FRAMES = 1;
+    private static final long FRAME_WAIT_NANOS = 5_000_000;
+    // Queued in place of a clip to stop the playing one
+    private static final ByteBuffer STOP = ByteBuffer.allocate(0);
+
+    private final ClipPack pack;
+    private final AtomicBoolean running = new AtomicBoolean(false);
+    private final AtomicReference<ByteBuffer> pending = new AtomicReference<>();
+    private VoiceClient voiceClient;
+    private OpusUdpStreamer streamer;
+    private volatile Thread feedThread;
+    private volatile boolean playing;
+
+    public SoundboardMode(ClipPack pack) {
+        this.pack = pack;
+    }
+
+    public SoundboardMode(Path packFile) throws IOException {
+        this(ClipPack.open(packFile));
+    }
+
+    public ClipPack getPack() {
+        return pack;
+    }
+
+    @Override
+    public void setVoiceClient(VoiceClient client) {
+        this.voiceClient = client;
+    }
+
+    /**
+     * Called by the client on switching to this mode and after a reconnect; starts the
+     * streamer, or moves to the new one from the next packet.
+     */
+    @Override
+    public synchronized void setUdpStreamer(OpusUdpStreamer udpStreamer) {
+        if (udpStreamer != streamer && running.get()) stop();
+        this.streamer = udpStreamer;
+        ensureRunning();
+    }
+
+    /** Plays the clip named {@code name}. */
+    @Override
+    public void start(String name, CommandContext ctx) {
+        play(name);
+    }
+
+    /**
+     * Starts a clip, replacing any playing one.
+     * @return false if the pack has no such clip, this isn't the active voice mode or the
+     *         streamer isn't ready
+     */
+    public boolean play(String name) {
+        ClipPack.Clip clip = pack.getClip(name);
+        if (clip == null) {
+            System.err.println("[Soundboard] No clip named " + name);
+            return false;
+        }
+        if (!ensureRunning()) return false;
+        pending.set(pack.packets(clip));
+        Thread thread = feedThread;
+        if (thread != null) LockSupport.unpark(thread);
+        return true;
+    }
+
+    /** Stops the playing clip; the streamer keeps running for the next one. */
+    public void stopClip() {
+        pending.set(STOP);
+        Thread thread = feedThread;
+        if (thread != null) LockSupport.unpark(thread);
+    }
+
+    private synchronized boolean ensureRunning() {
+        if (running.get()) return true;
+        if (voiceClient != null && voiceClient.getActiveVoiceModeModel() != this) {
+            System.err.println("[Soundboard] Not the active voice mode");
+            return false;
+        }
+
+        OpusUdpStreamer udpStreamer = voiceClient != null && voiceClient.getUdpStreamer() != null
+                ? voiceClient.getUdpStreamer() : streamer;
+        if (udpStreamer == null) {
+            System.err.println("[Soundboard] Streamer not ready");
+            return false;
+        }
+        streamer = udpStreamer;
+        running.set(true);
+
+        FrameRing ring = udpStreamer.getFrameRing();
+        Thread thread = new Thread(() -> feed(ring), "soundboard-feed");
+        thread.setDaemon(true);
+        feedThread = thread;
+        udpStreamer.start();
+        thread.start();
+        return true;
+    }
+
+    /**
+     * Keeps {@link #FEED_AHEAD_FRAMES} of the current clip in the ring, sleeping while idle
+     * until {@link #play} wakes it.
+     */
+    private void feed(FrameRing ring) {
+        ByteBuffer current = null;
+        long clips = 0;
+        try {
+            while (running.get() && feedThread == Thread.currentThread()) {
+                // Only the latest play or stop counts
+                ByteBuffer next = pending.getAndSet(null);
+                if (next == STOP) {
+                    current = null;
+                } else if (next != null) {
+                    current = next;
+                    clips++;
+                }
+                playing = current != null;
+
+                if (current == null) {
+                    LockSupport.park(this);
+                    continue;
+                }
+                if (ring.size() >= FEED_AHEAD_FRAMES) {
+                    LockSupport.parkNanos(this, FRAME_WAIT_NANOS);
+                    continue;
+                }
+                ByteBuffer slot = ring.claim();
+                if (slot == null) {
+                    LockSupport.parkNanos(this, FRAME_WAIT_NANOS);
+                    continue;
+                }
+                int length = current.getShort() & 0xFFFF;
+                if (length <= slot.capacity()) {
+                    slot.put(0, current, current.position(), length);
+                    ring.publish(length);
+                }
+                current.position(current.position() + length);
+                if (!current.hasRemaining()) current = null;
+            }
+        } catch (Exception e) {
+            System.err.println("[Soundboard] Feed error: " + e.getMessage());
+        } finally {
+            playing = false;
+            if (feedThread == Thread.currentThread()) {
+                running.set(false);
+            }
+            System.out.println("[Soundboard] Feed stopped after " + clips + " clips");
+        }
+    }
+
+    @Override
+    public synchronized void stop() {
+        running.set(false);
+        pending.set(null);
+        Thread thread = feedThread;
+        feedThread = null;
+        if (thread != null) LockSupport.unpark(thread);
+        if (streamer != null) streamer.stop();
+    }
+
+    @Override public void skip() { stopClip(); }
+    @Override public void clear() { stopClip(); }
+    @Override public void joinChannel(String guildId, String channelId) {}
+    @Override
+    public boolean isActive() {
+        ByteBuffer next = pending.get();
+        return playing || (next != null && next != STOP);
+    }
+
+    /**
+     * Starts the streamer and feed thread if they aren't running. The client doesn't call this;
+     * being handed the streamer on a switch or reconnect does the same.
+     */
+    @Override
+    public void initialize() {
+        if (ensureRunning()) System.out.println("[Soundboard] " + pack.getClips().size() + " clips ready");
+    }
+
+    @Override
+    public void shutdown() {
+        stop();
+        try {
+            pack.close();
+        } catch (IOException e) {
+            System.err.println("[Soundboard] Failed to close pack: " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,181 @@
+package com.github.imagineforgee.selfbotlib.voice.audio.source;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * FIFO between a capture line and the 20 ms encoder that absorbs short and uneven reads and
+ * keeps the sound card's clock locked to the packet clock. The backlog (samples buffered
+ * here plus frames already queued for sending) is smoothed and compared with a target
+ * latency; outside a dead band, each frame is built from one input sample more or fewer
+ * than it plays, resampled linearly, which moves at most ~1000 ppm without audible steps.
+ * Used by the capture thread only.
+ */
+final class CaptureBuffer {
+    static final int CHANNELS = 2;
+    static final int BYTES_PER_SAMPLE = 2 * CHANNELS;
+    static final int FRAME_SAMPLES = 960;
+
+    private static final VarHandle SAMPLE =
+            MethodHandles.byteArrayViewVarHandle(short[].class, ByteOrder.nativeOrder());
+    // Start correcting beyond 10 ms off target, stop within 2 ms
+    private static final int DEAD_BAND = 480;
+    private static final int SETTLE_BAND = 96;
+    private static final double SMOOTHING = 0.05;
+    // Beyond 200 ms over target the excess is skipped at once
+    private static final int RESYNC = 9600;
+
+    private final byte[] fifo;
+    private final int mask;
+    private long readPos;
+    private long writePos;
+
+    private int targetSamples;
+    private boolean primed;
+    private double smoothedBacklog = -1;
+    private int correction;
+    private long framesOut;
+    private long inputSamples;
+    private long overflowed;
+    private long skipped;
+
+    /**
+     * @param capacitySamples FIFO size in stereo samples, rounded up to a power of two
+     * @param targetSamples   backlog to hold, in stereo samples
+     */
+    CaptureBuffer(int capacitySamples, int targetSamples) {
+        int bytes = 1;
+        while (bytes < capacitySamples * BYTES_PER_SAMPLE) bytes <<= 1;
+        this.fifo = new byte[bytes];
+        this.mask = bytes - 1;
+        this.targetSamples = targetSamples;
+    }
+
+    void setTargetSamples(int targetSamples) {
+        this.targetSamples = targetSamples;
+    }
+
+    /** Array to read into; use with {@link #writeOffset()} and {@link #writableBytes(int)}. */
+    byte[] array() {
+        return fifo;
+    }
+
+    int writeOffset() {
+        return (int) (writePos & mask);
+    }
+
+    /**
+     * Contiguous free bytes at {@link #writeOffset()}, at most {@code max}, in whole samples.
+     * When the FIFO is full the oldest audio is discarded to make room.
+     */
+    int writableBytes(int max) {
+        long free = fifo.length - (writePos - readPos);
+        if (free < max) {
+            long discard = max - free;
+            discard += (BYTES_PER_SAMPLE - discard % BYTES_PER_SAMPLE) % BYTES_PER_SAMPLE;
+            readPos += discard;
+            overflowed += discard / BYTES_PER_SAMPLE;
+        }
+        int contiguous = fifo.length - writeOffset();
+        int n = Math.min(max, contiguous);
+        return n - n % BYTES_PER_SAMPLE;
+    }
+
+    /** Accepts {@code bytes} just read at {@link #writeOffset()}. */
+    void commit(int bytes) {
+        writePos += bytes - bytes % BYTES_PER_SAMPLE;
+    }
+
+    int availableSamples() {
+        return (int) ((writePos - readPos) / BYTES_PER_SAMPLE);
+    }
+
+    /**
+     * Decides how many input samples the next frame consumes, given the frames already
+     * waiting downstream.
+     * @return 959, 960 or 961, or 0 if not enough audio is buffered yet
+     */
+    int nextFrameInput(int queuedFrames) {
+        int available = availableSamples();
+        if (available < FRAME_SAMPLES + 1) {
+            // Downstream ran dry: build the target latency back up before sending again
+            if (queuedFrames == 0) primed = false;
+            return 0;
+        }
+        if (!primed) {
+            if (available < targetSamples) return 0;
+            primed = true;
+            smoothedBacklog = -1;
+        }
+
+        double backlog = available + (double) queuedFrames * FRAME_SAMPLES;
+        if (backlog - targetSamples > RESYNC) {
+            // Too far behind to slew back; skip straight to the target
+            int skip = (int) Math.min(available - (FRAME_SAMPLES + 1), backlog - targetSamples);
+            readPos += (long) skip * BYTES_PER_SAMPLE;
+            skipped += skip;
+            backlog -= skip;
+            smoothedBacklog = -1;
+        }
+        smoothedBacklog = smoothedBacklog < 0 ? backlog
+                : smoothedBacklog + SMOOTHING * (backlog - smoothedBacklog);
+        double error = smoothedBacklog - targetSamples;
+
+        if (correction == 0 && Math.abs(error) > DEAD_BAND) {
+            correction = error > 0 ? 1 : -1;
+        } else if (correction != 0 && Math.abs(error) < SETTLE_BAND) {
+            correction = 0;
+        }
+        return FRAME_SAMPLES + correction;
+    }
+
+    /**
+     * Removes {@code input} samples and writes them to {@code pcm} as one
+     * {@link #FRAME_SAMPLES}-sample frame of native-order shorts at index 0.
+     */
+    void takeFrame(ByteBuffer pcm, int input) {
+        if (input == FRAME_SAMPLES) {
+            int off = (int) (readPos & mask);
+            int bytes = FRAME_SAMPLES * BYTES_PER_SAMPLE;
+            int first = Math.min(bytes, fifo.length - off);
+            pcm.put(0, fifo, off, first);
+            if (first < bytes) pcm.put(first, fifo, 0, bytes - first);
+        } else {
+            // Spread input samples [0, input - 1] evenly over the output frame
+            long step = ((long) (input - 1) << 16) / (FRAME_SAMPLES - 1);
+            long pos = 0;
+            for (int i = 0; i < FRAME_SAMPLES; i++, pos += step) {
+                int index = (int) (pos >>> 16);
+                int frac = (int) (pos & 0xFFFF);
+                int next = Math.min(index + 1, input - 1);
+                for (int ch = 0; ch < CHANNELS; ch++) {
+                    int a = sample(index, ch);
+                    int b = sample(next, ch);
+                    // In long: a full-scale step times frac overflows an int, which only the short cast undoes
+                    pcm.putShort((i * CHANNELS + ch) * 2, (short) (a + (((long) (b - a) * frac) >> 16)));
+                }
+            }
+        }
+        readPos += (long) input * BYTES_PER_SAMPLE;
+        inputSamples += input;
+        framesOut++;
+    }
+
+    private int sample(int index, int channel) {
+        int off = (int) ((readPos + (long) index * BYTES_PER_SAMPLE + channel * 2) & mask);
+        return (short) SAMPLE.get(fifo, off);
+    }
+
+    /** Capture clock relative to the packet clock, in parts per million, measured so far. */
+    double getDriftPpm() {
+        long output = framesOut * FRAME_SAMPLES;
+        return output == 0 ? 0 : (inputSamples - output) * 1e6 / output;
+    }
+
+    /** Samples discarded by FIFO overflow or resync. */
+    long getDiscardedSamples() {
+        return overflowed + skipped;
+    }
+}
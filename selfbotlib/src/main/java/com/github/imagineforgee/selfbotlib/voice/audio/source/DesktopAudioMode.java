@@ -2,18 +2,22 @@ package com.github.imagineforgee.selfbotlib.voice.audio.source;
 
 import com.github.imagineforgee.selfbotlib.client.VoiceClient;
 import com.github.imagineforgee.selfbotlib.commands.CommandContext;
+import com.github.imagineforgee.selfbotlib.media.FrameRing;
 import com.github.imagineforgee.selfbotlib.voice.OpusUdpStreamer;
-import com.github.imagineforgee.selfbotlib.voice.SpeakingFlag;
 import com.github.imagineforgee.selfbotlib.voice.VoiceMode;
-import com.sun.jna.ptr.IntByReference;
-import com.sun.jna.ptr.PointerByReference;
-import reactor.core.publisher.Sinks;
+import com.github.imagineforgee.selfbotlib.voice.audio.OpusEncoder;
+import com.github.imagineforgee.selfbotlib.voice.audio.OpusEncoderConfig;
+import com.github.imagineforgee.selfbotlib.voice.audio.SilenceDetector;
+import com.github.imagineforgee.selfbotlib.voice.audio.dsp.DspChain;
+import com.github.imagineforgee.selfbotlib.voice.audio.dsp.DspSettings;
+import com.github.imagineforgee.selfbotlib.voice.audio.mix.PcmQueueSource;
 import tomp2p.opuswrapper.Opus;
 
 import javax.sound.sampled.*;
-import java.nio.IntBuffer;
-import java.util.LinkedList;
-import java.util.Queue;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.ShortBuffer;
+import java.time.Duration;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 public class DesktopAudioMode implements VoiceMode {
@@ -21,15 +25,29 @@ public class DesktopAudioMode implements VoiceMode {
     private OpusUdpStreamer streamer;
     private Thread captureThread;
     private final AtomicBoolean capturing = new AtomicBoolean(false);
-    private Sinks.Many<byte[]> frameSink;
     private String deviceName = "CABLE Output";
+    private volatile Duration targetLatency = DEFAULT_TARGET_LATENCY;
+    private volatile CaptureBuffer captureBuffer;
+    private final SilenceDetector silenceDetector = new SilenceDetector();
+    private final DspSettings dsp = new DspSettings();
+    private volatile OpusEncoderConfig encoderConfig = OpusEncoderConfig.DEFAULT;
+    private volatile int bitrateLimit = OpusEncoderConfig.BITRATE_AUTO;
+    private volatile int lossHint;
+    private volatile OpusEncoder encoder;
+    private volatile PcmQueueSource mixerOutput;
+    // The output the running capture writes to; mixerOutput may have changed since it started
+    private volatile PcmQueueSource captureOutput;
 
+    // Native byte order, so captured bytes are already the samples opus_encode expects
     private static final AudioFormat FORMAT = new AudioFormat(
             AudioFormat.Encoding.PCM_SIGNED,
-            48000f, 16, 2, 4, 48000f, false
+            48000f, 16, 2, 4, 48000f, ByteOrder.nativeOrder() == ByteOrder.BIG_ENDIAN
     );
     private static final int FRAME_SIZE = 960;
     private static final int FRAME_BYTES = FRAME_SIZE * 2 * 2; // 960 * stereo * 2 bytes
+    private static final int READ_BYTES = FRAME_BYTES / 4; // 5 ms per read
+    private static final int CAPTURE_BUFFER_SAMPLES = 48000; // 1 s
+    private static final Duration DEFAULT_TARGET_LATENCY = Duration.ofMillis(60);
 
     public DesktopAudioMode() {}
 
@@ -47,6 +65,81 @@ public class DesktopAudioMode implements VoiceMode {
         }
     }
 
+    /**
+     * Audio to keep buffered between the sound card and the network, counting frames queued
+     * for sending. Capture clock drift is corrected towards it. Applies immediately.
+     */
+    public void setTargetLatency(Duration latency) {
+        this.targetLatency = latency;
+        CaptureBuffer buffer = captureBuffer;
+        if (buffer != null) buffer.setTargetSamples(toSamples(latency));
+    }
+
+    public Duration getTargetLatency() {
+        return targetLatency;
+    }
+
+    /** Measured sound card clock offset from the packet clock, in ppm, for the current capture. */
+    public double getCaptureDriftPpm() {
+        CaptureBuffer buffer = captureBuffer;
+        return buffer != null ? buffer.getDriftPpm() : 0;
+    }
+
+    /** Equalizer, volume and limiter applied to captured audio before encoding. */
+    public DspSettings getDsp() {
+        return dsp;
+    }
+
+    /**
+     * Sends captured audio, after DSP, into {@code output} for an
+     * {@link com.github.imagineforgee.selfbotlib.voice.audio.mix.AudioMixer} instead of
+     * encoding it; null to send to the streamer directly. Takes effect at the next capture.
+     * The queue is finished when that capture stops, so the mixer drops it; later captures
+     * need a new one.
+     */
+    public void setMixerOutput(PcmQueueSource output) {
+        this.mixerOutput = output;
+    }
+
+    @Override
+    public void setEncoderConfig(OpusEncoderConfig config) {
+        this.encoderConfig = config;
+        applyEncoderConfig();
+    }
+
+    @Override
+    public void setBitrateLimit(int bitrate) {
+        this.bitrateLimit = bitrate;
+        applyEncoderConfig();
+    }
+
+    @Override
+    public void setLossHint(int percent) {
+        this.lossHint = percent;
+        applyEncoderConfig();
+    }
+
+    private OpusEncoderConfig effectiveEncoderConfig() {
+        return encoderConfig.limitedTo(bitrateLimit, lossHint);
+    }
+
+    private void applyEncoderConfig() {
+        OpusEncoder current = encoder;
+        if (current != null) current.setConfig(effectiveEncoderConfig());
+    }
+
+    /**
+     * Capture level below which audio counts as silence and is neither encoded nor sent;
+     * use {@link Double#NEGATIVE_INFINITY} to send everything but digital silence.
+     */
+    public void setSilenceThreshold(double dbfs) {
+        silenceDetector.setThreshold(dbfs);
+    }
+
+    private static int toSamples(Duration latency) {
+        return (int) Math.min(CAPTURE_BUFFER_SAMPLES / 2, latency.toNanos() * 48 / 1_000_000);
+    }
+
     @Override
     public void setVoiceClient(VoiceClient client) {
         this.voiceClient = client;
@@ -68,13 +161,17 @@ public class DesktopAudioMode implements VoiceMode {
             return;
         }
 
-        OpusUdpStreamer udpStreamer = voiceClient.getUdpStreamer();
-        if (udpStreamer == null) {
-            System.err.println("[Desktop] Streamer not ready");
-            capturing.set(false);
-            return;
+        PcmQueueSource output = mixerOutput;
+        captureOutput = output;
+        if (output == null) {
+            OpusUdpStreamer udpStreamer = voiceClient.getUdpStreamer();
+            if (udpStreamer == null) {
+                System.err.println("[Desktop] Streamer not ready");
+                capturing.set(false);
+                return;
+            }
+            streamer = udpStreamer;
         }
-        streamer = udpStreamer;
 
         TargetDataLine line = findDevice(deviceName);
         if (line == null) {
@@ -84,19 +181,23 @@ public class DesktopAudioMode implements VoiceMode {
             return;
         }
 
-        // Create Opus encoder
-        IntBuffer error = IntBuffer.allocate(1);
-        PointerByReference encoder = Opus.INSTANCE.opus_encoder_create(48000, 2, Opus.OPUS_APPLICATION_AUDIO, error);
-        if (error.get(0) != Opus.OPUS_OK || encoder == null) {
-            System.err.println("[Desktop] Failed to create Opus encoder, error code: " + error.get(0));
-            capturing.set(false);
-            return;
+        OpusEncoder encoder = null;
+        if (output == null) {
+            try {
+                encoder = new OpusEncoder(Opus.OPUS_APPLICATION_AUDIO, effectiveEncoderConfig());
+            } catch (IllegalStateException e) {
+                System.err.println("[Desktop] " + e.getMessage());
+                capturing.set(false);
+                return;
+            }
+            this.encoder = encoder;
+            // Picks up a config set while the encoder was being created
+            encoder.setConfig(effectiveEncoderConfig());
         }
 
-        frameSink = Sinks.many().unicast().onBackpressureBuffer();
-
         TargetDataLine finalLine = line;
-        PointerByReference finalEncoder = encoder;
+        OpusEncoder finalEncoder = encoder;
+        FrameRing ring = output == null ? streamer.getFrameRing() : null;
 
         captureThread = new Thread(() -> {
             try {
@@ -104,54 +205,68 @@ public class DesktopAudioMode implements VoiceMode {
                 finalLine.start();
                 System.out.println("[Desktop] Capturing from: " + deviceName);
 
-                byte[] pcmBuf = new byte[FRAME_BYTES];
-                byte[] encodedBuf = new byte[4096];
+                // Reads of any length collect in the capture buffer, which hands back whole
+                // frames in native memory, already in native byte order, for opus_encode to
+                // read in place; it also slews the capture clock onto the packet clock
+                CaptureBuffer capture = new CaptureBuffer(CAPTURE_BUFFER_SAMPLES, toSamples(targetLatency));
+                captureBuffer = capture;
+                silenceDetector.reset();
+                ByteBuffer pcm = ByteBuffer.allocateDirect(FRAME_BYTES).order(ByteOrder.nativeOrder());
+                ShortBuffer pcmSamples = pcm.asShortBuffer();
+                DspChain dspChain = new DspChain(dsp, 2, FORMAT.getSampleRate());
 
                 while (capturing.get()) {
-                    int read = finalLine.read(pcmBuf, 0, pcmBuf.length);
-                    if (read == FRAME_BYTES) {
-                        short[] pcmShorts = new short[FRAME_SIZE * 2];
-                        for (int i = 0; i < pcmShorts.length; i++) {
-                            pcmShorts[i] = (short) ((pcmBuf[i * 2] & 0xFF) | (pcmBuf[i * 2 + 1] << 8));
-                        }
-
-                        java.nio.ShortBuffer shortBuffer = java.nio.ShortBuffer.wrap(pcmShorts);
-                        java.nio.ByteBuffer outBuffer = java.nio.ByteBuffer.wrap(encodedBuf);
+                    int read = finalLine.read(capture.array(), capture.writeOffset(), capture.writableBytes(READ_BYTES));
+                    if (read <= 0) continue;
+                    capture.commit(read);
 
-                        int result = Opus.INSTANCE.opus_encode(
-                                finalEncoder,
-                                shortBuffer,
-                                FRAME_SIZE,
-                                outBuffer,
-                                encodedBuf.length
-                        );
+                    int input;
+                    // The mixer's queue stands in for the ring as the clock to slew onto
+                    while ((input = capture.nextFrameInput(output != null ? output.size() : ring.size())) > 0) {
+                        capture.takeFrame(pcm, input);
+                        // No-op while the settings are flat
+                        dspChain.process(pcmSamples, FRAME_SIZE);
 
+                        if (output != null) {
+                            output.write(pcmSamples, FRAME_SIZE);
+                            continue;
+                        }
+                        ByteBuffer slot = ring.claim();
+                        if (slot == null) continue;
+                        // Silence is queued as an empty frame: not encoded and not sent
+                        if (silenceDetector.isSilent(pcmSamples, FRAME_SIZE * 2)) {
+                            ring.publish(0);
+                            continue;
+                        }
+                        int result = finalEncoder.encode(pcmSamples, slot);
                         if (result > 0) {
-                            byte[] encoded = new byte[result];
-                            System.arraycopy(encodedBuf, 0, encoded, 0, result);
-                            frameSink.tryEmitNext(encoded);
+                            ring.publish(result);
                         } else {
                             System.err.println("[Desktop] Encode error: " + result);
                         }
                     }
                 }
+                System.out.printf("[Desktop] Capture drift %.1f ppm, %d samples discarded%n",
+                        capture.getDriftPpm(), capture.getDiscardedSamples());
             } catch (Exception e) {
                 System.err.println("[Desktop] Capture error: " + e.getMessage());
             } finally {
                 finalLine.stop();
                 finalLine.close();
-                Opus.INSTANCE.opus_encoder_destroy(finalEncoder);
-                frameSink.tryEmitComplete();
+                if (finalEncoder != null) {
+                    this.encoder = null;
+                    finalEncoder.close();
+                }
+                if (output != null) output.finish();
                 capturing.set(false);
                 System.out.println("[Desktop] Capture stopped");
             }
         }, "desktop-audio-capture");
 
         captureThread.setDaemon(true);
-        captureThread.start();
 
-        voiceClient.setSpeaking(SpeakingFlag.MICROPHONE);
-        streamer.start(frameSink.asFlux());
+        if (output == null) streamer.start();
+        captureThread.start();
     }
 
     private TargetDataLine findDevice(String name) {
@@ -176,8 +291,7 @@ public class DesktopAudioMode implements VoiceMode {
     public void stop() {
         capturing.set(false);
         if (captureThread != null) captureThread.interrupt();
-        if (streamer != null) streamer.stop();
-        if (voiceClient != null) voiceClient.setSpeaking();
+        if (streamer != null && captureOutput == null) streamer.stop();
     }
 
     @Override public void joinChannel(String guildId, String channelId) {}
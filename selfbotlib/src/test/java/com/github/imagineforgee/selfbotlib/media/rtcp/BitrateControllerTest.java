@@ -0,0 +1,85 @@
+package com.github.imagineforgee.selfbotlib.media.rtcp;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Step responses: a run of reports at one loss level, checked against where GCC's loss
+ * controller should take the target.
+ */
+class BitrateControllerTest {
+    private static final int MIN = 16_000;
+    private static final int MAX = 64_000;
+    // fractionLost is in 1/256 units
+    private static final int LOSS_1 = 3;
+    private static final int LOSS_5 = 13;
+    private static final int LOSS_20 = 51;
+
+    @Test
+    void noLossAtTheCeilingChangesNothing() {
+        BitrateController rate = new BitrateController(MIN, MAX, MAX);
+
+        for (int i = 0; i < 10; i++) {
+            assertFalse(rate.onReport(0));
+        }
+        assertEquals(MAX, rate.getTargetBitrate());
+    }
+
+    @Test
+    void heavyLossCutsInProportion() {
+        BitrateController rate = new BitrateController(MIN, MAX, MAX);
+
+        assertTrue(rate.onReport(LOSS_20));
+        // 64000 * (1 - 0.5 * 51/256)
+        assertEquals(57_625, rate.getTargetBitrate());
+    }
+
+    @Test
+    void sustainedLossSettlesAtTheFloor() {
+        BitrateController rate = new BitrateController(MIN, MAX, MAX);
+
+        for (int i = 0; i < 50; i++) {
+            rate.onReport(LOSS_20);
+        }
+        assertEquals(MIN, rate.getTargetBitrate());
+        assertFalse(rate.onReport(LOSS_20));
+    }
+
+    @Test
+    void moderateLossHolds() {
+        BitrateController rate = new BitrateController(MIN, MAX, 32_000);
+
+        for (int i = 0; i < 20; i++) {
+            assertFalse(rate.onReport(LOSS_5));
+        }
+        assertEquals(32_000, rate.getTargetBitrate());
+    }
+
+    @Test
+    void recoversFromTheFloorToTheCeiling() {
+        BitrateController rate = new BitrateController(MIN, MAX, MIN);
+
+        assertTrue(rate.onReport(LOSS_1));
+        // 16000 * 1.05 + 1000
+        assertEquals(17_800, rate.getTargetBitrate());
+
+        int reports = 1;
+        while (rate.getTargetBitrate() < MAX && reports < 100) {
+            rate.onReport(0);
+            reports++;
+        }
+        assertEquals(MAX, rate.getTargetBitrate());
+        assertTrue(reports < 30, "took " + reports + " reports");
+    }
+
+    @Test
+    void smoothsLoss() {
+        BitrateController rate = new BitrateController(MIN, MAX, MAX);
+
+        rate.onReport(LOSS_20);
+        assertEquals(0.3 * LOSS_20 / 256.0, rate.getSmoothedLoss(), 1e-9);
+    }
+}
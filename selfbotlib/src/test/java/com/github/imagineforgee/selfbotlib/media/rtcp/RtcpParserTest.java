@@ -0,0 +1,137 @@
+package com.github.imagineforgee.selfbotlib.media.rtcp;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Parses compound packets built by hand, field by field, the way the voice server sends them.
+ */
+class RtcpParserTest {
+    private static final int SENDER = 0x11111111;
+    private static final int MEDIA = 0x22222222;
+
+    @Test
+    void receiverReportBlocks() {
+        ByteBuffer buf = ByteBuffer.allocate(64);
+        receiverReport(buf, 51, -3, 70_000, 120);
+        Recorder recorder = parse(buf);
+
+        assertEquals(List.of("rr " + MEDIA + " 51 -3 70000 120"), recorder.events);
+    }
+
+    @Test
+    void nackExpandsTheBitmask() {
+        ByteBuffer buf = ByteBuffer.allocate(64);
+        // Lost 100, and from the mask 101 and 103
+        nack(buf, 100, 0b101);
+        Recorder recorder = parse(buf);
+
+        assertEquals(List.of("nack " + MEDIA + " 100", "nack " + MEDIA + " 101", "nack " + MEDIA + " 103"),
+                recorder.events);
+    }
+
+    @Test
+    void nackWrapsAroundTheSequenceSpace() {
+        ByteBuffer buf = ByteBuffer.allocate(64);
+        nack(buf, 0xFFFF, 0b1);
+        Recorder recorder = parse(buf);
+
+        assertEquals(List.of("nack " + MEDIA + " 65535", "nack " + MEDIA + " 0"), recorder.events);
+    }
+
+    @Test
+    void compoundPacketIsWalkedInOrder() {
+        ByteBuffer buf = ByteBuffer.allocate(128);
+        receiverReport(buf, 0, 0, 5, 0);
+        nack(buf, 7, 0);
+        pli(buf);
+        Recorder recorder = parse(buf);
+
+        assertEquals(List.of("rr " + MEDIA + " 0 0 5 0", "nack " + MEDIA + " 7", "pli " + MEDIA), recorder.events);
+    }
+
+    @Test
+    void unknownTypesAreSkippedByLength() {
+        ByteBuffer buf = ByteBuffer.allocate(128);
+        // SDES with one chunk of padding words
+        buf.put((byte) 0x81).put((byte) 202).putShort((short) 2).putInt(SENDER).putInt(0);
+        pli(buf);
+        Recorder recorder = parse(buf);
+
+        assertEquals(List.of("pli " + MEDIA), recorder.events);
+    }
+
+    @Test
+    void stopsAtATruncatedPacket() {
+        ByteBuffer buf = ByteBuffer.allocate(64);
+        pli(buf);
+        // Claims 8 words but the datagram ends after the header
+        buf.put((byte) 0x81).put((byte) 201).putShort((short) 7).putInt(SENDER);
+        buf.flip();
+        Recorder recorder = new Recorder();
+
+        assertEquals(1, RtcpParser.parse(buf, 0, buf.limit(), recorder));
+        assertEquals(List.of("pli " + MEDIA), recorder.events);
+    }
+
+    @Test
+    void tellsRtcpFromRtp() {
+        assertTrue(RtcpParser.isRtcp(0x81, 201));
+        // Opus RTP, payload type 120 with and without the marker bit
+        assertFalse(RtcpParser.isRtcp(0x80, 120));
+        assertFalse(RtcpParser.isRtcp(0x80, 0x80 | 120));
+    }
+
+    static void receiverReport(ByteBuffer buf, int fractionLost, int cumulativeLost, int highest, int jitter) {
+        buf.put((byte) 0x81).put((byte) RtcpParser.RECEIVER_REPORT).putShort((short) 7).putInt(SENDER);
+        buf.putInt(MEDIA)
+                .putInt(fractionLost << 24 | cumulativeLost & 0xFFFFFF)
+                .putInt(highest)
+                .putInt(jitter)
+                .putInt(0)  // Last SR
+                .putInt(0); // Delay since last SR
+    }
+
+    private static void nack(ByteBuffer buf, int pid, int blp) {
+        buf.put((byte) 0x81).put((byte) RtcpParser.TRANSPORT_FEEDBACK).putShort((short) 3).putInt(SENDER);
+        buf.putInt(MEDIA).putShort((short) pid).putShort((short) blp);
+    }
+
+    private static void pli(ByteBuffer buf) {
+        buf.put((byte) 0x81).put((byte) RtcpParser.PAYLOAD_FEEDBACK).putShort((short) 2).putInt(SENDER);
+        buf.putInt(MEDIA);
+    }
+
+    private static Recorder parse(ByteBuffer buf) {
+        buf.flip();
+        Recorder recorder = new Recorder();
+        RtcpParser.parse(buf, 0, buf.limit(), recorder);
+        return recorder;
+    }
+
+    static class Recorder implements RtcpListener {
+        final List<String> events = new ArrayList<>();
+
+        @Override
+        public void onReceiverReport(int ssrc, int fractionLost, int cumulativeLost, long highestSequence, long jitter) {
+            events.add("rr " + ssrc + " " + fractionLost + " " + cumulativeLost + " " + highestSequence + " " + jitter);
+        }
+
+        @Override
+        public void onNack(int ssrc, int sequence) {
+            events.add("nack " + ssrc + " " + sequence);
+        }
+
+        @Override
+        public void onPictureLoss(int ssrc) {
+            events.add("pli " + ssrc);
+        }
+    }
+}
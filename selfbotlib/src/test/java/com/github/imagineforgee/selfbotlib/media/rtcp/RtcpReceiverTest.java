@@ -0,0 +1,120 @@
+package com.github.imagineforgee.selfbotlib.media.rtcp;
+
+import com.github.imagineforgee.selfbotlib.media.transport.DatagramChannelTransport;
+import com.github.imagineforgee.selfbotlib.voice.VoiceCipher;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Runs the receiver on a real socket, with a local channel standing in for the voice server
+ * and sealing its reports with the connection's key.
+ */
+class RtcpReceiverTest {
+    private static final byte[] KEY = new byte[32];
+    private static final long WAIT_MILLIS = 2000;
+
+    private DatagramChannel server;
+    private DatagramChannelTransport transport;
+    private SocketAddress client;
+    private VoiceCipher serverCipher;
+    private final BlockingQueue<Integer> reports = new LinkedBlockingQueue<>();
+    private RtcpReceiver receiver;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        server = DatagramChannel.open().bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+        transport = new DatagramChannelTransport((InetSocketAddress) server.getLocalAddress());
+        // The server learns where to send feedback from the first packet, as with IP discovery
+        transport.send(ByteBuffer.allocateDirect(4));
+        client = server.receive(ByteBuffer.allocate(16));
+        assertNotNull(client);
+
+        serverCipher = new VoiceCipher(KEY);
+        receiver = new RtcpReceiver(transport, new VoiceCipher(KEY), new RtcpListener() {
+            @Override
+            public void onReceiverReport(int ssrc, int fractionLost, int cumulativeLost, long highestSequence, long jitter) {
+                reports.add(fractionLost);
+            }
+        });
+        receiver.start();
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        receiver.stop();
+        transport.close();
+        server.close();
+    }
+
+    @Test
+    void sealedReportReachesTheListener() throws Exception {
+        server.send(sealedReport(51), client);
+
+        assertEquals(51, reports.poll(WAIT_MILLIS, TimeUnit.MILLISECONDS));
+        assertEquals(1, receiver.getPacketsReceived());
+        assertEquals(0, receiver.getRejected());
+    }
+
+    @Test
+    void tamperedReportIsRejected() throws Exception {
+        ByteBuffer tampered = sealedReport(51);
+        tampered.put(12, (byte) (tampered.get(12) ^ 1));
+        server.send(tampered, client);
+        // Sent after, so once it arrives the tampered one has been handled
+        server.send(sealedReport(0), client);
+
+        assertEquals(0, reports.poll(WAIT_MILLIS, TimeUnit.MILLISECONDS));
+        assertNull(reports.poll());
+        assertEquals(1, receiver.getRejected());
+        assertEquals(1, receiver.getPacketsReceived());
+    }
+
+    @Test
+    void rtpIsDropped() throws Exception {
+        ByteBuffer rtp = ByteBuffer.allocate(32).put(0, (byte) 0x80).put(1, (byte) 120);
+        server.send(rtp, client);
+        server.send(sealedReport(0), client);
+
+        assertEquals(0, reports.poll(WAIT_MILLIS, TimeUnit.MILLISECONDS));
+        assertEquals(0, receiver.getRejected());
+        assertEquals(1, receiver.getPacketsReceived());
+    }
+
+    @Test
+    void twentyPercentLossLowersTheRate() throws Exception {
+        BitrateController rate = new BitrateController(16_000, 64_000, 64_000);
+        for (int i = 0; i < 5; i++) {
+            server.send(sealedReport(51), client);
+            Integer fractionLost = reports.poll(WAIT_MILLIS, TimeUnit.MILLISECONDS);
+            assertNotNull(fractionLost);
+            rate.onReport(fractionLost);
+        }
+
+        assertTrue(rate.getTargetBitrate() < 40_000, "target " + rate.getTargetBitrate());
+        assertTrue(rate.getSmoothedLoss() > 0.1);
+    }
+
+    private ByteBuffer sealedReport(int fractionLost) {
+        ByteBuffer packet = ByteBuffer.allocate(64);
+        RtcpParserTest.receiverReport(packet, fractionLost, 0, 1000, 0);
+        packet.flip();
+        serverCipher.seal(packet, 8);
+        return packet;
+    }
+}
@@ -0,0 +1,79 @@
+package com.github.imagineforgee.selfbotlib.voice;
+
+import com.github.imagineforgee.selfbotlib.media.transport.DirectBufferPool;
+import com.github.imagineforgee.selfbotlib.media.transport.MediaTransport;
+import org.junit.jupiter.api.Test;
+
+import java.lang.management.ManagementFactory;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Packet assembly and encryption run once per frame per stream, so steady state must not
+ * allocate. Measured with the thread's allocation counter after a warm-up long enough for
+ * the hot paths to be compiled.
+ */
+class OpusUdpStreamerAllocationTest {
+    private static final int WARMUP = 20_000;
+    private static final int MEASURED = 10_000;
+    // Looked up once: getThreadMXBean() itself allocates
+    private static final com.sun.management.ThreadMXBean THREADS =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    @Test
+    void writePacketDoesNotAllocate() {
+        VoiceCipher cipher = new VoiceCipher(new byte[32]);
+        OpusUdpStreamer streamer = new OpusUdpStreamer(new NullTransport(), 1234, cipher, new AtomicBoolean(true));
+        byte[] frame = new byte[160];
+        ByteBuffer direct = ByteBuffer.allocateDirect(160);
+
+        for (int i = 0; i < WARMUP; i++) {
+            streamer.writePacket(i, i * 960, frame, 0, frame.length);
+            streamer.writePacket(i, i * 960, direct.clear());
+        }
+
+        long before = allocatedBytes();
+        for (int i = 0; i < MEASURED; i++) {
+            streamer.writePacket(i, i * 960, frame, 0, frame.length);
+            streamer.writePacket(i, i * 960, direct.clear());
+        }
+        assertEquals(0, allocatedBytes() - before);
+    }
+
+    @Test
+    void encryptIntoDoesNotAllocate() {
+        VoiceCipher cipher = new VoiceCipher(new byte[32]);
+        ByteBuffer src = ByteBuffer.allocateDirect(160);
+        ByteBuffer dst = ByteBuffer.allocateDirect(12 + 160 + VoiceCipher.OVERHEAD);
+
+        for (int i = 0; i < WARMUP; i++) {
+            cipher.encryptInto(src.clear(), dst.clear().position(12));
+        }
+
+        long before = allocatedBytes();
+        for (int i = 0; i < MEASURED; i++) {
+            cipher.encryptInto(src.clear(), dst.clear().position(12));
+        }
+        assertEquals(0, allocatedBytes() - before);
+    }
+
+    private static long allocatedBytes() {
+        return THREADS.getThreadAllocatedBytes(Thread.currentThread().threadId());
+    }
+
+    private static final class NullTransport implements MediaTransport {
+        private final DirectBufferPool pool = new DirectBufferPool(2048, 4);
+
+        @Override public void send(ByteBuffer packet) { packet.position(packet.limit()); }
+        @Override public boolean receive(ByteBuffer dst) { return false; }
+        @Override public boolean receive(ByteBuffer dst, Duration timeout) { return false; }
+        @Override public DirectBufferPool bufferPool() { return pool; }
+        @Override public InetSocketAddress remoteAddress() { return new InetSocketAddress(0); }
+        @Override public boolean isOpen() { return true; }
+        @Override public void close() {}
+    }
+}
@@ -0,0 +1,167 @@
+package com.github.imagineforgee.selfbotlib.voice;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks the allocation-free cipher against {@link SodiumEncryption}, which builds on
+ * BouncyCastle's ChaCha20-Poly1305, over random keys, nonces and lengths around the ChaCha
+ * block and Poly1305 block boundaries.
+ */
+class XChaCha20Poly1305Test {
+    private static final int[] LENGTHS = {0, 1, 15, 16, 17, 31, 32, 33, 63, 64, 65, 127, 128, 129, 960, 1400};
+    private static final int[] AAD_LENGTHS = {0, 1, 12, 16, 17};
+    private static final int RUNS = 20;
+
+    private final Random random = new Random(0x5eed);
+
+    @Test
+    void sealMatchesReference() {
+        for (int run = 0; run < RUNS; run++) {
+            byte[] key = bytes(32);
+            XChaCha20Poly1305 aead = new XChaCha20Poly1305(key);
+            for (int length : LENGTHS) {
+                for (int aadLength : AAD_LENGTHS) {
+                    byte[] nonce = bytes(XChaCha20Poly1305.NONCE_LENGTH);
+                    byte[] aad = bytes(aadLength);
+                    byte[] plaintext = bytes(length);
+                    byte[] expected = SodiumEncryption.encrypt(plaintext, aad, nonce, key);
+
+                    boolean direct = random.nextBoolean();
+                    ByteBuffer src = buffer(plaintext, direct);
+                    ByteBuffer dst = direct ? ByteBuffer.allocateDirect(length + XChaCha20Poly1305.TAG_LENGTH)
+                            : ByteBuffer.allocate(length + XChaCha20Poly1305.TAG_LENGTH);
+                    aead.seal(nonce, buffer(aad, direct), 0, aadLength, src, 0, dst, 0, length);
+
+                    assertArrayEquals(expected, contents(dst, 0, expected.length),
+                            "length " + length + ", aad " + aadLength + ", run " + run);
+                }
+            }
+        }
+    }
+
+    @Test
+    void sealsInPlaceAtAnOffset() {
+        byte[] key = bytes(32);
+        XChaCha20Poly1305 aead = new XChaCha20Poly1305(key);
+        for (int length : LENGTHS) {
+            byte[] nonce = bytes(XChaCha20Poly1305.NONCE_LENGTH);
+            byte[] header = bytes(12);
+            byte[] plaintext = bytes(length);
+            byte[] expected = SodiumEncryption.encrypt(plaintext, header, nonce, key);
+
+            ByteBuffer packet = ByteBuffer.allocateDirect(12 + length + XChaCha20Poly1305.TAG_LENGTH);
+            packet.put(0, header).put(12, plaintext);
+            aead.seal(nonce, packet, 0, 12, packet, 12, packet, 12, length);
+
+            assertArrayEquals(header, contents(packet, 0, 12));
+            assertArrayEquals(expected, contents(packet, 12, expected.length), "length " + length);
+        }
+    }
+
+    @Test
+    void openReversesTheReference() {
+        for (int run = 0; run < RUNS; run++) {
+            byte[] key = bytes(32);
+            XChaCha20Poly1305 aead = new XChaCha20Poly1305(key);
+            for (int length : LENGTHS) {
+                byte[] nonce = bytes(XChaCha20Poly1305.NONCE_LENGTH);
+                byte[] aad = bytes(12);
+                byte[] plaintext = bytes(length);
+                ByteBuffer sealed = ByteBuffer.wrap(SodiumEncryption.encrypt(plaintext, aad, nonce, key));
+                ByteBuffer out = ByteBuffer.allocate(length);
+
+                assertTrue(aead.open(nonce, ByteBuffer.wrap(aad), 0, 12, sealed, 0, out, 0, length));
+                assertArrayEquals(plaintext, out.array(), "length " + length);
+            }
+        }
+    }
+
+    @Test
+    void encryptIntoMatchesReferenceForEveryCounter() {
+        byte[] key = bytes(32);
+        VoiceCipher cipher = new VoiceCipher(key);
+        int[] counters = {0, 1, 255, 256, 65_535, 0x7fffffff, 0x80000000, -1, random.nextInt(), random.nextInt()};
+        for (int counter : counters) {
+            for (int length : LENGTHS) {
+                byte[] header = bytes(12);
+                byte[] payload = bytes(length);
+                byte[] nonce = new byte[XChaCha20Poly1305.NONCE_LENGTH];
+                ByteBuffer.wrap(nonce).putInt(counter);
+                byte[] expected = SodiumEncryption.encrypt(payload, header, nonce, key);
+
+                ByteBuffer dst = ByteBuffer.allocateDirect(12 + length + VoiceCipher.OVERHEAD);
+                dst.put(header);
+                cipher.encryptInto(ByteBuffer.wrap(payload), dst, counter);
+
+                assertEquals(dst.capacity(), dst.position());
+                assertArrayEquals(expected, contents(dst, 12, expected.length), "counter " + counter + ", length " + length);
+                assertArrayEquals(Arrays.copyOf(nonce, VoiceCipher.NONCE_SUFFIX_LENGTH),
+                        contents(dst, 12 + expected.length, VoiceCipher.NONCE_SUFFIX_LENGTH));
+            }
+        }
+    }
+
+    @Test
+    void openRoundTripsAndRejectsTampering() {
+        byte[] key = bytes(32);
+        VoiceCipher sender = new VoiceCipher(key);
+        VoiceCipher receiver = new VoiceCipher(key);
+        for (int length : LENGTHS) {
+            byte[] header = bytes(8);
+            byte[] payload = bytes(length);
+            ByteBuffer packet = ByteBuffer.allocate(8 + length + VoiceCipher.OVERHEAD);
+            packet.put(header).put(payload).flip();
+            sender.seal(packet, 8);
+            byte[] sealed = contents(packet, 0, packet.limit());
+
+            ByteBuffer copy = ByteBuffer.wrap(sealed.clone());
+            assertEquals(length, receiver.open(copy, 8));
+            assertArrayEquals(payload, contents(copy, 8, length));
+
+            // Every region of the packet is covered: header, ciphertext, tag and nonce suffix
+            for (int index : new int[]{0, 7, 8 + length / 2, 8 + length, sealed.length - 5, sealed.length - 1}) {
+                if (index >= sealed.length || (length == 0 && index == 8 + length / 2)) continue;
+                byte[] tampered = sealed.clone();
+                tampered[index] ^= 0x01;
+                ByteBuffer tamperedPacket = ByteBuffer.wrap(tampered);
+                assertEquals(-1, receiver.open(tamperedPacket, 8), "length " + length + ", byte " + index);
+                assertEquals(tampered.length, tamperedPacket.limit());
+                tampered[index] ^= 0x01;
+                assertArrayEquals(sealed, tampered, "rejected packet was modified");
+            }
+        }
+    }
+
+    @Test
+    void openRejectsTruncatedPackets() {
+        VoiceCipher cipher = new VoiceCipher(bytes(32));
+        assertEquals(-1, cipher.open(ByteBuffer.allocate(8 + VoiceCipher.OVERHEAD - 1), 8));
+        assertFalse(cipher.open(ByteBuffer.allocate(8 + VoiceCipher.OVERHEAD), 8) >= 0);
+    }
+
+    private byte[] bytes(int length) {
+        byte[] bytes = new byte[length];
+        random.nextBytes(bytes);
+        return bytes;
+    }
+
+    private static ByteBuffer buffer(byte[] contents, boolean direct) {
+        if (!direct) return ByteBuffer.wrap(contents.clone());
+        return ByteBuffer.allocateDirect(contents.length).put(0, contents);
+    }
+
+    private static byte[] contents(ByteBuffer buffer, int offset, int length) {
+        byte[] bytes = new byte[length];
+        buffer.get(offset, bytes);
+        return bytes;
+    }
+}
@@ -0,0 +1,291 @@
+package com.github.imagineforgee.selfbotlib.voice.audio.music.track;
+
+import com.sedmelluq.discord.lavaplayer.player.AudioLoadResultHandler;
+import com.sedmelluq.discord.lavaplayer.player.AudioPlayerManager;
+import com.sedmelluq.discord.lavaplayer.player.DefaultAudioPlayerManager;
+import com.sedmelluq.discord.lavaplayer.source.AudioSourceManager;
+import com.sedmelluq.discord.lavaplayer.tools.FriendlyException;
+import com.sedmelluq.discord.lavaplayer.track.AudioItem;
+import com.sedmelluq.discord.lavaplayer.track.AudioPlaylist;
+import com.sedmelluq.discord.lavaplayer.track.AudioReference;
+import com.sedmelluq.discord.lavaplayer.track.AudioTrack;
+import com.sedmelluq.discord.lavaplayer.track.AudioTrackInfo;
+import com.sedmelluq.discord.lavaplayer.track.BaseAudioTrack;
+import com.sedmelluq.discord.lavaplayer.track.playback.LocalAudioTrackExecutor;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Runs the cache against a real player manager with an in-memory source that counts how often
+ * it is asked to resolve something, so a hit is visible as a load that never reached it.
+ */
+class TrackLoadCacheTest {
+    private FakeSource source;
+    private AudioPlayerManager manager;
+
+    @BeforeEach
+    void setUp() {
+        source = new FakeSource();
+        manager = new DefaultAudioPlayerManager();
+        manager.registerSourceManager(source);
+    }
+
+    @AfterEach
+    void tearDown() {
+        manager.shutdown();
+    }
+
+    @Test
+    void secondLoadIsServedFromMemory() throws Exception {
+        TrackLoadCache cache = new TrackLoadCache(manager, 16, Duration.ofMinutes(1), null);
+
+        assertEquals("fake:a", load(cache, "fake:a"));
+        assertEquals("fake:a", load(cache, "fake:a"));
+
+        assertEquals(1, source.loads.get());
+        assertEquals(1, cache.getHitCount());
+        assertEquals(1, cache.getMissCount());
+    }
+
+    @Test
+    void expiredEntryIsResolvedAgain() throws Exception {
+        TrackLoadCache cache = new TrackLoadCache(manager, 16, Duration.ofMillis(50), null);
+
+        load(cache, "fake:a");
+        Thread.sleep(100);
+        assertEquals("fake:a", load(cache, "fake:a"));
+
+        assertEquals(2, source.loads.get());
+        assertEquals(0, cache.getHitCount());
+    }
+
+    @Test
+    void leastRecentlyUsedEntryIsEvicted() throws Exception {
+        TrackLoadCache cache = new TrackLoadCache(manager, 2, Duration.ofMinutes(1), null);
+
+        load(cache, "fake:a");
+        load(cache, "fake:b");
+        // Touch a so b is the eldest when c arrives
+        load(cache, "fake:a");
+        load(cache, "fake:c");
+        assertEquals(3, source.loads.get());
+
+        load(cache, "fake:a");
+        assertEquals(3, source.loads.get());
+        load(cache, "fake:b");
+        assertEquals(4, source.loads.get());
+    }
+
+    @Test
+    void newInstanceReadsEntriesFromDirectory(@TempDir Path directory) throws Exception {
+        TrackLoadCache first = new TrackLoadCache(manager, 16, Duration.ofMinutes(1), directory);
+        load(first, "fake:a");
+
+        TrackLoadCache second = new TrackLoadCache(manager, 16, Duration.ofMinutes(1), directory);
+        assertEquals("fake:a", load(second, "fake:a"));
+
+        assertEquals(1, source.loads.get());
+        assertEquals(1, second.getHitCount());
+    }
+
+    @Test
+    void hitWaitsForAnEarlierMissWithTheSameKey() throws Exception {
+        TrackLoadCache cache = new TrackLoadCache(manager, 16, Duration.ofMinutes(1), null);
+        load(cache, "fake:b");
+
+        source.gate = new CountDownLatch(1);
+        List<String> order = Collections.synchronizedList(new ArrayList<>());
+        Future<Void> miss = cache.load("guild", "fake:a", recorder(order));
+        Future<Void> hit = cache.load("guild", "fake:b", recorder(order));
+
+        assertFalse(hit.isDone());
+        assertTrue(order.isEmpty());
+        source.gate.countDown();
+        miss.get(5, TimeUnit.SECONDS);
+        hit.get(5, TimeUnit.SECONDS);
+
+        assertEquals(List.of("fake:a", "fake:b"), order);
+        assertEquals(2, source.loads.get());
+        assertEquals(1, cache.getHitCount());
+    }
+
+    @Test
+    void hitWithAnotherKeyIsNotHeldUp() throws Exception {
+        TrackLoadCache cache = new TrackLoadCache(manager, 16, Duration.ofMinutes(1), null);
+        load(cache, "fake:b");
+
+        source.gate = new CountDownLatch(1);
+        List<String> order = Collections.synchronizedList(new ArrayList<>());
+        Future<Void> miss = cache.load("guild 1", "fake:a", recorder(order));
+        Future<Void> hit = cache.load("guild 2", "fake:b", recorder(order));
+
+        assertTrue(hit.isDone());
+        assertEquals(List.of("fake:b"), order);
+        source.gate.countDown();
+        miss.get(5, TimeUnit.SECONDS);
+    }
+
+    @Test
+    void evictedEntryIsDeletedFromDirectory(@TempDir Path directory) throws Exception {
+        TrackLoadCache cache = new TrackLoadCache(manager, 2, Duration.ofMinutes(1), directory);
+
+        load(cache, "fake:a");
+        load(cache, "fake:b");
+        load(cache, "fake:c");
+
+        assertEquals(2, trackFiles(directory));
+        TrackLoadCache restarted = new TrackLoadCache(manager, 2, Duration.ofMinutes(1), directory);
+        load(restarted, "fake:a");
+        assertEquals(4, source.loads.get());
+    }
+
+    @Test
+    void startupSweepsExpiredAndExcessFiles(@TempDir Path directory) throws Exception {
+        TrackLoadCache first = new TrackLoadCache(manager, 16, Duration.ofMinutes(1), directory);
+        load(first, "fake:a");
+        load(first, "fake:b");
+        load(first, "fake:c");
+        Files.writeString(directory.resolve("left.track.tmp"), "partial");
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path file : files.filter(f -> f.toString().endsWith(".track")).toList()) {
+                // a is stale, c is the newest
+                long age = switch (readIdentifier(file)) {
+                    case "fake:a" -> Duration.ofHours(1).toMillis();
+                    case "fake:b" -> 2000;
+                    default -> 1000;
+                };
+                Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis() - age));
+            }
+        }
+
+        new TrackLoadCache(manager, 1, Duration.ofMinutes(1), directory);
+
+        assertEquals(1, trackFiles(directory));
+        try (Stream<Path> files = Files.list(directory)) {
+            assertEquals(1, files.count());
+        }
+        TrackLoadCache second = new TrackLoadCache(manager, 16, Duration.ofMinutes(1), directory);
+        load(second, "fake:c");
+        assertEquals(3, source.loads.get());
+    }
+
+    /** Entry files are named by hash; the identifier is stored near the start of the file. */
+    private static String readIdentifier(Path file) throws Exception {
+        String contents = new String(Files.readAllBytes(file), StandardCharsets.ISO_8859_1);
+        for (String identifier : List.of("fake:a", "fake:b", "fake:c")) {
+            if (contents.contains(identifier)) return identifier;
+        }
+        throw new AssertionError("Unexpected file " + file);
+    }
+
+    private static long trackFiles(Path directory) throws Exception {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(f -> f.toString().endsWith(".track")).count();
+        }
+    }
+
+    private static AudioLoadResultHandler recorder(List<String> order) {
+        return new AudioLoadResultHandler() {
+            @Override public void trackLoaded(AudioTrack track) { order.add(track.getIdentifier()); }
+            @Override public void playlistLoaded(AudioPlaylist playlist) {}
+            @Override public void noMatches() {}
+            @Override public void loadFailed(FriendlyException exception) {}
+        };
+    }
+
+    /** @return the identifier of the loaded track */
+    private static String load(TrackLoadCache cache, String identifier) throws Exception {
+        List<AudioTrack> loaded = new ArrayList<>();
+        cache.load(identifier, identifier, new AudioLoadResultHandler() {
+            @Override public void trackLoaded(AudioTrack track) { loaded.add(track); }
+            @Override public void playlistLoaded(AudioPlaylist playlist) { loaded.addAll(playlist.getTracks()); }
+            @Override public void noMatches() {}
+            @Override public void loadFailed(FriendlyException exception) {}
+        }).get();
+        assertEquals(1, loaded.size());
+        return loaded.get(0).getIdentifier();
+    }
+
+    private static final class FakeSource implements AudioSourceManager {
+        final AtomicInteger loads = new AtomicInteger();
+        // When set, loads block until it opens
+        volatile CountDownLatch gate;
+
+        @Override
+        public String getSourceName() {
+            return "fake";
+        }
+
+        @Override
+        public AudioItem loadItem(AudioPlayerManager manager, AudioReference reference) {
+            if (!reference.identifier.startsWith("fake:")) return null;
+            loads.incrementAndGet();
+            CountDownLatch latch = gate;
+            if (latch != null) {
+                try {
+                    latch.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            return new FakeTrack(new AudioTrackInfo(reference.identifier, "test", 1000, reference.identifier, false, null), this);
+        }
+
+        @Override
+        public boolean isTrackEncodable(AudioTrack track) {
+            return true;
+        }
+
+        @Override
+        public void encodeTrack(AudioTrack track, DataOutput output) {}
+
+        @Override
+        public AudioTrack decodeTrack(AudioTrackInfo trackInfo, DataInput input) {
+            return new FakeTrack(trackInfo, this);
+        }
+
+        @Override
+        public void shutdown() {}
+    }
+
+    private static final class FakeTrack extends BaseAudioTrack {
+        private final FakeSource source;
+
+        FakeTrack(AudioTrackInfo info, FakeSource source) {
+            super(info);
+            this.source = source;
+        }
+
+        @Override
+        public void process(LocalAudioTrackExecutor executor) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public AudioSourceManager getSourceManager() {
+            return source;
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package com.github.imagineforgee.selfbotlib.voice.audio.source;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Drift correction resamples with fixed-point interpolation; a full-scale signal exercises the
+ * largest steps between neighbouring samples.
+ */
+class CaptureBufferTest {
+
+    @Test
+    void resamplesFullScaleAlternatingSignal() {
+        assertResamplesExactly(CaptureBuffer.FRAME_SAMPLES + 1);
+        assertResamplesExactly(CaptureBuffer.FRAME_SAMPLES - 1);
+    }
+
+    @Test
+    void passesWholeFramesThrough() {
+        assertResamplesExactly(CaptureBuffer.FRAME_SAMPLES);
+    }
+
+    private static void assertResamplesExactly(int input) {
+        CaptureBuffer buffer = new CaptureBuffer(4096, 0);
+        short[] samples = new short[input * CaptureBuffer.CHANNELS];
+        for (int i = 0; i < samples.length; i++) {
+            // Left and right in opposite phase, swinging rail to rail every sample
+            samples[i] = (i / CaptureBuffer.CHANNELS + i) % 2 == 0 ? Short.MAX_VALUE : Short.MIN_VALUE;
+        }
+        int bytes = samples.length * 2;
+        assertEquals(bytes, buffer.writableBytes(bytes));
+        ByteBuffer.wrap(buffer.array(), buffer.writeOffset(), bytes)
+                .order(ByteOrder.nativeOrder()).asShortBuffer().put(samples);
+        buffer.commit(bytes);
+
+        ByteBuffer pcm = ByteBuffer.allocateDirect(CaptureBuffer.FRAME_SAMPLES * CaptureBuffer.BYTES_PER_SAMPLE)
+                .order(ByteOrder.nativeOrder());
+        buffer.takeFrame(pcm, input);
+
+        long step = ((long) (input - 1) << 16) / (CaptureBuffer.FRAME_SAMPLES - 1);
+        for (int i = 0; i < CaptureBuffer.FRAME_SAMPLES; i++) {
+            long pos = i * step;
+            int index = (int) (pos >>> 16);
+            int next = Math.min(index + 1, input - 1);
+            double frac = (pos & 0xFFFF) / 65536.0;
+            for (int ch = 0; ch < CaptureBuffer.CHANNELS; ch++) {
+                double a = samples[index * CaptureBuffer.CHANNELS + ch];
+                double b = samples[next * CaptureBuffer.CHANNELS + ch];
+                double expected = a + (b - a) * frac;
+                short actual = pcm.getShort((i * CaptureBuffer.CHANNELS + ch) * 2);
+                assertEquals(expected, actual, 1.0, "sample " + i + " channel " + ch);
+            }
+        }
+        assertEquals(0, buffer.availableSamples());
+    }
+}